@@ -0,0 +1,21 @@
+package designpattern.Behavioral;
+
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * 트리 깊이 - 한쪽으로만 깊어지는 체인(InterpreterBenchmark.deepTree), 변수 8 개
+ */
+public class ExpressionDepthBenchmark extends ExpressionPathBenchmark {
+	@Param({ "16", "256", "1024" })
+	public int depth;
+
+	@Override
+	protected Expression newTree() {
+		return InterpreterBenchmark.deepTree(depth, variables());
+	}
+
+	@Override
+	protected int variables() {
+		return 8;
+	}
+}
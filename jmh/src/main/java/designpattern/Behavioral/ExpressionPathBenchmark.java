@@ -0,0 +1,99 @@
+package designpattern.Behavioral;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 같은 Expression 트리를 평가 경로별로 측정(JMH)
+ *  - interpret : 트리를 그대로 순회(기준)
+ *  - compiled / optimized : ExpressionCompiler 의 람다 체인, 상수 접기 후 컴파일
+ *  - slot : 변수를 슬롯 번호로 바인딩한 뒤 컴파일
+ *  - dag / flat : 공통 부분식을 합친 DAG, 후위 명령 배열을 스택으로 평가
+ *
+ * 트리 모양은 하위 클래스가 @Param 으로 정함, 측정 전에 모든 경로의 결과가 interpret 와 같은지 확인
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public abstract class ExpressionPathBenchmark {
+	private Expression tree;
+	private Context context;
+	private CompiledExpression compiled;
+	private CompiledExpression optimized;
+	private CompiledExpression slotCompiled;
+	private SlotContext slotContext;
+	private ExpressionDag dag;
+	private int[] values;
+	private ParallelEvaluator flat;
+
+	protected abstract Expression newTree();
+
+	protected abstract int variables();
+
+	@Setup
+	public void setUp() {
+		tree = newTree();
+		context = InterpreterBenchmark.newContext(variables());
+		compiled = ExpressionCompiler.compile(tree);
+		optimized = ExpressionCompiler.compile(ExpressionOptimizer.optimize(tree));
+		SlotLayout layout = new SlotLayout();
+		slotCompiled = ExpressionCompiler.compile(layout.bind(tree));
+		slotContext = layout.newContext();
+		for (int i = 0; i < variables(); i++) {
+			slotContext.setVariable(InterpreterBenchmark.variableName(i), i + 2);
+		}
+		dag = ExpressionDag.build(tree);
+		values = new int[dag.size()];
+		flat = new ParallelEvaluator(tree);
+
+		int expected = tree.interpret(context);
+		InterpreterBenchmark.check("compiled", expected, compiled.interpret(context));
+		InterpreterBenchmark.check("optimized", expected, optimized.interpret(context));
+		InterpreterBenchmark.check("slot", expected, slotCompiled.interpret(slotContext));
+		InterpreterBenchmark.check("dag", expected, dag.evaluate(context, values));
+		InterpreterBenchmark.check("flat", expected, flat.evaluateSequential(context));
+	}
+
+	@Benchmark
+	public int interpret() {
+		return tree.interpret(context);
+	}
+
+	@Benchmark
+	public int compiled() {
+		return compiled.interpret(context);
+	}
+
+	@Benchmark
+	public int optimized() {
+		return optimized.interpret(context);
+	}
+
+	@Benchmark
+	public int slot() {
+		return slotCompiled.interpret(slotContext);
+	}
+
+	@Benchmark
+	public int dag() {
+		return dag.evaluate(context, values);
+	}
+
+	@Benchmark
+	public int flat() {
+		return flat.evaluateSequential(context);
+	}
+}
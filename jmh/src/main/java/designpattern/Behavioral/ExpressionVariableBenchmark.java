@@ -0,0 +1,21 @@
+package designpattern.Behavioral;
+
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * 변수 수 - 리프 2048 개 균형 트리에서 서로 다른 변수 개수(Context 해시 맵 크기) 만 바꿈
+ */
+public class ExpressionVariableBenchmark extends ExpressionPathBenchmark {
+	@Param({ "4", "64", "1024" })
+	public int variables;
+
+	@Override
+	protected Expression newTree() {
+		return InterpreterBenchmark.wideTree(2_048, variables);
+	}
+
+	@Override
+	protected int variables() {
+		return variables;
+	}
+}
@@ -0,0 +1,21 @@
+package designpattern.Behavioral;
+
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * 트리 폭 - 리프가 width 개인 균형 트리(InterpreterBenchmark.wideTree), 변수 8 개
+ */
+public class ExpressionWidthBenchmark extends ExpressionPathBenchmark {
+	@Param({ "64", "1024", "16384" })
+	public int width;
+
+	@Override
+	protected Expression newTree() {
+		return InterpreterBenchmark.wideTree(width, variables());
+	}
+
+	@Override
+	protected int variables() {
+		return 8;
+	}
+}
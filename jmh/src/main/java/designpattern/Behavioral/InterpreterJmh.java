@@ -0,0 +1,34 @@
+package designpattern.Behavioral;
+
+import java.util.Arrays;
+
+import org.openjdk.jmh.Main;
+
+/**
+ * benchmarks.jar 실행 진입점 - org.openjdk.jmh.Main 과 같은 인자를 받고, -prof 가 없으면 GC 프로파일러(-prof gc) 를 붙임
+ *
+ * 예)
+ *  - java -jar target/benchmarks.jar                       : 전체
+ *  - java -jar target/benchmarks.jar -l                    : 목록
+ *  - java -jar target/benchmarks.jar ExpressionDepth -p depth=1024
+ *  - java -jar target/benchmarks.jar -rf csv -rff jmh.csv  : 결과를 저장해서 이전 결과와 비교(회귀 확인)
+ *
+ * 측정 항목
+ *  - ExpressionDepthBenchmark / ExpressionWidthBenchmark / ExpressionVariableBenchmark : Expression 평가 경로
+ *  - RoleSetBenchmark : ExpressionR 평가 경로
+ *  - BatchVectorBenchmark : 컬럼 평가 스칼라 루프 vs Vector API(mvn -B -Pvector package 로 빌드했을 때만)
+ */
+public class InterpreterJmh {
+
+	public static void main(String[] args) throws Exception {
+		if (Arrays.asList(args).contains("-prof")) {
+			Main.main(args);
+			return;
+		}
+		String[] withGc = new String[args.length + 2];
+		withGc[0] = "-prof";
+		withGc[1] = "gc";
+		System.arraycopy(args, 0, withGc, 2, args.length);
+		Main.main(withGc);
+	}
+}
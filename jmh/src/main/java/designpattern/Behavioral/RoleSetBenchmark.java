@@ -0,0 +1,77 @@
+package designpattern.Behavioral;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 권한 수 - 리프 64 개 규칙(InterpreterBenchmark.mixedRule) 을 가진 권한 개수만 바꿔서 평가 경로별로 측정(JMH)
+ *  - interpret : RoleContext(Set) 로 트리 순회(기준)
+ *  - program / bdd : RoleProgram 비트 연산 명령, RoleBdd 결정 그래프(BitsetRoleContext)
+ *  - adaptive : AdaptiveRuleOptimizer 로 감싼 규칙
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class RoleSetBenchmark {
+	@Param({ "1", "16", "256", "4096" })
+	public int roles;
+
+	private ExpressionR rule;
+	private ExpressionR adaptive;
+	private RoleContext context;
+	private RoleProgram program;
+	private RoleBdd bdd;
+	private BitsetRoleContext bitset;
+
+	@Setup
+	public void setUp() {
+		rule = InterpreterBenchmark.mixedRule(64, 32);
+		Set<String> roleSet = InterpreterBenchmark.roleSet(roles, 8_192);
+		RoleDictionary dictionary = new RoleDictionary();
+		program = RoleProgram.compile(rule, dictionary);
+		bdd = RoleBdd.compile(rule, dictionary);
+		adaptive = AdaptiveRuleOptimizer.wrap(rule);
+		context = new RoleContext(roleSet);
+		bitset = dictionary.context(roleSet);
+
+		boolean expected = rule.interpret(context);
+		if (program.evaluate(bitset) != expected || bdd.evaluate(bitset) != expected || adaptive.interpret(context) != expected) {
+			throw new IllegalStateException("roles=" + roles + " 결과 불일치");
+		}
+	}
+
+	@Benchmark
+	public boolean interpret() {
+		return rule.interpret(context);
+	}
+
+	@Benchmark
+	public boolean program() {
+		return program.evaluate(bitset);
+	}
+
+	@Benchmark
+	public boolean bdd() {
+		return bdd.evaluate(bitset);
+	}
+
+	@Benchmark
+	public boolean adaptive() {
+		return adaptive.interpret(context);
+	}
+}
@@ -0,0 +1,65 @@
+package designpattern.Behavioral;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 컬럼 평가 - BatchEvaluator(스칼라 루프, C2 자동 벡터화) vs VectorBatchEvaluator(Vector API) (JMH, vector 프로파일)
+ *  - 수식은 덧셈 / 뺄셈 / 곱셈만(나눗셈은 두 경로가 같은 스칼라 루프)
+ *  - 측정 전에 두 경로의 결과가 행마다 같은지 확인
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@State(Scope.Benchmark)
+public class BatchVectorBenchmark {
+	@Param({ "1024", "65536" })
+	public int rows;
+
+	private Expression tree;
+	private Map<String, int[]> columns;
+
+	@Setup
+	public void setUp() {
+		tree = ExpressionParser.parse("(x0 + 3) * x1 - x2 * x3 + (x0 - x1) * 7");
+		columns = new HashMap<>();
+		for (int v = 0; v < 4; v++) {
+			int[] column = new int[rows];
+			for (int i = 0; i < rows; i++) {
+				column[i] = (i * 31 + v) % 1000 + 1;
+			}
+			columns.put(InterpreterBenchmark.variableName(v), column);
+		}
+
+		int[] expected = BatchEvaluator.evaluate(tree, columns, rows);
+		int[] actual = VectorBatchEvaluator.evaluate(tree, columns, rows);
+		for (int i = 0; i < rows; i++) {
+			InterpreterBenchmark.check("vector row " + i, expected[i], actual[i]);
+		}
+	}
+
+	@Benchmark
+	public int[] scalar() {
+		return BatchEvaluator.evaluate(tree, columns, rows);
+	}
+
+	@Benchmark
+	public int[] vector() {
+		return VectorBatchEvaluator.evaluate(tree, columns, rows);
+	}
+}
@@ -0,0 +1,212 @@
+package designpattern.Behavioral;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * BatchEvaluator 의 덧셈 / 뺄셈 / 곱셈 루프를 Vector API(jdk.incubator.vector) 로 직접 쓴 버전
+ *  - 본 코드(../src) 는 빌드 설정이 없어 인큐베이터 모듈을 쓸 수 없으므로 JMH 모듈의 vector 프로파일에만 둠
+ *      mvn -B -Pvector package 로 빌드, 실행 JVM 에도 --add-modules jdk.incubator.vector 필요
+ *  - BatchEvaluator 의 스칼라 루프가 C2 자동 벡터화로 같은 속도가 나는지 비교하는 용도
+ *
+ * 나눗셈(정수 나눗셈 SIMD 명령 없음) 과 모르는 노드는 그 부분 트리를 BatchEvaluator 에 맡김
+ * 결과와 예외는 BatchEvaluator 와 같음
+ */
+public class VectorBatchEvaluator {
+	private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+
+	private VectorBatchEvaluator() {
+	}
+
+	public static int[] evaluate(Expression expression, Map<String, int[]> columns, int rows) {
+		Column result = evaluateColumn(expression, columns, rows);
+		if (result.isConstant()) {
+			int[] values = new int[rows];
+			Arrays.fill(values, result.constant);
+			return values;
+		}
+		return result.owned ? result.values : result.values.clone();
+	}
+
+	private static Column evaluateColumn(Expression expression, Map<String, int[]> columns, int rows) {
+		if (expression instanceof NumberExpression number) {
+			return Column.constant(number.getNumber());
+		}
+		if (expression instanceof PlusExpression plus) {
+			return plus(evaluateColumn(plus.getLeft(), columns, rows), evaluateColumn(plus.getRight(), columns, rows), rows);
+		}
+		if (expression instanceof MinusExpression minus) {
+			return minus(evaluateColumn(minus.getLeft(), columns, rows), evaluateColumn(minus.getRight(), columns, rows), rows);
+		}
+		if (expression instanceof MultiplyExpression multiply) {
+			return multiply(evaluateColumn(multiply.getLeft(), columns, rows), evaluateColumn(multiply.getRight(), columns, rows), rows);
+		}
+		if (expression instanceof VariableExpression variable) {
+			return Column.input(BatchEvaluator.column(columns, variable.getName(), rows));
+		}
+		if (expression instanceof SlotVariableExpression variable) {
+			return Column.input(BatchEvaluator.column(columns, variable.getName(), rows));
+		}
+		return Column.owned(BatchEvaluator.evaluate(expression, columns, rows));
+	}
+
+	/*
+	 * 연산 / 피연산자 모양(컬럼, 상수) 마다 루프를 따로 둠
+	 *  - 루프 안에서 연산이나 모양을 고르면 C2 가 IntVector 를 레지스터로 풀지 못하고 매 반복 객체를 만듦
+	 *  - SPECIES 길이 단위로 계산하고 남은 행은 스칼라로
+	 */
+
+	private static Column plus(Column left, Column right, int rows) {
+		if (left.isConstant() && right.isConstant()) {
+			return Column.constant(left.constant + right.constant);
+		}
+		int[] out = target(left, right, rows);
+		if (right.isConstant()) {
+			add(left.values, right.constant, out, rows);
+		} else if (left.isConstant()) {
+			add(right.values, left.constant, out, rows);
+		} else {
+			add(left.values, right.values, out, rows);
+		}
+		return Column.owned(out);
+	}
+
+	private static Column minus(Column left, Column right, int rows) {
+		if (left.isConstant() && right.isConstant()) {
+			return Column.constant(left.constant - right.constant);
+		}
+		int[] out = target(left, right, rows);
+		if (right.isConstant()) {
+			add(left.values, -right.constant, out, rows);
+		} else if (left.isConstant()) {
+			subtractFrom(left.constant, right.values, out, rows);
+		} else {
+			subtract(left.values, right.values, out, rows);
+		}
+		return Column.owned(out);
+	}
+
+	private static Column multiply(Column left, Column right, int rows) {
+		if (left.isConstant() && right.isConstant()) {
+			return Column.constant(left.constant * right.constant);
+		}
+		int[] out = target(left, right, rows);
+		if (right.isConstant()) {
+			multiply(left.values, right.constant, out, rows);
+		} else if (left.isConstant()) {
+			multiply(right.values, left.constant, out, rows);
+		} else {
+			multiply(left.values, right.values, out, rows);
+		}
+		return Column.owned(out);
+	}
+
+	private static void add(int[] a, int[] b, int[] out, int rows) {
+		int i = 0;
+		for (int bound = SPECIES.loopBound(rows); i < bound; i += SPECIES.length()) {
+			IntVector.fromArray(SPECIES, a, i).add(IntVector.fromArray(SPECIES, b, i)).intoArray(out, i);
+		}
+		for (; i < rows; i++) {
+			out[i] = a[i] + b[i];
+		}
+	}
+
+	// int 덧셈은 2 의 보수로 감싸므로 a - c 는 a + (-c) 와 같음(c 가 MIN_VALUE 여도)
+	private static void add(int[] a, int c, int[] out, int rows) {
+		IntVector constant = IntVector.broadcast(SPECIES, c);
+		int i = 0;
+		for (int bound = SPECIES.loopBound(rows); i < bound; i += SPECIES.length()) {
+			IntVector.fromArray(SPECIES, a, i).add(constant).intoArray(out, i);
+		}
+		for (; i < rows; i++) {
+			out[i] = a[i] + c;
+		}
+	}
+
+	private static void subtract(int[] a, int[] b, int[] out, int rows) {
+		int i = 0;
+		for (int bound = SPECIES.loopBound(rows); i < bound; i += SPECIES.length()) {
+			IntVector.fromArray(SPECIES, a, i).sub(IntVector.fromArray(SPECIES, b, i)).intoArray(out, i);
+		}
+		for (; i < rows; i++) {
+			out[i] = a[i] - b[i];
+		}
+	}
+
+	private static void subtractFrom(int c, int[] b, int[] out, int rows) {
+		IntVector constant = IntVector.broadcast(SPECIES, c);
+		int i = 0;
+		for (int bound = SPECIES.loopBound(rows); i < bound; i += SPECIES.length()) {
+			constant.sub(IntVector.fromArray(SPECIES, b, i)).intoArray(out, i);
+		}
+		for (; i < rows; i++) {
+			out[i] = c - b[i];
+		}
+	}
+
+	private static void multiply(int[] a, int[] b, int[] out, int rows) {
+		int i = 0;
+		for (int bound = SPECIES.loopBound(rows); i < bound; i += SPECIES.length()) {
+			IntVector.fromArray(SPECIES, a, i).mul(IntVector.fromArray(SPECIES, b, i)).intoArray(out, i);
+		}
+		for (; i < rows; i++) {
+			out[i] = a[i] * b[i];
+		}
+	}
+
+	private static void multiply(int[] a, int c, int[] out, int rows) {
+		IntVector constant = IntVector.broadcast(SPECIES, c);
+		int i = 0;
+		for (int bound = SPECIES.loopBound(rows); i < bound; i += SPECIES.length()) {
+			IntVector.fromArray(SPECIES, a, i).mul(constant).intoArray(out, i);
+		}
+		for (; i < rows; i++) {
+			out[i] = a[i] * c;
+		}
+	}
+
+	// 자식의 중간 결과 배열이 있으면 그 자리에 덮어씀
+	private static int[] target(Column left, Column right, int rows) {
+		if (left.owned) {
+			return left.values;
+		}
+		if (right.owned) {
+			return right.values;
+		}
+		return new int[rows];
+	}
+
+	/**
+	 * BatchEvaluator.Column 과 같음 - 상수 / 입력(수정 금지) / 이 평가에서 만든 배열
+	 */
+	private static final class Column {
+		private final int[] values;
+		private final int constant;
+		private final boolean owned;
+
+		private Column(int[] values, int constant, boolean owned) {
+			this.values = values;
+			this.constant = constant;
+			this.owned = owned;
+		}
+
+		static Column constant(int value) {
+			return new Column(null, value, false);
+		}
+
+		static Column input(int[] values) {
+			return new Column(values, 0, false);
+		}
+
+		static Column owned(int[] values) {
+			return new Column(values, 0, true);
+		}
+
+		boolean isConstant() {
+			return values == null;
+		}
+	}
+}
@@ -0,0 +1,132 @@
+package architecture;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.IntConsumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * architecture 패키지 벤치마크(LayeredBenchmark, MVCBenchmark) 가 함께 쓰는 측정 도구
+ *  - 출력 버리기, 동시 실행, 백분위, 임시 디렉터리
+ */
+final class BenchmarkSupport {
+
+	private BenchmarkSupport() {
+	}
+
+	/**
+	 * body 가 System.out 에 쓰는 출력(저장소의 "회원가입 완료" 등) 을 버리고 실행
+	 */
+	static void quietly(Runnable body) {
+		PrintStream out = System.out;
+		System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+		try {
+			body.run();
+		} finally {
+			System.setOut(out);
+		}
+	}
+
+	/**
+	 * threads 개 스레드가 동시에 body(스레드 번호) 실행, 모두 끝날 때까지 걸린 시간(저장소 출력은 버림)
+	 */
+	static long runConcurrently(int threads, IntConsumer body) {
+		long[] elapsed = new long[1];
+		RuntimeException[] failure = new RuntimeException[1];
+		quietly(() -> {
+			CountDownLatch start = new CountDownLatch(1);
+			List<Thread> workers = new ArrayList<>();
+			for (int t = 0; t < threads; t++) {
+				int thread = t;
+				Thread worker = new Thread(() -> {
+					awaitQuietly(start);
+					try {
+						body.accept(thread);
+					} catch (RuntimeException e) {
+						failure[0] = e;
+					}
+				});
+				worker.start();
+				workers.add(worker);
+			}
+			long begin = System.nanoTime();
+			start.countDown();
+			for (Thread worker : workers) {
+				joinQuietly(worker);
+			}
+			elapsed[0] = System.nanoTime() - begin;
+		});
+		if (failure[0] != null) {
+			throw failure[0];
+		}
+		return elapsed[0];
+	}
+
+	static void awaitQuietly(CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	static void joinQuietly(Thread thread) {
+		try {
+			thread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	static void printPercentiles(String label, long[] latencies) {
+		long[] sorted = latencies.clone();
+		Arrays.sort(sorted);
+		System.out.printf("%-32s p50 %7d ns  p90 %7d ns  p99 %8d ns  p99.9 %8d ns  max %9d ns%n", label,
+				percentile(sorted, 50), percentile(sorted, 90), percentile(sorted, 99), percentile(sorted, 99.9),
+				sorted[sorted.length - 1]);
+	}
+
+	static long percentile(long[] sorted, double percent) {
+		int index = (int) Math.ceil(percent / 100 * sorted.length) - 1;
+		return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+	}
+
+	static Path temporaryDirectory() {
+		try {
+			return Files.createTempDirectory("architecture-benchmark");
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	static void deleteDirectory(Path directory) {
+		if (!Files.exists(directory)) {
+			return;
+		}
+		try (Stream<Path> files = Files.walk(directory)) {
+			for (Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+				Files.delete(file);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	static long fileSize(Path file) {
+		try {
+			return Files.size(file);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
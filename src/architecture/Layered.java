@@ -45,88 +45,24 @@ public class Layered {
         ui.startLogin();
         ui.changeDBRepo();
         ui.startLogin();
+        // 이관이 끝나고 DB 파일에 내려간 뒤에 종료
+        ui.close();
         
         sc.close();
 	}
 }
 /**
- * Presentation Layer
- *  - 사용자와의 인터페이스(UI), 요청 수신, 응답 처리
- * 
- * Service (Business) Layer
- *  - 도메인 로직 처리, 트랜잭션, 유스케이스
- * 
- * Repository (Persistence) Layer
- *  - 데이터 저장, 조회, DB 접근 처리
+ * 계층 구성
+ *  - Presentation Layer : LayeredUI
+ *  - Service (Business) Layer : LayeredService
+ *  - Repository (Persistence) Layer : LayeredRepository
  */
 
-class LayeredUser {
-	private String username;
-	private String password;
-	
-	public LayeredUser(String username, String password) {
-		this.username = username;
-		this.password = password;
-	}
-	
-	public String getUsername() {
-		return username;
-	}
-	
-	public String getPassword() {
-		return password;
-	}
-}
-
 // 수정 후
-class LayeredService {
-	private LayeredRepository repository;
-	
-	public LayeredService() {
-		repository = new LayeredInMemoryRepository();
-	}
-	
-	public void addUser(String username, String password) {
-		repository.save(username, password);
-	}
-	
-	public boolean loginProcess(String username, String password) {
-		return repository.login(username, password);
-	}
-	
-	public void changeRepository(LayeredRepoType type) {
-		switch (type) {
-		case MEMORY: this.repository = new LayeredInMemoryRepository(); break;
-		case DB: this.repository = new LayeredDBRepository(); break;
-		default:
-			throw new IllegalArgumentException("Unexpected value: " + type);
-		}
-	}
-}
-
-class LayeredController {
-	private LayeredService layeredService;
-	
-	public LayeredController() {
-		layeredService = new LayeredService();
-	}
-	
-	public void addUser(String username, String password) {
-		layeredService.addUser(username, password);
-	}
-	
-	public boolean loginProcess(String username, String password) {
-		return layeredService.loginProcess(username, password);
-	}
-	
-	public void changeRepository(LayeredRepoType type) {
-		layeredService.changeRepository(type);
-	}
-}
-enum LayeredRepoType {
-	MEMORY, DB
-}
-
+/**
+ * Presentation Layer
+ *  - 사용자와의 인터페이스(UI), 요청 수신, 응답 처리
+ */
 class LayeredUI {
 	private LayeredController controller;
 	private Scanner scan;
@@ -146,6 +82,10 @@ class LayeredUI {
 		System.out.println("DB 저장 방식으로 변경");
 	}
 	
+	public void close() {
+		controller.close();
+	}
+	
 	public void startRegister() {
 		System.out.println("회원가입 시작");
         System.out.print("아이디를 입력하세요: ");
@@ -173,39 +113,3 @@ class LayeredUI {
         System.out.println("로그인 실패");
 	}
 }
-
-// GPT 의 피드백 - Repository 계층 추가
-interface LayeredRepository {
-	void save(String username, String password);
-	boolean login(String username, String password);
-}
-
-class LayeredInMemoryRepository implements LayeredRepository {
-	private List<LayeredUser> userList = new ArrayList<LayeredUser>();
-
-	@Override
-	public void save(String username, String password) {
-		userList.add(new LayeredUser(username, password));
-		System.out.println("Memory : 회원가입 완료");
-	}
-
-	@Override
-	public boolean login(String username, String password) {
-		return userList.stream().anyMatch(user -> user.getUsername().equals(username) && user.getPassword().equals(password));
-	}
-}
-
-class LayeredDBRepository implements LayeredRepository {
-	private List<LayeredUser> userList = new ArrayList<LayeredUser>();
-
-	@Override
-	public void save(String username, String password) {
-		userList.add(new LayeredUser(username, password));
-		System.out.println("DB : 회원가입 완료");
-	}
-
-	@Override
-	public boolean login(String username, String password) {
-		return userList.stream().anyMatch(user -> user.getUsername().equals(username) && user.getPassword().equals(password));
-	}
-}
@@ -0,0 +1,186 @@
+package architecture;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * 키별 슬라이딩 윈도 카운터 - 락 없이 CAS 만 사용, 메모리는 슬롯 수로 고정
+ *
+ *  - 윈도를 BUCKETS 개의 시간 칸으로 나눔, 칸 하나 = [시간 칸 번호 44 비트][횟수 20 비트] 를 long 하나에
+ *      올릴 때 칸 번호가 지금과 다르면(한 바퀴 전 값) 1 부터 다시 셈 -> 오래된 시도는 저절로 빠짐
+ *      합계는 최근 BUCKETS 칸 안의 값만 더함(칸 단위라서 윈도 끝이 칸 하나만큼 흔들림)
+ *  - 슬롯 = [키 해시][칸 BUCKETS 개], 해시 위치에서 PROBES 칸까지 찾음
+ *      빈 슬롯이나 모든 칸이 만료된 슬롯은 새 키가 가져감(따로 지우는 스레드가 필요 없음)
+ *      찾은 칸이 모두 살아 있으면 합계가 가장 작은 슬롯을 빼앗음(표가 가득 찬 공격 중에도 크기 고정)
+ *      합계가 pinned 이상인 슬롯(이미 막힌 키) 은 빼앗지 않음 -> 다른 키로 표를 채워도 막힌 키가 풀리지 않음
+ *      빼앗을 슬롯이 없으면 UNTRACKED(세지 못함) - 어떻게 막을지는 호출하는 쪽이 정함
+ *      한도 아래의 합계는 표가 가득 차면 빼앗겨 사라질 수 있음(빼앗는 순간 한도에 닿은 키 포함)
+ *  - 해시는 카운터마다 무작위 키를 쓰는 SipHash(LayeredKeyedHash)
+ *      키를 모르면 같은 탐색 범위로 모이는 username 을 미리 만들 수 없음
+ *      64 비트 해시가 같은 다른 키는 같은 카운터를 씀(확률이 무시할 만큼 작음)
+ */
+class LayeredAttemptCounter {
+	static final int BUCKETS = 8;
+	private static final int PROBES = 4;
+	private static final int STRIDE = 1 + BUCKETS;
+	private static final int COUNT_BITS = 20;
+	private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+	private static final long EMPTY = 0;
+	// 슬롯을 얻지 못해 세지 못함
+	static final int UNTRACKED = -1;
+
+	private final AtomicLongArray table;
+	private final int mask;
+	private final long bucketNanos;
+	private final LongSupplier clock;
+	private final int pinned;
+	private final LayeredKeyedHash keyedHash = LayeredKeyedHash.random();
+
+	/**
+	 * pinned : 합계가 이 값 이상인 슬롯은 새 키에게 빼앗기지 않음(보통 한도)
+	 */
+	LayeredAttemptCounter(int slots, Duration window, LongSupplier clock, int pinned) {
+		if (slots <= 0 || Integer.bitCount(slots) != 1 || (long) slots * STRIDE > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("슬롯 수는 2 의 거듭제곱이어야 합니다 : " + slots);
+		}
+		if (window.isNegative() || window.isZero()) {
+			throw new IllegalArgumentException("window 는 0 보다 커야 합니다.");
+		}
+		this.table = new AtomicLongArray(slots * STRIDE);
+		this.mask = slots - 1;
+		this.bucketNanos = Math.max(1, window.toNanos() / BUCKETS);
+		this.clock = clock;
+		this.pinned = pinned;
+	}
+
+	/**
+	 * 한 번 세고 최근 윈도의 합계 반환, 슬롯을 얻지 못하면 세지 않고 UNTRACKED
+	 */
+	int record(String key) {
+		return record(key, epoch());
+	}
+
+	int record(String key, long epoch) {
+		long hash = hash(key);
+		int slot = claim(hash, epoch);
+		if (slot < 0) {
+			return UNTRACKED;
+		}
+		int index = slot * STRIDE + 1 + (int) (epoch % BUCKETS);
+		while (true) {
+			long current = table.get(index);
+			long next = (current >>> COUNT_BITS) == epoch
+					? Math.min(current + 1, (epoch << COUNT_BITS) | COUNT_MASK)
+					: (epoch << COUNT_BITS) | 1;
+			if (table.compareAndSet(index, current, next)) {
+				break;
+			}
+		}
+		return sum(slot, epoch);
+	}
+
+	int count(String key) {
+		long hash = hash(key);
+		long epoch = epoch();
+		for (int probe = 0; probe < PROBES; probe++) {
+			int slot = (int) (hash + probe) & mask;
+			if (table.get(slot * STRIDE) == hash) {
+				return sum(slot, epoch);
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * record(key, epoch) 로 올린 한 번을 되돌림 - 그 칸이 이미 다음 바퀴로 넘어갔거나 슬롯을 빼앗겼으면 그대로 둠
+	 */
+	void release(String key, long epoch) {
+		long hash = hash(key);
+		for (int probe = 0; probe < PROBES; probe++) {
+			int slot = (int) (hash + probe) & mask;
+			if (table.get(slot * STRIDE) == hash) {
+				int index = slot * STRIDE + 1 + (int) (epoch % BUCKETS);
+				while (true) {
+					long current = table.get(index);
+					if ((current >>> COUNT_BITS) != epoch || (current & COUNT_MASK) == 0
+							|| table.compareAndSet(index, current, current - 1)) {
+						return;
+					}
+				}
+			}
+		}
+	}
+
+	void reset(String key) {
+		long hash = hash(key);
+		for (int probe = 0; probe < PROBES; probe++) {
+			int slot = (int) (hash + probe) & mask;
+			if (table.get(slot * STRIDE) == hash) {
+				clear(slot);
+				return;
+			}
+		}
+	}
+
+	// key 의 슬롯, 없으면 빈 / 만료된 / 가장 작은 슬롯을 가져옴, 모두 pinned 이상이면 -1
+	private int claim(long hash, long epoch) {
+		while (true) {
+			int victim = -1;
+			long victimTag = 0;
+			int victimSum = Integer.MAX_VALUE;
+			for (int probe = 0; probe < PROBES; probe++) {
+				int slot = (int) (hash + probe) & mask;
+				long tag = table.get(slot * STRIDE);
+				if (tag == hash) {
+					return slot;
+				}
+				int sum = tag == EMPTY ? -1 : sum(slot, epoch);
+				if (sum < victimSum && sum < pinned) {
+					victim = slot;
+					victimTag = tag;
+					victimSum = sum;
+				}
+			}
+			if (victim < 0) {
+				return -1;
+			}
+			if (table.compareAndSet(victim * STRIDE, victimTag, hash)) {
+				// 이전 키의 칸을 비움 - 그 사이 이전 키로 올린 값이 섞일 수 있지만 카운터라서 근사로 충분
+				clear(victim);
+				return victim;
+			}
+			// 다른 스레드가 먼저 가져감 - 다시 찾음
+		}
+	}
+
+	private int sum(int slot, long epoch) {
+		int base = slot * STRIDE + 1;
+		long total = 0;
+		for (int bucket = 0; bucket < BUCKETS; bucket++) {
+			long value = table.get(base + bucket);
+			long age = epoch - (value >>> COUNT_BITS);
+			if (age >= 0 && age < BUCKETS) {
+				total += value & COUNT_MASK;
+			}
+		}
+		return (int) Math.min(Integer.MAX_VALUE, total);
+	}
+
+	private void clear(int slot) {
+		int base = slot * STRIDE + 1;
+		for (int bucket = 0; bucket < BUCKETS; bucket++) {
+			table.set(base + bucket, 0);
+		}
+	}
+
+	long epoch() {
+		// 44 비트 안에서만 쓰므로 nanoTime 이 음수여도 양수로 맞춤
+		return (clock.getAsLong() / bucketNanos) & ((1L << (64 - COUNT_BITS)) - 1);
+	}
+
+	private long hash(String key) {
+		long h = keyedHash.hash(key);
+		return h == EMPTY ? 1 : h;
+	}
+}
@@ -0,0 +1,1002 @@
+package architecture;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.BufferedWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Consumer;
+import java.util.function.IntUnaryOperator;
+import java.util.function.Supplier;
+
+/**
+ * 계층형 아키텍처 저장소 / 서비스 성능 측정
+ *
+ * 빌드 파일이 없어 JMH 대신 직접 측정
+ *  - 워밍업 뒤 요청 하나하나의 시간을 nanoTime 으로 재서 백분위(p50 / p99 ...) 출력
+ *  - 저장소는 가입할 때마다 System.out 에 출력하므로 데이터를 채우는 동안 출력을 버림
+ *
+ * 인자로 실행할 항목과 사용자 수를 고를 수 있음
+ *  - 예) java architecture.LayeredBenchmark login 10000 1000000
+ *  - 1000 만 명은 힙이 3GB 이상 필요(-Xmx3g), 모자라면 그 크기는 건너뜀
+ */
+public class LayeredBenchmark {
+	private static final int WARMUP_REQUESTS = 200_000;
+	private static final int MEASURE_REQUESTS = 1_000_000;
+	private static final int[] DEFAULT_USERS = { 10_000, 1_000_000, 10_000_000 };
+
+	static volatile long sink;
+
+	public static void main(String[] args) {
+		Map<String, Consumer<int[]>> benchmarks = new LinkedHashMap<>();
+		benchmarks.put("login", LayeredBenchmark::loginBenchmark);
+		benchmarks.put("db", LayeredBenchmark::dbBenchmark);
+		benchmarks.put("group", LayeredBenchmark::groupCommitBenchmark);
+		benchmarks.put("migrate", LayeredBenchmark::migrationBenchmark);
+		benchmarks.put("http", LayeredBenchmark::httpBenchmark);
+		benchmarks.put("shard", LayeredBenchmark::shardBenchmark);
+		benchmarks.put("hash", LayeredBenchmark::hashBenchmark);
+		benchmarks.put("import", LayeredBenchmark::importBenchmark);
+		benchmarks.put("throttle", LayeredBenchmark::throttleBenchmark);
+
+		List<String> selected = new ArrayList<>();
+		List<Integer> sizes = new ArrayList<>();
+		for (String arg : args) {
+			if (arg.chars().allMatch(Character::isDigit)) {
+				sizes.add(Integer.parseInt(arg));
+			} else {
+				selected.add(arg);
+			}
+		}
+		if (selected.isEmpty()) {
+			selected.addAll(benchmarks.keySet());
+		}
+		int[] users = sizes.isEmpty() ? DEFAULT_USERS : sizes.stream().mapToInt(Integer::intValue).toArray();
+		for (String name : selected) {
+			Consumer<int[]> benchmark = benchmarks.get(name);
+			if (benchmark == null) {
+				throw new IllegalArgumentException("알 수 없는 벤치마크 : " + name + " " + benchmarks.keySet());
+			}
+			benchmark.accept(users);
+		}
+	}
+
+	// 리스트 순회 login vs 해시 인덱스 login
+	static void loginBenchmark(int[] sizes) {
+		System.out.println("[login latency] timer overhead " + timerOverhead() + " ns 포함");
+		for (int users : sizes) {
+			if (users <= 10_000) {
+				benchmarkLogin("list scan", users, ListScanRepository::new);
+			}
+			benchmarkLogin("hash index", users, LayeredInMemoryRepository::new);
+		}
+	}
+
+	private static void benchmarkLogin(String name, int users, Supplier<LayeredRepository> factory) {
+		LayeredRepository repository;
+		try {
+			repository = populate(factory.get(), users);
+		} catch (OutOfMemoryError e) {
+			System.out.printf("%-32s 메모리 부족으로 건너뜀(-Xmx 를 늘려서 실행)%n", name + " users=" + users);
+			return;
+		}
+		Random random = new Random(users);
+		// 90% 정상 로그인, 5% 비밀번호 틀림, 5% 없는 아이디
+		int requests = users <= 10_000 && repository instanceof ListScanRepository ? MEASURE_REQUESTS / 10 : MEASURE_REQUESTS;
+		long[] latencies = new long[requests];
+		for (int i = 0; i < WARMUP_REQUESTS; i++) {
+			login(repository, random, users);
+		}
+		for (int i = 0; i < requests; i++) {
+			long start = System.nanoTime();
+			login(repository, random, users);
+			latencies[i] = System.nanoTime() - start;
+		}
+		BenchmarkSupport.printPercentiles(name + " users=" + users, latencies);
+	}
+
+	private static void login(LayeredRepository repository, Random random, int users) {
+		int id = random.nextInt(users);
+		int kind = random.nextInt(20);
+		boolean success;
+		if (kind == 0) {
+			success = repository.login(username(id), "wrong");
+		} else if (kind == 1) {
+			success = repository.login("missing" + id, password(id));
+		} else {
+			success = repository.login(username(id), password(id));
+		}
+		sink += success ? 1 : 0;
+	}
+
+	// 파일 기반 저장소 - fsync 묶음 크기별 쓰기 처리량, 인덱스 매핑 재시작 vs 로그 전체 재생
+	static void dbBenchmark(int[] sizes) {
+		System.out.println("[LayeredDBRepository]");
+		Path directory = BenchmarkSupport.temporaryDirectory();
+		try {
+			// 가입마다 fsync 는 느리므로 적은 수로만
+			benchmarkDbWrite(directory, Math.min(10_000, sizes[0]), 1);
+			for (int users : sizes) {
+				benchmarkDbWrite(directory, users, 1_000);
+				benchmarkDbWrite(directory, users, 100_000);
+				benchmarkColdStart(directory, users);
+			}
+		} finally {
+			BenchmarkSupport.deleteDirectory(directory);
+		}
+		checkUnsyncedSlots();
+		checkCorruptLog();
+	}
+
+	/**
+	 * 죽기 전에 인덱스 슬롯만 디스크에 내려가고 로그 바이트는 없는 경우 - 다시 열면 그 슬롯을 쓰지 않는지 확인
+	 *  - 남은 슬롯은 나중에 같은 위치에 쓴 다른 레코드를 가리킴(조회는 username 을 비교하므로 결과는 같지만 슬롯이 쌓임)
+	 *  - 열린 저장소의 파일을 복사하고 로그를 sync 한 길이로 잘라서 만듦(로그 길이 == committed)
+	 */
+	static void checkUnsyncedSlots() {
+		Path directory = BenchmarkSupport.temporaryDirectory();
+		Path crashed = BenchmarkSupport.temporaryDirectory();
+		try {
+			try (LayeredLogStore store = LayeredLogStore.open(directory, Integer.MAX_VALUE)) {
+				store.append("kept", "secret");
+				store.sync();
+				long synced = Files.size(directory.resolve(LayeredLogStore.LOG_FILE));
+				store.append("lost", "secret");
+				// 쓰기 버퍼를 파일로 내려서 인덱스와 로그 모두 페이지 캐시에 있게 함
+				store.forEach(user -> { });
+				for (String file : new String[] { LayeredLogStore.LOG_FILE, LayeredLogStore.INDEX_FILE }) {
+					Files.copy(directory.resolve(file), crashed.resolve(file));
+				}
+				try (FileChannel log = FileChannel.open(crashed.resolve(LayeredLogStore.LOG_FILE), StandardOpenOption.WRITE)) {
+					log.truncate(synced);
+				}
+			}
+			try (LayeredLogStore store = LayeredLogStore.open(crashed, Integer.MAX_VALUE)) {
+				// 같은 위치에 다른 레코드를 써도 lost 의 슬롯이 그 레코드를 가리키면 안 됨
+				store.append("other", "secret");
+				if (store.find("kept") == null || store.find("lost") != null || store.find("other") == null) {
+					throw new IllegalStateException("sync 하지 못한 슬롯이 남았습니다.");
+				}
+			}
+			System.out.println("unsynced slot check : committed 이후 슬롯은 로그 길이와 관계없이 버림");
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			BenchmarkSupport.deleteDirectory(directory);
+			BenchmarkSupport.deleteDirectory(crashed);
+		}
+	}
+
+	/**
+	 * 인덱스 없이 처음부터 읽을 때 - 로그 중간이 깨졌으면 뒤를 잘라내지 않고 알리는지, 쓰다 만 꼬리는 잘라내는지 확인
+	 */
+	static void checkCorruptLog() {
+		Path directory = BenchmarkSupport.temporaryDirectory();
+		Path log = directory.resolve(LayeredLogStore.LOG_FILE);
+		Path index = directory.resolve(LayeredLogStore.INDEX_FILE);
+		try {
+			try (LayeredLogStore store = LayeredLogStore.open(directory, Integer.MAX_VALUE)) {
+				for (int i = 0; i < 3; i++) {
+					store.append(username(i), password(i));
+				}
+			}
+			byte[] original = Files.readAllBytes(log);
+			byte[] corrupt = original.clone();
+			corrupt[corrupt.length / 2] ^= 1;
+			Files.write(log, corrupt);
+			Files.delete(index);
+			try {
+				LayeredLogStore.open(directory, Integer.MAX_VALUE).close();
+				throw new IllegalStateException("중간이 깨진 로그를 열었습니다.");
+			} catch (IllegalStateException expected) {
+				if (!expected.getMessage().startsWith("로그가 손상")) {
+					throw expected;
+				}
+			}
+			if (Files.size(log) != original.length) {
+				throw new IllegalStateException("깨진 로그를 잘라냈습니다.");
+			}
+			// 쓰다 만 꼬리 : 레코드 길이만 쓰고 죽음
+			byte[] torn = Arrays.copyOf(original, original.length + 4);
+			torn[original.length + 3] = 64;
+			Files.write(log, torn);
+			Files.deleteIfExists(index);
+			try (LayeredLogStore store = LayeredLogStore.open(directory, Integer.MAX_VALUE)) {
+				if (store.find(username(2)) == null || Files.size(log) != original.length) {
+					throw new IllegalStateException("쓰다 만 꼬리를 정리하지 못했습니다.");
+				}
+			}
+			System.out.println("corrupt log check : 중간 손상은 예외, 쓰다 만 꼬리는 잘라냄");
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			BenchmarkSupport.deleteDirectory(directory);
+		}
+	}
+
+	private static void benchmarkDbWrite(Path directory, int users, int syncEvery) {
+		BenchmarkSupport.deleteDirectory(directory);
+		long start = System.nanoTime();
+		try (LayeredDBRepository repository = new LayeredDBRepository(directory, syncEvery)) {
+			populate(repository, users);
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+		System.out.printf("%-40s %,12.0f users/s  log %,d MB  index %,d MB%n",
+				"write users=" + users + " syncEvery=" + syncEvery, users / seconds,
+				BenchmarkSupport.fileSize(directory.resolve(LayeredLogStore.LOG_FILE)) >> 20,
+				BenchmarkSupport.fileSize(directory.resolve(LayeredLogStore.INDEX_FILE)) >> 20);
+	}
+
+	// 직전 benchmarkDbWrite 가 만든 파일로 다시 시작
+	private static void benchmarkColdStart(Path directory, int users) {
+		try (LayeredDBRepository repository = new LayeredDBRepository(directory, 1_000)) {
+			LayeredLogStore store = repository.getStore();
+			checkLogins(repository, users);
+			System.out.printf("%-40s %,12.1f ms  (log tail replayed %d records)%n", "cold start users=" + users + " mapped index",
+					store.getRecoveryNanos() / 1e6, store.getRecoveredRecords());
+		}
+		try {
+			Files.delete(directory.resolve(LayeredLogStore.INDEX_FILE));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		try (LayeredDBRepository repository = new LayeredDBRepository(directory, 1_000)) {
+			LayeredLogStore store = repository.getStore();
+			checkLogins(repository, users);
+			System.out.printf("%-40s %,12.1f ms  (log replayed %d records)%n", "cold start users=" + users + " full replay",
+					store.getRecoveryNanos() / 1e6, store.getRecoveredRecords());
+		}
+	}
+
+	private static void checkLogins(LayeredRepository repository, int users) {
+		Random random = new Random(users);
+		for (int i = 0; i < 1_000; i++) {
+			int id = random.nextInt(users);
+			if (!repository.login(username(id), password(id)) || repository.login(username(id), "wrong")) {
+				throw new IllegalStateException("다시 시작한 뒤 로그인 결과 불일치 : " + username(id));
+			}
+		}
+	}
+
+	// 동시 가입 - 가입마다 fsync vs 그룹 커밋(묶음 크기 / 최대 대기 시간별)
+	static void groupCommitBenchmark(int[] sizes) {
+		System.out.println("[group commit] 모든 가입은 save 가 끝나면 디스크에 있음");
+		int registrations = Math.min(sizes[0], 20_000);
+		Path directory = BenchmarkSupport.temporaryDirectory();
+		try {
+			for (int threads : new int[] { 1, 4, 16, 64 }) {
+				// 가입마다 fsync 는 느리므로 적은 수로만
+				benchmarkConcurrentSave("fsync per save", directory, threads, Math.min(registrations, 5_000),
+						() -> new LayeredDBRepository(directory, 1));
+				benchmarkConcurrentSave("group batch=1024 wait=0", directory, threads, registrations,
+						() -> LayeredDBRepository.groupCommit(directory, 1_024, Duration.ZERO));
+				benchmarkConcurrentSave("group batch=16 wait=0", directory, threads, registrations,
+						() -> LayeredDBRepository.groupCommit(directory, 16, Duration.ZERO));
+				benchmarkConcurrentSave("group batch=1024 wait=200us", directory, threads, registrations,
+						() -> LayeredDBRepository.groupCommit(directory, 1_024, Duration.ofNanos(200_000)));
+			}
+		} finally {
+			BenchmarkSupport.deleteDirectory(directory);
+		}
+		checkFailedSync();
+	}
+
+	/**
+	 * sync 가 실패하면 그 뒤에 저장한 사용자가 조회되지 않는지 확인
+	 *  - interrupt 된 스레드가 fsync 하면 FileChannel 이 닫히므로 이것으로 sync 실패를 만듦
+	 *  - 채널이 닫혀서 파일을 읽는 조회는 실패하므로 sync 한 사용자는 다시 열어서 확인
+	 */
+	static void checkFailedSync() {
+		Path directory = BenchmarkSupport.temporaryDirectory();
+		try {
+			try (LayeredLogStore store = LayeredLogStore.open(directory, Integer.MAX_VALUE)) {
+				store.append("kept", "secret");
+				store.sync();
+				store.append("lost", "secret");
+				// 쓰기 버퍼를 파일로 내려서 fsync 만 실패하게 함
+				store.forEach(user -> { });
+				Thread.currentThread().interrupt();
+				try {
+					store.sync();
+					throw new IllegalStateException("닫힌 채널에 sync 가 성공했습니다.");
+				} catch (UncheckedIOException expected) {
+					Thread.interrupted();
+				}
+				if (store.find("lost") != null) {
+					throw new IllegalStateException("sync 하지 못한 사용자가 조회됩니다.");
+				}
+				try {
+					store.append("lost", "secret");
+					throw new IllegalStateException("쓰기에 실패한 저장소가 저장을 받았습니다.");
+				} catch (IllegalStateException expected) {
+					// 거절이 맞음
+				}
+			}
+			// lost 는 파일에 write 는 됐으므로 다시 열면 꼬리에서 읽힐 수 있음(실패로 답한 쓰기의 결과는 알 수 없음)
+			try (LayeredLogStore store = LayeredLogStore.open(directory, Integer.MAX_VALUE)) {
+				if (store.find("kept") == null) {
+					throw new IllegalStateException("다시 열었을 때 sync 한 사용자가 없습니다.");
+				}
+			}
+			System.out.println("failed sync check : sync 하지 못한 사용자는 숨기고 이후 저장은 거절");
+		} finally {
+			Thread.interrupted();
+			BenchmarkSupport.deleteDirectory(directory);
+		}
+	}
+
+	private static void benchmarkConcurrentSave(String name, Path directory, int threads, int registrations,
+			Supplier<LayeredDBRepository> factory) {
+		BenchmarkSupport.deleteDirectory(directory);
+		int perThread = registrations / threads;
+		long[][] latencies = new long[threads][perThread];
+		long[] elapsed = new long[1];
+		LayeredDBRepository[] opened = new LayeredDBRepository[1];
+		BenchmarkSupport.quietly(() -> {
+			try (LayeredDBRepository repository = factory.get()) {
+				opened[0] = repository;
+				CountDownLatch ready = new CountDownLatch(threads);
+				CountDownLatch start = new CountDownLatch(1);
+				List<Thread> workers = new ArrayList<>();
+				for (int t = 0; t < threads; t++) {
+					int thread = t;
+					Thread worker = new Thread(() -> {
+						ready.countDown();
+						BenchmarkSupport.awaitQuietly(start);
+						for (int i = 0; i < perThread; i++) {
+							int id = i * threads + thread;
+							long begin = System.nanoTime();
+							if (!repository.save(username(id), password(id))) {
+								throw new IllegalStateException("가입 실패 : " + username(id));
+							}
+							latencies[thread][i] = System.nanoTime() - begin;
+						}
+					});
+					worker.start();
+					workers.add(worker);
+				}
+				BenchmarkSupport.awaitQuietly(ready);
+				long begin = System.nanoTime();
+				start.countDown();
+				for (Thread worker : workers) {
+					BenchmarkSupport.joinQuietly(worker);
+				}
+				elapsed[0] = System.nanoTime() - begin;
+			}
+		});
+		long[] merged = Arrays.stream(latencies).flatMapToLong(Arrays::stream).toArray();
+		Arrays.sort(merged);
+		LayeredGroupCommitWriter writer = opened[0].getWriter();
+		String batch = writer == null ? "" : String.format("  avg batch %.1f", writer.averageBatchSize());
+		System.out.printf("%-28s threads=%-3d %,10.0f users/s  p50 %,9d ns  p99 %,10d ns%s%n", name, threads,
+				merged.length / (elapsed[0] / 1e9), BenchmarkSupport.percentile(merged, 50), BenchmarkSupport.percentile(merged, 99), batch);
+	}
+
+	// 저장소를 바꾸는 동안 로그인 지연 / 이관 처리량
+	static void migrationBenchmark(int[] sizes) {
+		System.out.println("[live migration] 이관하는 동안 같은 스레드 수로 계속 로그인");
+		Path directory = BenchmarkSupport.temporaryDirectory();
+		try {
+			for (int users : sizes) {
+				benchmarkMigration("memory -> memory", users, LayeredInMemoryRepository::new);
+				benchmarkMigration("memory -> db", users, () -> {
+					BenchmarkSupport.deleteDirectory(directory);
+					return new LayeredDBRepository(directory, 100_000);
+				});
+			}
+		} finally {
+			BenchmarkSupport.deleteDirectory(directory);
+		}
+	}
+
+	private static void benchmarkMigration(String name, int users, Supplier<LayeredRepository> targetFactory) {
+		String label = name + " users=" + users;
+		LayeredService service;
+		LayeredRepository target;
+		try {
+			service = new LayeredService(populate(new LayeredInMemoryRepository(), users));
+			target = targetFactory.get();
+		} catch (OutOfMemoryError e) {
+			System.out.printf("%-32s 메모리 부족으로 건너뜀(-Xmx 를 늘려서 실행)%n", label);
+			return;
+		}
+		Random random = new Random(users);
+		long[] before = new long[MEASURE_REQUESTS / 5];
+		for (int i = 0; i < WARMUP_REQUESTS; i++) {
+			migrationLogin(service, random, users);
+		}
+		for (int i = 0; i < before.length; i++) {
+			long start = System.nanoTime();
+			migrationLogin(service, random, users);
+			before[i] = System.nanoTime() - start;
+		}
+
+		LayeredMigratingRepository migration;
+		try {
+			migration = service.changeRepository(target);
+		} catch (OutOfMemoryError e) {
+			System.out.printf("%-32s 메모리 부족으로 건너뜀(-Xmx 를 늘려서 실행)%n", label);
+			return;
+		}
+		long[] during = new long[1 << 16];
+		int count = 0;
+		while (!migration.isDone() && migration.getFailure() == null) {
+			long start = System.nanoTime();
+			migrationLogin(service, random, users);
+			long elapsed = System.nanoTime() - start;
+			if (count == during.length) {
+				during = Arrays.copyOf(during, count * 2);
+			}
+			during[count++] = elapsed;
+		}
+		migration.awaitCompletion();
+		checkLogins(service.getRepository(), users);
+
+		System.out.println(label + " : " + migration);
+		BenchmarkSupport.printPercentiles("  login before", before);
+		if (count > 0) {
+			BenchmarkSupport.printPercentiles("  login during", Arrays.copyOf(during, count));
+		}
+		if (target instanceof AutoCloseable closeable) {
+			try {
+				closeable.close();
+			} catch (Exception e) {
+				throw new IllegalStateException(e);
+			}
+		}
+	}
+
+	// 있는 사용자로만 로그인 - 이관 중에 한 번이라도 실패하면 사용자가 빠진 것
+	private static void migrationLogin(LayeredService service, Random random, int users) {
+		int id = random.nextInt(users);
+		if (!service.loginProcess(username(id), password(id))) {
+			throw new IllegalStateException("이관 중 로그인 실패 : " + username(id));
+		}
+	}
+
+	/**
+	 * LayeredHttpServer 부하 - HttpClient 로 동시 연결 수를 바꿔가며 가입 뒤 로그인
+	 *  - 서버와 부하 생성기가 같은 JVM(같은 CPU) 을 나눠 쓰므로 서버만의 한계보다 낮게 나옴
+	 *  - -Dsun.net.httpserver.nodelay=true 로 실행해야 함(없으면 응답마다 지연 ACK 로 약 40ms)
+	 */
+	static void httpBenchmark(int[] sizes) {
+		int users = Math.min(sizes[0], 20_000);
+		int logins = 50_000;
+		if (!Boolean.getBoolean(LayeredHttpServer.NODELAY_PROPERTY)) {
+			System.out.println("[http] -D" + LayeredHttpServer.NODELAY_PROPERTY + "=true 없이 실행 - 요청마다 지연 ACK 대기가 섞임");
+		}
+		// 서버 자체의 비용만 보려고 비밀번호 해시 없이
+		LayeredHttpServer server = LayeredHttpServer.start(0, new LayeredController(new LayeredService(new LayeredInMemoryRepository())));
+		System.out.println("[http] " + (server.usesVirtualThreads() ? "가상 스레드" : "스레드 풀") + ", users=" + users);
+		HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+		URI register = URI.create("http://localhost:" + server.getPort() + "/register");
+		URI login = URI.create("http://localhost:" + server.getPort() + "/login");
+		try {
+			// 워밍업 겸 가입(출력 안 함)
+			runHttpLoad(null, client, register, 8, users, i -> i, 201);
+			runHttpLoad(null, client, login, 8, logins, i -> i % users, 200);
+			for (int connections : new int[] { 1, 8, 32 }) {
+				int offset = users * connections;
+				runHttpLoad("register", client, register, connections, users, i -> offset + i, 201);
+				runHttpLoad("login", client, login, connections, logins, i -> i % users, 200);
+			}
+		} finally {
+			server.close();
+		}
+	}
+
+	// name 이 null 이면 결과를 출력하지 않음
+	private static void runHttpLoad(String name, HttpClient client, URI uri, int connections, int requests,
+			IntUnaryOperator user, int expectedStatus) {
+		int perConnection = requests / connections;
+		long[][] latencies = new long[connections][perConnection];
+		List<Thread> workers = new ArrayList<>();
+		RuntimeException[] failure = new RuntimeException[1];
+		long[] elapsed = new long[1];
+		BenchmarkSupport.quietly(() -> {
+			long begin = System.nanoTime();
+			for (int c = 0; c < connections; c++) {
+				int connection = c;
+				Thread worker = new Thread(() -> {
+					try {
+						for (int i = 0; i < perConnection; i++) {
+							int id = user.applyAsInt(i * connections + connection);
+							String form = "username=" + URLEncoder.encode(username(id), StandardCharsets.UTF_8)
+									+ "&password=" + URLEncoder.encode(password(id), StandardCharsets.UTF_8);
+							HttpRequest request = HttpRequest.newBuilder(uri)
+									.header("Content-Type", "application/x-www-form-urlencoded")
+									.timeout(Duration.ofSeconds(10))
+									.POST(HttpRequest.BodyPublishers.ofString(form)).build();
+							long start = System.nanoTime();
+							HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+							latencies[connection][i] = System.nanoTime() - start;
+							if (response.statusCode() != expectedStatus) {
+								throw new IllegalStateException(uri.getPath() + " 응답 " + response.statusCode() + " : " + username(id));
+							}
+						}
+					} catch (IOException e) {
+						failure[0] = new UncheckedIOException(e);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					} catch (RuntimeException e) {
+						failure[0] = e;
+					}
+				});
+				worker.start();
+				workers.add(worker);
+			}
+			for (Thread worker : workers) {
+				BenchmarkSupport.joinQuietly(worker);
+			}
+			elapsed[0] = System.nanoTime() - begin;
+		});
+		if (failure[0] != null) {
+			throw failure[0];
+		}
+		if (name == null) {
+			return;
+		}
+		double seconds = elapsed[0] / 1e9;
+		long[] merged = Arrays.stream(latencies).flatMapToLong(Arrays::stream).toArray();
+		Arrays.sort(merged);
+		System.out.printf("%-10s connections=%-3d %,9.0f req/s  p50 %,9d ns  p90 %,9d ns  p99 %,10d ns  p99.9 %,10d ns%n",
+				name, connections, merged.length / seconds, BenchmarkSupport.percentile(merged, 50), BenchmarkSupport.percentile(merged, 90),
+				BenchmarkSupport.percentile(merged, 99), BenchmarkSupport.percentile(merged, 99.9));
+	}
+
+	// 스레드 수별 가입 / 로그인 처리량 - 저장소 하나 vs 샤드 16 개(샤드는 가입마다 출력하지 않음)
+	static void shardBenchmark(int[] sizes) {
+		int users = sizes[0];
+		System.out.println("[sharded] CPU " + Runtime.getRuntime().availableProcessors() + "개, users=" + users);
+		Path directory = BenchmarkSupport.temporaryDirectory();
+		try {
+			for (int threads : new int[] { 1, 2, 4, 8, 16, 32, 64 }) {
+				// 저장소 하나도 샤드 1 개로 - 가입마다 출력하지 않는 것은 같게
+				benchmarkShards("memory single", threads, users, () -> ShardedLayeredRepository.inMemory(1));
+				benchmarkShards("memory 16 shards", threads, users, () -> ShardedLayeredRepository.inMemory(16));
+				benchmarkShards("db single", threads, users, () -> {
+					BenchmarkSupport.deleteDirectory(directory);
+					return ShardedLayeredRepository.db(directory, 1, 100_000);
+				});
+				benchmarkShards("db 16 shards", threads, users, () -> {
+					BenchmarkSupport.deleteDirectory(directory);
+					return ShardedLayeredRepository.db(directory, 16, 100_000);
+				});
+				// 가입마다 묶음 fsync 를 기다리므로 스레드당 1000 명까지만
+				benchmarkShards("db 16 shards group", threads, Math.min(users, threads * 1_000), () -> {
+					BenchmarkSupport.deleteDirectory(directory);
+					return ShardedLayeredRepository.groupCommit(directory, 16, 1024, Duration.ofMillis(1));
+				});
+			}
+		} finally {
+			BenchmarkSupport.deleteDirectory(directory);
+		}
+	}
+
+	private static void benchmarkShards(String name, int threads, int users, Supplier<LayeredRepository> factory) {
+		LayeredRepository repository = factory.get();
+		int perThread = users / threads;
+		long saveNanos = BenchmarkSupport.runConcurrently(threads, thread -> {
+			for (int i = 0; i < perThread; i++) {
+				int id = i * threads + thread;
+				repository.save(username(id), password(id));
+			}
+		});
+		int saved = perThread * threads;
+		int loginsPerThread = MEASURE_REQUESTS / threads;
+		long loginNanos = BenchmarkSupport.runConcurrently(threads, thread -> {
+			Random random = new Random(thread);
+			long success = 0;
+			for (int i = 0; i < loginsPerThread; i++) {
+				int id = random.nextInt(saved);
+				success += repository.login(username(id), password(id)) ? 1 : 0;
+			}
+			if (success != loginsPerThread) {
+				throw new IllegalStateException(name + " 로그인 실패 " + (loginsPerThread - success) + "건");
+			}
+		});
+		System.out.printf("%-18s threads=%-3d save %,11.0f users/s  login %,11.0f ops/s%n", name, threads,
+				saved / (saveNanos / 1e9), loginsPerThread * threads / (loginNanos / 1e9));
+		if (repository instanceof AutoCloseable closeable) {
+			try {
+				closeable.close();
+			} catch (Exception e) {
+				throw new IllegalStateException(e);
+			}
+		}
+	}
+
+	/**
+	 * PBKDF2 로그인 - 확인 캐시 끔 / 켬
+	 *  - 로그인의 90% 는 자주 오는 사용자 20 명(같은 사용자가 짧은 시간에 다시 로그인)
+	 *  - CPU 는 프로세스 전체 CPU 시간 / 로그인 수(해시 스레드 포함)
+	 *  - 반복 횟수는 -Dbenchmark.iterations 로 바꿀 수 있음
+	 */
+	static void hashBenchmark(int[] sizes) {
+		int iterations = Integer.getInteger("benchmark.iterations", LayeredPasswordHasher.DEFAULT_ITERATIONS);
+		int users = Math.min(sizes[0], 200);
+		int threads = 8;
+		int logins = 2_000;
+		System.out.printf("[password hash] PBKDF2 %,d 회, users=%d, 요청 스레드 %d, 해시 스레드 %d%n", iterations, users, threads,
+				Runtime.getRuntime().availableProcessors());
+		for (Duration ttl : new Duration[] { Duration.ZERO, LayeredPasswordHasher.DEFAULT_CACHE_TTL }) {
+			try (LayeredPasswordHasher hasher = new LayeredPasswordHasher(iterations, Runtime.getRuntime().availableProcessors(), ttl)) {
+				LayeredService service = new LayeredService(new LayeredInMemoryRepository(), hasher);
+				long registerStart = System.nanoTime();
+				BenchmarkSupport.runConcurrently(threads, thread -> {
+					for (int id = thread; id < users; id += threads) {
+						service.addUser(username(id), password(id));
+					}
+				});
+				double registerSeconds = (System.nanoTime() - registerStart) / 1e9;
+
+				long[][] latencies = new long[threads][logins / threads];
+				long cpuStart = processCpuNanos();
+				long elapsed = BenchmarkSupport.runConcurrently(threads, thread -> {
+					Random random = new Random(thread);
+					long[] mine = latencies[thread];
+					for (int i = 0; i < mine.length; i++) {
+						int id = random.nextInt(10) < 9 ? random.nextInt(Math.min(20, users)) : random.nextInt(users);
+						long start = System.nanoTime();
+						if (!service.loginProcess(username(id), password(id))) {
+							throw new IllegalStateException("로그인 실패 : " + username(id));
+						}
+						mine[i] = System.nanoTime() - start;
+					}
+				});
+				long cpu = processCpuNanos() - cpuStart;
+				long[] merged = Arrays.stream(latencies).flatMapToLong(Arrays::stream).toArray();
+				Arrays.sort(merged);
+				System.out.printf("cache %-4s register %,6.0f users/s  login %,8.0f ops/s  CPU %,8.1f us/login  p50 %,10d ns  p99 %,11d ns  PBKDF2 %,d  hit %,d%n",
+						ttl.isZero() ? "off" : "on", users / registerSeconds, merged.length / (elapsed / 1e9),
+						cpu / 1e3 / merged.length, BenchmarkSupport.percentile(merged, 50), BenchmarkSupport.percentile(merged, 99),
+						hasher.getHashCount(), hasher.getCacheHits());
+				if (service.loginProcess(username(0), "wrong")) {
+					throw new IllegalStateException("틀린 비밀번호로 로그인 성공");
+				}
+			}
+		}
+	}
+
+	static long processCpuNanos() {
+		return ((com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean()).getProcessCpuTime();
+	}
+
+	/**
+	 * CSV 대량 가입 - 한 명씩 addUser vs addUsers(묶음 저장)
+	 *  - 힙 최대 사용량은 측정 직전에 GC 하고 힙 메모리 풀의 최대값을 초기화한 뒤의 값(메모리 저장소는 사용자 자체도 포함)
+	 */
+	static void importBenchmark(int[] sizes) {
+		System.out.println("[csv import] 비밀번호 해시 없이(해시 비용은 hash 항목 참고)");
+		Path directory = BenchmarkSupport.temporaryDirectory();
+		try {
+			for (int users : sizes) {
+				Path csv = directory.resolve("users-" + users + ".csv");
+				writeCsv(csv, users);
+				System.out.printf("users=%,d  파일 %,d MB%n", users, BenchmarkSupport.fileSize(csv) >> 20);
+				Path db = directory.resolve("db");
+				if (users <= 10_000) {
+					// 한 명씩 가입 + 가입마다 fsync 는 느리므로 적은 수로만
+					benchmarkImport("memory addUser 1명씩", csv, users, false, LayeredInMemoryRepository::new);
+					benchmarkImport("db addUser 1명씩", csv, users, false, () -> {
+						BenchmarkSupport.deleteDirectory(db);
+						return new LayeredDBRepository(db, LayeredDBRepository.DEFAULT_SYNC_EVERY);
+					});
+				}
+				benchmarkImport("memory addUsers", csv, users, true, LayeredInMemoryRepository::new);
+				benchmarkImport("db addUsers", csv, users, true, () -> {
+					BenchmarkSupport.deleteDirectory(db);
+					return new LayeredDBRepository(db, LayeredDBRepository.DEFAULT_SYNC_EVERY);
+				});
+				Files.delete(csv);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			BenchmarkSupport.deleteDirectory(directory);
+		}
+	}
+
+	private static void benchmarkImport(String name, Path csv, int users, boolean bulk, Supplier<LayeredRepository> factory) {
+		LayeredRepository repository;
+		try {
+			repository = factory.get();
+		} catch (OutOfMemoryError e) {
+			System.out.printf("  %-24s 메모리 부족으로 건너뜀%n", name);
+			return;
+		}
+		LayeredService service = new LayeredService(repository);
+		System.gc();
+		resetPeakHeap();
+		long start = System.nanoTime();
+		long[] saved = new long[1];
+		try {
+			BenchmarkSupport.quietly(() -> {
+				if (bulk) {
+					saved[0] = LayeredCsvImporter.importInto(csv, service);
+				} else {
+					try (LayeredCsvImporter importer = LayeredCsvImporter.open(csv)) {
+						while (importer.hasNext()) {
+							LayeredUser user = importer.next();
+							saved[0] += service.addUser(user.getUsername(), user.getPassword()) ? 1 : 0;
+						}
+					}
+				}
+			});
+		} catch (OutOfMemoryError e) {
+			System.out.printf("  %-24s 메모리 부족으로 건너뜀%n", name);
+			return;
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+		if (saved[0] != users || repository.size() != users) {
+			throw new IllegalStateException(name + " 가입 수 불일치 : " + saved[0] + " / " + users);
+		}
+		checkLogins(repository, users);
+		System.out.printf("  %-24s %,12.0f rows/s  peak heap %,6d MB%n", name, users / seconds, peakHeap() >> 20);
+		if (repository instanceof AutoCloseable closeable) {
+			try {
+				closeable.close();
+			} catch (Exception e) {
+				throw new IllegalStateException(e);
+			}
+		}
+	}
+
+	private static void writeCsv(Path csv, int users) throws IOException {
+		try (BufferedWriter writer = Files.newBufferedWriter(csv, StandardCharsets.UTF_8)) {
+			writer.write("username,password\n");
+			for (int i = 0; i < users; i++) {
+				writer.write(username(i));
+				writer.write(',');
+				writer.write(password(i));
+				writer.write('\n');
+			}
+		}
+	}
+
+	static void resetPeakHeap() {
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP) {
+				pool.resetPeakUsage();
+			}
+		}
+	}
+
+	// 힙 메모리 풀별 최대값의 합(풀마다 최대였던 시점이 달라 실제 최대보다 조금 클 수 있음)
+	static long peakHeap() {
+		long peak = 0;
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP) {
+				peak += pool.getPeakUsage().getUsed();
+			}
+		}
+		return peak;
+	}
+
+	/**
+	 * 로그인 실패 제한
+	 *  - 정상 로그인 : 제한 끔 / 켬 지연 비교
+	 *  - 공격 : 요청의 95% 가 출처 100 곳에서 임의 username + 틀린 비밀번호, 5% 가 정상 사용자
+	 *      저장소까지 간 요청 수, 처리량, 정상 사용자의 로그인 성공률
+	 */
+	static void throttleBenchmark(int[] sizes) {
+		System.out.println("[login throttle]");
+		int users = Math.min(sizes[0], 1_000_000);
+		LayeredRepository repository = populate(new LayeredInMemoryRepository(), users);
+		for (boolean throttled : new boolean[] { false, true }) {
+			LayeredService service = new LayeredService(repository, null, throttled ? new LayeredLoginThrottle() : null);
+			Random random = new Random(users);
+			long[] latencies = new long[MEASURE_REQUESTS];
+			for (int i = 0; i < WARMUP_REQUESTS; i++) {
+				int id = random.nextInt(users);
+				sink += service.loginProcess(username(id), password(id), "client-" + (id & 1023)) ? 1 : 0;
+			}
+			for (int i = 0; i < latencies.length; i++) {
+				int id = random.nextInt(users);
+				String source = "client-" + (id & 1023);
+				long start = System.nanoTime();
+				sink += service.loginProcess(username(id), password(id), source) ? 1 : 0;
+				latencies[i] = System.nanoTime() - start;
+			}
+			BenchmarkSupport.printPercentiles("happy path throttle " + (throttled ? "on" : "off"), latencies);
+		}
+
+		Path directory = BenchmarkSupport.temporaryDirectory();
+		try (LayeredDBRepository db = new LayeredDBRepository(directory, 100_000)) {
+			populate(db, users);
+			for (boolean throttled : new boolean[] { false, true }) {
+				CountingRepository counting = new CountingRepository(db);
+				LayeredLoginThrottle throttle = throttled ? new LayeredLoginThrottle() : null;
+				LayeredService service = new LayeredService(counting, null, throttle);
+				Random random = new Random(7);
+				int requests = MEASURE_REQUESTS;
+				long legitimate = 0;
+				long legitimateSuccess = 0;
+				long start = System.nanoTime();
+				for (int i = 0; i < requests; i++) {
+					int id = random.nextInt(users);
+					if (random.nextInt(20) == 0) {
+						legitimate++;
+						legitimateSuccess += service.loginProcess(username(id), password(id), "client-" + (id & 1023)) ? 1 : 0;
+					} else {
+						sink += service.loginProcess(username(id), "guess" + i, "attacker-" + random.nextInt(100)) ? 1 : 0;
+					}
+				}
+				double seconds = (System.nanoTime() - start) / 1e9;
+				System.out.printf("attack db throttle %-3s %,10.0f req/s  저장소 조회 %,9d / %,d  정상 로그인 성공 %5.1f%%%s%n",
+						throttled ? "on" : "off", requests / seconds, counting.getLookups(), requests,
+						legitimateSuccess * 100.0 / legitimate,
+						throttle == null ? "" : String.format("  거절 %,d", throttle.getRejected()));
+			}
+		} finally {
+			BenchmarkSupport.deleteDirectory(directory);
+		}
+		checkThrottleEviction();
+	}
+
+	/**
+	 * 표를 다른 username 으로 채워도 막힌 username 이 풀리지 않는지 확인
+	 *  - 슬롯 16 개짜리 표에서 victim 을 한도까지 실패시킨 뒤 서로 다른 username 2 만 개를 한도까지 실패시킴
+	 *  - 모든 슬롯이 막힌 키로 차면 출처 한도만 적용, 출처도 없으면 거절
+	 */
+	static void checkThrottleEviction() {
+		long[] now = { 0 };
+		LayeredLoginThrottle throttle = new LayeredLoginThrottle(Duration.ofMinutes(5), 5, 50, 16, () -> now[0]);
+		for (int i = 0; i < 5; i++) {
+			throttle.acquire("victim", "client-" + i);
+		}
+		// 뿌리는 username 도 한도까지 올려서 victim 보다 합계가 작은 슬롯이 없게 만듦
+		for (int i = 0; i < 100_000; i++) {
+			throttle.acquire("spray-" + (i / 5), "attacker-" + i);
+		}
+		if (throttle.acquire("victim", "client-new") != -1 || throttle.userFailures("victim") < 5) {
+			throw new IllegalStateException("다른 username 의 실패로 막힌 username 이 풀렸습니다.");
+		}
+		// 모든 슬롯을 막힌 username 으로 채움
+		for (int i = 0; i < 1_000 * 5; i++) {
+			throttle.acquire("locked-" + (i / 5), "client-" + i);
+		}
+		if (throttle.acquire("newcomer", "client-newcomer") == -1) {
+			throw new IllegalStateException("표가 가득 차도 출처 한도 안이면 통과해야 합니다.");
+		}
+		if (throttle.acquire("newcomer", null) != -1) {
+			throw new IllegalStateException("username / 출처 둘 다 세지 못하면 거절해야 합니다.");
+		}
+		System.out.println("eviction check : 막힌 username 유지, 표가 가득 차면 출처 한도 / 둘 다 없으면 거절");
+	}
+
+	// ---------------------------------------------------------------- 측정 도구
+
+	static LayeredRepository populate(LayeredRepository repository, int users) {
+		BenchmarkSupport.quietly(() -> {
+			for (int i = 0; i < users; i++) {
+				repository.save(username(i), password(i));
+			}
+		});
+		return repository;
+	}
+
+	// nanoTime 두 번 호출 비용 - 측정값에 포함되어 있음
+	static long timerOverhead() {
+		long[] samples = new long[100_000];
+		for (int i = 0; i < samples.length; i++) {
+			long start = System.nanoTime();
+			samples[i] = System.nanoTime() - start;
+		}
+		Arrays.sort(samples);
+		return samples[samples.length / 2];
+	}
+
+	static String username(int id) {
+		return "user" + id;
+	}
+
+	static String password(int id) {
+		return "pw" + id;
+	}
+
+	/**
+	 * 저장소까지 간 조회 수를 셈
+	 */
+	private static final class CountingRepository implements LayeredRepository {
+		private final LayeredRepository delegate;
+		private long lookups;
+
+		CountingRepository(LayeredRepository delegate) {
+			this.delegate = delegate;
+		}
+
+		long getLookups() {
+			return lookups;
+		}
+
+		@Override
+		public boolean save(String username, String password) {
+			return delegate.save(username, password);
+		}
+
+		@Override
+		public boolean login(String username, String password) {
+			lookups++;
+			return delegate.login(username, password);
+		}
+
+		@Override
+		public LayeredUser findUser(String username) {
+			lookups++;
+			return delegate.findUser(username);
+		}
+
+		@Override
+		public long size() {
+			return delegate.size();
+		}
+
+		@Override
+		public void forEach(Consumer<LayeredUser> action) {
+			delegate.forEach(action);
+		}
+
+		@Override
+		public boolean load(LayeredUser user) {
+			return delegate.load(user);
+		}
+	}
+
+	/**
+	 * 변경 전 LayeredInMemoryRepository 와 같은 리스트 순회 - 비교 기준
+	 */
+	private static final class ListScanRepository implements LayeredRepository {
+		private final List<LayeredUser> userList = new ArrayList<>();
+
+		@Override
+		public boolean save(String username, String password) {
+			userList.add(new LayeredUser(username, password));
+			return true;
+		}
+
+		@Override
+		public boolean login(String username, String password) {
+			return userList.stream().anyMatch(user -> user.getUsername().equals(username) && user.getPassword().equals(password));
+		}
+
+		@Override
+		public LayeredUser findUser(String username) {
+			return userList.stream().filter(user -> user.getUsername().equals(username)).findFirst().orElse(null);
+		}
+
+		@Override
+		public long size() {
+			return userList.size();
+		}
+
+		@Override
+		public void forEach(Consumer<LayeredUser> action) {
+			userList.forEach(action);
+		}
+
+		@Override
+		public boolean load(LayeredUser user) {
+			return userList.add(user);
+		}
+	}
+}
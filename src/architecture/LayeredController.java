@@ -0,0 +1,41 @@
+package architecture;
+
+import java.util.Iterator;
+
+// LayeredService 가 스레드 안전하므로 여러 요청 스레드(LayeredHttpServer) 가 함께 호출해도 됨
+class LayeredController implements AutoCloseable {
+	private final LayeredService layeredService;
+	
+	public LayeredController() {
+		this(new LayeredService());
+	}
+	
+	public LayeredController(LayeredService layeredService) {
+		this.layeredService = layeredService;
+	}
+	
+	public boolean addUser(String username, String password) {
+		return layeredService.addUser(username, password);
+	}
+	
+	public boolean loginProcess(String username, String password) {
+		return layeredService.loginProcess(username, password);
+	}
+	
+	public boolean loginProcess(String username, String password, String source) {
+		return layeredService.loginProcess(username, password, source);
+	}
+	
+	public long addUsers(Iterator<LayeredUser> users) {
+		return layeredService.addUsers(users);
+	}
+	
+	public void changeRepository(LayeredRepoType type) {
+		layeredService.changeRepository(type);
+	}
+	
+	@Override
+	public void close() {
+		layeredService.close();
+	}
+}
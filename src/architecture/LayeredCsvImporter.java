@@ -0,0 +1,231 @@
+package architecture;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * 사용자 CSV(username,password) 를 한 줄씩 읽는 Iterator - LayeredService.addUsers 에 그대로 넘김
+ *
+ *  - FileChannel 에서 1MB 버퍼 단위로 읽음 -> 파일 크기와 관계없이 메모리는 버퍼 하나
+ *  - UTF-8, 줄 끝은 \n 또는 \r\n, 파일 앞의 BOM 무시
+ *  - 첫 줄이 username,password 면 머리글로 보고 건너뜀
+ *  - 필드는 큰따옴표로 감쌀 수 있음("" 는 " 하나), 감싼 필드 안의 줄바꿈은 지원하지 않음
+ *  - 빈 줄은 건너뛰고, 필드가 두 개가 아니거나 username 이 비어 있는 줄은 세기만 하고 건너뜀(getMalformedRows)
+ */
+class LayeredCsvImporter implements Iterator<LayeredUser>, AutoCloseable {
+	static final int BUFFER_SIZE = 1 << 20;
+	private static final String HEADER = "username,password";
+
+	private final FileChannel channel;
+	private final ByteBuffer buffer;
+	private final byte[] bytes;
+	// bytes 에서 아직 해석하지 않은 부분 [position, limit)
+	private int position;
+	private int limit;
+	private boolean endOfFile;
+	private long lineNumber;
+	private long rows;
+	private long malformedRows;
+	private LayeredUser next;
+
+	private LayeredCsvImporter(FileChannel channel, int bufferSize) {
+		this.channel = channel;
+		this.buffer = ByteBuffer.allocate(bufferSize);
+		this.bytes = buffer.array();
+	}
+
+	public static LayeredCsvImporter open(Path file) {
+		return open(file, BUFFER_SIZE);
+	}
+
+	public static LayeredCsvImporter open(Path file, int bufferSize) {
+		try {
+			LayeredCsvImporter importer = new LayeredCsvImporter(FileChannel.open(file, StandardOpenOption.READ), bufferSize);
+			importer.skipBom();
+			return importer;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * 파일 하나를 통째로 가입시킴, 새로 가입한 수 반환
+	 */
+	public static long importInto(Path file, LayeredService service) {
+		try (LayeredCsvImporter importer = open(file)) {
+			return service.addUsers(importer);
+		}
+	}
+
+	@Override
+	public boolean hasNext() {
+		while (next == null) {
+			int start = nextLine();
+			if (start < 0) {
+				return false;
+			}
+			next = parse(start, position - 1);
+		}
+		return true;
+	}
+
+	@Override
+	public LayeredUser next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		LayeredUser user = next;
+		next = null;
+		rows++;
+		return user;
+	}
+
+	// 읽어서 넘긴 사용자 수
+	public long getRows() {
+		return rows;
+	}
+
+	public long getMalformedRows() {
+		return malformedRows;
+	}
+
+	@Override
+	public void close() {
+		try {
+			channel.close();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * 다음 줄의 시작 위치, 파일 끝이면 -1
+	 *  - 돌아오면 position 은 줄바꿈 다음(마지막 줄이면 limit + 1 처럼 줄 끝 다음 칸)
+	 */
+	private int nextLine() {
+		int scan = position;
+		while (true) {
+			for (int i = scan; i < limit; i++) {
+				if (bytes[i] == '\n') {
+					int start = position;
+					position = i + 1;
+					lineNumber++;
+					return start;
+				}
+			}
+			if (endOfFile) {
+				if (position == limit) {
+					return -1;
+				}
+				// 줄바꿈 없는 마지막 줄 - 끝에 가상의 줄바꿈이 있는 것처럼
+				int start = position;
+				position = limit + 1;
+				limit = position;
+				lineNumber++;
+				return start;
+			}
+			scan = limit - position;
+			fill();
+		}
+	}
+
+	// 남은 바이트를 앞으로 당기고 더 읽음
+	private void fill() {
+		int remaining = limit - position;
+		if (remaining == bytes.length) {
+			throw new IllegalArgumentException("줄이 너무 깁니다 : " + (lineNumber + 1) + " 번째 줄");
+		}
+		System.arraycopy(bytes, position, bytes, 0, remaining);
+		position = 0;
+		limit = remaining;
+		buffer.clear().position(limit);
+		try {
+			int read = channel.read(buffer);
+			if (read < 0) {
+				endOfFile = true;
+			} else {
+				limit += read;
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private void skipBom() {
+		fill();
+		if (limit >= 3 && (bytes[0] & 0xFF) == 0xEF && (bytes[1] & 0xFF) == 0xBB && (bytes[2] & 0xFF) == 0xBF) {
+			position = 3;
+		}
+	}
+
+	// [start, end) 한 줄을 해석, 건너뛸 줄이면 null
+	private LayeredUser parse(int start, int end) {
+		if (end > start && bytes[end - 1] == '\r') {
+			end--;
+		}
+		if (end == start) {
+			return null;
+		}
+		String[] fields = new String[2];
+		int count = 0;
+		int i = start;
+		while (i <= end) {
+			if (count == 2) {
+				malformedRows++;
+				return null;
+			}
+			int fieldEnd;
+			String field;
+			if (i < end && bytes[i] == '"') {
+				fieldEnd = closingQuote(i + 1, end);
+				if (fieldEnd < 0) {
+					malformedRows++;
+					return null;
+				}
+				field = new String(bytes, i + 1, fieldEnd - i - 1, StandardCharsets.UTF_8).replace("\"\"", "\"");
+				fieldEnd++;
+				if (fieldEnd < end && bytes[fieldEnd] != ',') {
+					malformedRows++;
+					return null;
+				}
+			} else {
+				fieldEnd = i;
+				while (fieldEnd < end && bytes[fieldEnd] != ',') {
+					fieldEnd++;
+				}
+				field = new String(bytes, i, fieldEnd - i, StandardCharsets.UTF_8);
+			}
+			fields[count++] = field;
+			i = fieldEnd + 1;
+		}
+		if (count != 2 || fields[0].isEmpty()) {
+			malformedRows++;
+			return null;
+		}
+		if (lineNumber == 1 && HEADER.equalsIgnoreCase(fields[0] + "," + fields[1])) {
+			return null;
+		}
+		return new LayeredUser(fields[0], fields[1]);
+	}
+
+	// 따옴표 필드의 닫는 따옴표 위치("" 는 건너뜀), 없으면 -1
+	private int closingQuote(int from, int end) {
+		for (int i = from; i < end; i++) {
+			if (bytes[i] == '"') {
+				if (i + 1 < end && bytes[i + 1] == '"') {
+					i++;
+				} else {
+					return i;
+				}
+			}
+		}
+		return -1;
+	}
+}
@@ -0,0 +1,143 @@
+package architecture;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+
+/**
+ * 파일 기반 저장소 - 저장 엔진은 LayeredLogStore(추가 전용 로그 + 메모리 매핑 해시 인덱스)
+ *  - 다시 시작해도 가입한 사용자가 남아 있음
+ *  - groupCommit 으로 만들면 동시에 들어온 가입을 LayeredGroupCommitWriter 가 모아서 fsync 한 번으로 내림
+ *      save 는 자기 가입이 디스크에 내려갈 때까지 기다림, saveAsync 는 기다리지 않고 future 반환
+ *      아직 fsync 전인 사용자도 login 에서는 보일 수 있음
+ */
+class LayeredDBRepository implements LayeredRepository, AutoCloseable {
+	static final Path DEFAULT_DIRECTORY = Path.of("layered-db");
+	// 가입 한 건마다 fsync
+	static final int DEFAULT_SYNC_EVERY = 1;
+
+	private final LayeredLogStore store;
+	// null 이면 저장하는 스레드가 직접 append(syncEvery 건마다 fsync)
+	private final LayeredGroupCommitWriter writer;
+
+	public LayeredDBRepository() {
+		this(DEFAULT_DIRECTORY, DEFAULT_SYNC_EVERY);
+	}
+
+	public LayeredDBRepository(Path directory, int syncEvery) {
+		store = LayeredLogStore.open(directory, syncEvery);
+		writer = null;
+	}
+
+	private LayeredDBRepository(Path directory, int maxBatch, Duration maxWait) {
+		// fsync 는 writer 가 묶음마다 직접 함
+		store = LayeredLogStore.open(directory, Integer.MAX_VALUE);
+		writer = new LayeredGroupCommitWriter(store, maxBatch, maxWait);
+	}
+
+	/**
+	 * 그룹 커밋 저장소 - 한 번에 최대 maxBatch 건, 첫 건을 받고 최대 maxWait 만큼 더 모아서 fsync
+	 */
+	public static LayeredDBRepository groupCommit(Path directory, int maxBatch, Duration maxWait) {
+		return new LayeredDBRepository(directory, maxBatch, maxWait);
+	}
+
+	@Override
+	public boolean save(String username, String password) {
+		if (!saveQuietly(username, password)) {
+			System.out.println("DB : 이미 존재하는 아이디");
+			return false;
+		}
+		System.out.println("DB : 회원가입 완료");
+		return true;
+	}
+
+	/**
+	 * 출력 없는 save(디스크에 내려갈 때까지 기다림) - 샤드처럼 여러 스레드가 계속 저장하는 곳용
+	 *  - System.out 은 synchronized 라서 저장마다 출력하면 모든 저장 스레드가 거기서 줄을 섬
+	 */
+	boolean saveQuietly(String username, String password) {
+		try {
+			return saveAsync(username, password).join();
+		} catch (CompletionException e) {
+			throw e.getCause() instanceof RuntimeException cause ? cause : e;
+		}
+	}
+
+	/**
+	 * 디스크에 내려가면 완료되는 저장 - 그룹 커밋이 아니면 이미 끝난 future
+	 */
+	public CompletableFuture<Boolean> saveAsync(String username, String password) {
+		if (writer == null) {
+			return CompletableFuture.completedFuture(store.append(username, password));
+		}
+		return writer.submit(username, password);
+	}
+
+	@Override
+	public boolean login(String username, String password) {
+		LayeredUser user = store.find(username);
+		return user != null && user.getPassword().equals(password);
+	}
+
+	@Override
+	public LayeredUser findUser(String username) {
+		return store.find(username);
+	}
+
+	@Override
+	public long size() {
+		return store.size();
+	}
+
+	@Override
+	public void forEach(Consumer<LayeredUser> action) {
+		store.forEach(action);
+	}
+
+	@Override
+	public boolean load(LayeredUser user) {
+		return store.load(user.getUsername(), user.getPassword());
+	}
+
+	@Override
+	public void flush() {
+		store.sync();
+	}
+
+	// 쓰기 락 한 번, fsync 한 번
+	@Override
+	public int saveAll(List<LayeredUser> users) {
+		return store.appendAll(users);
+	}
+
+	// 그룹 커밋이어도 바로 씀 - 드물게(예전 평문 사용자의 첫 로그인) 만 불림
+	@Override
+	public boolean replacePassword(String username, String expected, String replacement) {
+		return store.replace(username, expected, replacement);
+	}
+
+	public void sync() {
+		store.sync();
+	}
+
+	LayeredLogStore getStore() {
+		return store;
+	}
+
+	LayeredGroupCommitWriter getWriter() {
+		return writer;
+	}
+
+	@Override
+	public void close() {
+		// 큐에 남은 가입을 먼저 내림
+		if (writer != null) {
+			writer.close();
+		}
+		store.close();
+	}
+}
@@ -0,0 +1,239 @@
+package architecture;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 그룹 커밋 - 여러 스레드의 가입을 모아서 fsync 한 번으로 내림
+ *
+ * 왜 필요할까?
+ *  - 가입마다 fsync 하면 처리량이 디스크 fsync 횟수(초당 수백 ~ 수천 번)에 묶임
+ *  - syncEvery 로 묶으면 빨라지지만 가입이 끝났다고 답한 뒤에 죽으면 사라질 수 있음
+ *
+ * 동작
+ *  - submit 은 레코드를 큐에 넣고 CompletableFuture 를 바로 돌려줌
+ *  - 쓰기 스레드 하나가 큐에서 최대 maxBatch 건을 꺼냄
+ *      첫 건을 꺼낸 뒤 maxWait 동안 더 기다려서 묶음을 키움(0 이면 이미 쌓인 것만)
+ *  - 묶음을 전부 append 한 뒤 sync 한 번, 그다음에 묶음의 future 를 모두 완료
+ *      -> future 가 완료되면 그 가입은 디스크에 있음
+ *  - 큐가 가득 차면 submit 이 기다림(쓰기가 밀릴 때 메모리가 끝없이 늘지 않게)
+ *
+ * fsync 가 실패하면(Error 포함) 그 뒤 파일 상태를 알 수 없으므로 묶음을 실패시키고 이후 submit 도 거절
+ *  - 저장소도 sync 하지 못한 레코드를 조회에서 숨김(LayeredLogStore.sync) -> 실패한 가입이 보이지 않음
+ */
+class LayeredGroupCommitWriter implements AutoCloseable {
+	static final int DEFAULT_MAX_BATCH = 1_024;
+	static final Duration DEFAULT_MAX_WAIT = Duration.ZERO;
+	// 큐가 비어 있을 때 close 여부를 확인하는 간격
+	private static final long CLOSE_CHECK_MILLIS = 10;
+
+	private final LayeredLogStore store;
+	private final int maxBatch;
+	private final long maxWaitNanos;
+	private final BlockingQueue<PendingSave> queue;
+	private final Thread flusher;
+	private volatile boolean closed;
+	private volatile Throwable failure;
+
+	private final AtomicLong batches = new AtomicLong();
+	private final AtomicLong records = new AtomicLong();
+
+	/**
+	 * store 는 스스로 sync 하지 않도록 syncEvery 를 크게 열어둔 것이어야 함
+	 */
+	public LayeredGroupCommitWriter(LayeredLogStore store, int maxBatch, Duration maxWait) {
+		if (maxBatch <= 0) {
+			throw new IllegalArgumentException("maxBatch 는 1 이상이어야 합니다.");
+		}
+		if (maxWait.isNegative()) {
+			throw new IllegalArgumentException("maxWait 는 음수일 수 없습니다.");
+		}
+		this.store = store;
+		this.maxBatch = maxBatch;
+		this.maxWaitNanos = maxWait.toNanos();
+		this.queue = new ArrayBlockingQueue<>(Math.max(maxBatch * 4, 1_024));
+		this.flusher = new Thread(this::run, "layered-group-commit");
+		flusher.setDaemon(true);
+		flusher.start();
+	}
+
+	/**
+	 * 가입 요청을 넣음 - 디스크에 내려가면 true(새 사용자) / false(이미 있는 아이디) 로 완료
+	 */
+	public CompletableFuture<Boolean> submit(String username, String password) {
+		PendingSave pending = new PendingSave(username, password);
+		checkAccepting();
+		try {
+			queue.put(pending);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			pending.future.completeExceptionally(e);
+			return pending.future;
+		}
+		// put 하는 사이에 닫혔거나 fsync 가 실패했으면 쓰기 스레드가 이미 끝났을 수 있음
+		// 아직 큐에 있으면 아무도 완료하지 않으므로 꺼내서 실패시킴(이미 꺼내졌으면 쓰기 스레드 / failAll 이 완료)
+		if ((closed || failure != null) && queue.remove(pending)) {
+			pending.future.completeExceptionally(rejection());
+		}
+		return pending.future;
+	}
+
+	// 큐에 남은 요청까지 모두 내린 뒤 종료
+	@Override
+	public void close() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		// interrupt 는 쓰지 않음 - FileChannel 이 interrupt 를 받으면 채널을 닫아버림
+		try {
+			flusher.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		failAll(new IllegalStateException("닫힌 쓰기 큐입니다."));
+	}
+
+	public long getBatches() {
+		return batches.get();
+	}
+
+	public long getRecords() {
+		return records.get();
+	}
+
+	// fsync 한 번에 내린 평균 가입 수
+	public double averageBatchSize() {
+		long count = batches.get();
+		return count == 0 ? 0 : (double) records.get() / count;
+	}
+
+	public int getQueueDepth() {
+		return queue.size();
+	}
+
+	private void checkAccepting() {
+		if (failure != null || closed) {
+			throw rejection();
+		}
+	}
+
+	private IllegalStateException rejection() {
+		Throwable cause = failure;
+		if (cause != null) {
+			return new IllegalStateException("디스크 쓰기에 실패한 뒤로는 저장할 수 없습니다.", cause);
+		}
+		return new IllegalStateException("닫힌 쓰기 큐입니다.");
+	}
+
+	private void run() {
+		List<PendingSave> batch = new ArrayList<>(maxBatch);
+		try {
+			while (true) {
+				try {
+					if (!collect(batch)) {
+						return;
+					}
+				} catch (InterruptedException e) {
+					// 이 스레드를 interrupt 하는 곳은 없음, 모은 것은 그대로 내림
+					if (batch.isEmpty()) {
+						continue;
+					}
+				}
+				flush(batch);
+				batch.clear();
+				if (failure != null) {
+					failAll(failure);
+					return;
+				}
+			}
+		} catch (Throwable e) {
+			// OOM 등 - 쓰기 스레드가 조용히 죽으면 submit 은 계속 받고 future 는 영원히 끝나지 않음
+			failure = e;
+			for (PendingSave pending : batch) {
+				pending.future.completeExceptionally(e);
+			}
+			failAll(e);
+		}
+	}
+
+	// 묶음 하나를 모음, 닫혔고 큐가 비었으면 false
+	private boolean collect(List<PendingSave> batch) throws InterruptedException {
+		PendingSave first = null;
+		while (first == null) {
+			if (closed) {
+				queue.drainTo(batch, maxBatch);
+				return !batch.isEmpty();
+			}
+			first = queue.poll(CLOSE_CHECK_MILLIS, TimeUnit.MILLISECONDS);
+		}
+		batch.add(first);
+		queue.drainTo(batch, maxBatch - batch.size());
+		if (maxWaitNanos > 0) {
+			long deadline = System.nanoTime() + maxWaitNanos;
+			while (batch.size() < maxBatch) {
+				long remaining = deadline - System.nanoTime();
+				PendingSave next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+				if (next == null) {
+					break;
+				}
+				batch.add(next);
+				queue.drainTo(batch, maxBatch - batch.size());
+			}
+		}
+		return true;
+	}
+
+	private void flush(List<PendingSave> batch) {
+		boolean[] saved = new boolean[batch.size()];
+		try {
+			for (int i = 0; i < batch.size(); i++) {
+				PendingSave pending = batch.get(i);
+				try {
+					saved[i] = store.append(pending.username, pending.password);
+				} catch (IllegalArgumentException e) {
+					// 너무 긴 값 등 요청 하나의 문제는 그 요청만 실패
+					pending.future.completeExceptionally(e);
+				}
+			}
+			store.sync();
+		} catch (Throwable e) {
+			// 매핑한 인덱스에서 디스크가 가득 차면 InternalError 가 날 수 있음 - Error 도 같은 실패로 처리
+			failure = e;
+			for (PendingSave pending : batch) {
+				pending.future.completeExceptionally(e);
+			}
+			return;
+		}
+		batches.incrementAndGet();
+		records.addAndGet(batch.size());
+		for (int i = 0; i < batch.size(); i++) {
+			batch.get(i).future.complete(saved[i]);
+		}
+	}
+
+	private void failAll(Throwable cause) {
+		List<PendingSave> rest = new ArrayList<>();
+		queue.drainTo(rest);
+		for (PendingSave pending : rest) {
+			pending.future.completeExceptionally(cause);
+		}
+	}
+
+	private static final class PendingSave {
+		final String username;
+		final String password;
+		final CompletableFuture<Boolean> future = new CompletableFuture<>();
+
+		PendingSave(String username, String password) {
+			this.username = username;
+			this.password = password;
+		}
+	}
+}
@@ -0,0 +1,233 @@
+package architecture;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.InvocationTargetException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * LayeredController 앞에 두는 HTTP 서버 - LayeredUI(Scanner) 대신 여러 요청을 동시에 처리
+ *
+ * 요청(본문은 application/x-www-form-urlencoded : username=...&password=...)
+ *  - POST /register : 201 가입 완료, 409 이미 있는 아이디
+ *  - POST /login    : 200 로그인 성공, 401 실패
+ *  - 잘못된 요청(값이 없음, 잘못된 %인코딩, 저장할 수 없을 만큼 긴 값 등) 은 400, 다른 메서드는 405
+ *  - 본문이 MAX_BODY 보다 길면 413(다 읽지 않음)
+ *  - 그 밖의 실패(닫힌 저장소, 디스크 쓰기 실패, 해시 실패 등) 는 500 - 응답 없이 연결이 끊기지 않게
+ *  - 오류 응답 본문은 정해진 문구만(내부 예외 메시지를 보내지 않음)
+ *
+ * 요청 스레드
+ *  - 가상 스레드를 쓸 수 있는 JDK(21 이상) 면 요청마다 가상 스레드
+ *  - 아니면 고정 크기 플랫폼 스레드 풀(저장소가 fsync 로 기다리는 동안에도 다른 요청을 받을 만큼)
+ *
+ * 실행 : java -Dsun.net.httpserver.nodelay=true architecture.LayeredHttpServer [포트]
+ *  - nodelay 는 JVM 전체 설정이고 HttpServer 가 처음 쓰일 때 한 번만 읽으므로 코드가 아니라 실행 옵션으로
+ *  - 기본값은 Nagle 켜짐 - 짧은 응답이 지연 ACK 와 겹쳐 요청마다 약 40ms 씩 늦어짐
+ */
+public class LayeredHttpServer implements AutoCloseable {
+	static final int DEFAULT_PORT = 8080;
+	// 가상 스레드를 못 쓸 때 CPU 당 요청 스레드 수
+	private static final int THREADS_PER_CPU = 8;
+	// username / password 가 저장소 한도(각 32KB) 이고 모두 %인코딩(3 배) 되어도 들어가는 크기
+	static final int MAX_BODY = 256 * 1024;
+	static final String NODELAY_PROPERTY = "sun.net.httpserver.nodelay";
+
+	private static final byte[] REGISTERED = "registered".getBytes(StandardCharsets.UTF_8);
+	private static final byte[] DUPLICATE = "duplicate".getBytes(StandardCharsets.UTF_8);
+	private static final byte[] LOGIN_SUCCESS = "login success".getBytes(StandardCharsets.UTF_8);
+	private static final byte[] LOGIN_FAILURE = "login failure".getBytes(StandardCharsets.UTF_8);
+	private static final byte[] BAD_REQUEST = "username, password 가 필요합니다".getBytes(StandardCharsets.UTF_8);
+	private static final byte[] METHOD_NOT_ALLOWED = "POST 만 가능합니다".getBytes(StandardCharsets.UTF_8);
+	private static final byte[] TOO_LARGE = "본문이 너무 깁니다".getBytes(StandardCharsets.UTF_8);
+	private static final byte[] INTERNAL_ERROR = "요청을 처리하지 못했습니다".getBytes(StandardCharsets.UTF_8);
+
+	private final HttpServer server;
+	private final ExecutorService executor;
+	private final LayeredController controller;
+	private final boolean virtualThreads;
+
+	private LayeredHttpServer(HttpServer server, ExecutorService executor, boolean virtualThreads, LayeredController controller) {
+		this.server = server;
+		this.executor = executor;
+		this.virtualThreads = virtualThreads;
+		this.controller = controller;
+	}
+
+	public static void main(String[] args) {
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+		LayeredHttpServer server = start(port, new LayeredController());
+		System.out.println("LayeredHttpServer 시작 : http://localhost:" + server.getPort()
+				+ (server.usesVirtualThreads() ? " (가상 스레드)" : " (스레드 풀)"));
+	}
+
+	/**
+	 * port 가 0 이면 빈 포트를 골라서 엶
+	 */
+	public static LayeredHttpServer start(int port, LayeredController controller) {
+		ExecutorService virtual = newVirtualThreadExecutor();
+		ExecutorService executor = virtual != null ? virtual : newPlatformExecutor();
+		try {
+			HttpServer server = HttpServer.create(new InetSocketAddress(port), 0);
+			LayeredHttpServer layered = new LayeredHttpServer(server, executor, virtual != null, controller);
+			server.createContext("/register", layered::register);
+			server.createContext("/login", layered::login);
+			server.setExecutor(executor);
+			server.start();
+			return layered;
+		} catch (IOException e) {
+			executor.shutdown();
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	public int getPort() {
+		return server.getAddress().getPort();
+	}
+
+	public boolean usesVirtualThreads() {
+		return virtualThreads;
+	}
+
+	public LayeredController getController() {
+		return controller;
+	}
+
+	@Override
+	public void close() {
+		server.stop(0);
+		executor.shutdown();
+		try {
+			executor.awaitTermination(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void register(HttpExchange exchange) throws IOException {
+		try {
+			Map<String, String> form = readForm(exchange);
+			if (form == null) {
+				return;
+			}
+			if (controller.addUser(form.get("username"), form.get("password"))) {
+				respond(exchange, 201, REGISTERED);
+			} else {
+				respond(exchange, 409, DUPLICATE);
+			}
+		} catch (RuntimeException e) {
+			respondFailure(exchange, e);
+		}
+	}
+
+	private void login(HttpExchange exchange) throws IOException {
+		try {
+			Map<String, String> form = readForm(exchange);
+			if (form == null) {
+				return;
+			}
+			// 출처별 로그인 실패 제한용
+			String source = exchange.getRemoteAddress().getAddress().getHostAddress();
+			if (controller.loginProcess(form.get("username"), form.get("password"), source)) {
+				respond(exchange, 200, LOGIN_SUCCESS);
+			} else {
+				respond(exchange, 401, LOGIN_FAILURE);
+			}
+		} catch (RuntimeException e) {
+			respondFailure(exchange, e);
+		}
+	}
+
+	/**
+	 * 처리하다 난 예외 - 연결을 끊지 않고 응답
+	 *  - IllegalArgumentException : 잘못된 %인코딩(URLDecoder), 저장소가 받지 않는 값(LayeredLogStore 의 길이 제한 등) -> 400
+	 *  - 나머지 : 서버 쪽 문제 -> 500, 원인은 서버에만 출력
+	 */
+	private static void respondFailure(HttpExchange exchange, RuntimeException e) throws IOException {
+		if (e instanceof IllegalArgumentException) {
+			respond(exchange, 400, BAD_REQUEST);
+			return;
+		}
+		System.out.println("요청 처리 실패 " + exchange.getRequestURI().getPath() + " : " + e);
+		respond(exchange, 500, INTERNAL_ERROR);
+	}
+
+	/**
+	 * username / password 가 없거나 POST 가 아니거나 본문이 너무 길면 응답을 보내고 null
+	 *  - 읽지 않은 본문은 HttpServer 가 닫을 때 조금만 비우고 그래도 남으면 연결을 끊음
+	 */
+	private static Map<String, String> readForm(HttpExchange exchange) throws IOException {
+		if (!"POST".equals(exchange.getRequestMethod())) {
+			respond(exchange, 405, METHOD_NOT_ALLOWED);
+			return null;
+		}
+		byte[] body = exchange.getRequestBody().readNBytes(MAX_BODY + 1);
+		if (body.length > MAX_BODY) {
+			respond(exchange, 413, TOO_LARGE);
+			return null;
+		}
+		Map<String, String> form = parseForm(new String(body, StandardCharsets.UTF_8));
+		if (form.get("username") == null || form.get("username").isEmpty() || form.get("password") == null) {
+			respond(exchange, 400, BAD_REQUEST);
+			return null;
+		}
+		return form;
+	}
+
+	static Map<String, String> parseForm(String body) {
+		Map<String, String> form = new HashMap<>();
+		for (String pair : body.split("&")) {
+			if (pair.isEmpty()) {
+				continue;
+			}
+			int equals = pair.indexOf('=');
+			String name = equals < 0 ? pair : pair.substring(0, equals);
+			String value = equals < 0 ? "" : pair.substring(equals + 1);
+			form.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+		}
+		return form;
+	}
+
+	private static void respond(HttpExchange exchange, int status, byte[] body) throws IOException {
+		exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+		exchange.sendResponseHeaders(status, body.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(body);
+		}
+	}
+
+	/**
+	 * Executors.newVirtualThreadPerTaskExecutor 가 있으면 사용(JDK 17 로도 빌드되도록 리플렉션), 없으면 null
+	 */
+	static ExecutorService newVirtualThreadExecutor() {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (NoSuchMethodException | IllegalAccessException e) {
+			return null;
+		} catch (InvocationTargetException e) {
+			// 미리보기 기능이 꺼진 JDK 19 / 20
+			return null;
+		}
+	}
+
+	private static ExecutorService newPlatformExecutor() {
+		AtomicInteger sequence = new AtomicInteger();
+		int threads = Runtime.getRuntime().availableProcessors() * THREADS_PER_CPU;
+		return Executors.newFixedThreadPool(threads, task -> {
+			Thread thread = new Thread(task, "layered-http-" + sequence.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+}
@@ -0,0 +1,57 @@
+package architecture;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * username -> 사용자 해시 인덱스
+ *  - 리스트 전체를 훑던 login 을 해시 조회 한 번으로
+ *  - 중복 검사와 저장을 putIfAbsent 한 번으로 처리(동시에 같은 아이디로 가입해도 하나만 성공)
+ */
+class LayeredInMemoryRepository implements LayeredRepository {
+	private final ConcurrentHashMap<String, LayeredUser> users = new ConcurrentHashMap<>();
+
+	@Override
+	public boolean save(String username, String password) {
+		if (users.putIfAbsent(username, new LayeredUser(username, password)) != null) {
+			System.out.println("Memory : 이미 존재하는 아이디");
+			return false;
+		}
+		System.out.println("Memory : 회원가입 완료");
+		return true;
+	}
+
+	@Override
+	public boolean login(String username, String password) {
+		LayeredUser user = users.get(username);
+		return user != null && user.getPassword().equals(password);
+	}
+
+	@Override
+	public LayeredUser findUser(String username) {
+		return users.get(username);
+	}
+
+	@Override
+	public long size() {
+		return users.size();
+	}
+
+	@Override
+	public void forEach(Consumer<LayeredUser> action) {
+		users.values().forEach(action);
+	}
+
+	@Override
+	public boolean load(LayeredUser user) {
+		return users.putIfAbsent(user.getUsername(), user) == null;
+	}
+
+	@Override
+	public boolean replacePassword(String username, String expected, String replacement) {
+		LayeredUser current = users.get(username);
+		// LayeredUser 는 equals 가 없으므로 읽은 객체 그대로일 때만 바뀜
+		return current != null && current.getPassword().equals(expected)
+				&& users.replace(username, current, new LayeredUser(username, replacement));
+	}
+}
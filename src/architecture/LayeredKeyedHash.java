@@ -0,0 +1,78 @@
+package architecture;
+
+import java.security.SecureRandom;
+
+/**
+ * 비밀 키가 있는 문자열 해시(SipHash-2-4)
+ *
+ * 왜 필요할까?
+ *  - 키 없는 해시(FNV 등) 는 누구나 미리 계산할 수 있음 -> 같은 칸으로 모이는 username 을 오프라인에서 만들어
+ *    해시 표의 탐색을 길게 하거나 다른 키의 칸을 빼앗을 수 있음
+ *  - 키를 모르면 어떤 문자열이 어느 칸으로 가는지 알 수 없음
+ *
+ * 문자열은 UTF-16 코드 단위 2 바이트씩(리틀 엔디안) 을 메시지로 사용, 문자 4 개 = 8 바이트 블록 하나
+ * 불변이라 여러 스레드가 함께 써도 됨
+ */
+final class LayeredKeyedHash {
+	private static final SecureRandom RANDOM = new SecureRandom();
+
+	private final long k0;
+	private final long k1;
+
+	LayeredKeyedHash(long k0, long k1) {
+		this.k0 = k0;
+		this.k1 = k1;
+	}
+
+	// 프로세스마다 다른 무작위 키
+	static LayeredKeyedHash random() {
+		return new LayeredKeyedHash(RANDOM.nextLong(), RANDOM.nextLong());
+	}
+
+	long k0() {
+		return k0;
+	}
+
+	long k1() {
+		return k1;
+	}
+
+	long hash(String key) {
+		long v0 = k0 ^ 0x736F6D6570736575L;
+		long v1 = k1 ^ 0x646F72616E646F6DL;
+		long v2 = k0 ^ 0x6C7967656E657261L;
+		long v3 = k1 ^ 0x7465646279746573L;
+		int length = key.length();
+		int end = length & ~3;
+		// 블록마다 SipRound 2 번, 마지막 블록 = 남은 문자 + 맨 위 바이트에 메시지 길이(바이트)
+		for (int i = 0; i <= end; i += 4) {
+			long m;
+			if (i < end) {
+				m = key.charAt(i) | (long) key.charAt(i + 1) << 16 | (long) key.charAt(i + 2) << 32
+						| (long) key.charAt(i + 3) << 48;
+			} else {
+				m = (long) (length * 2) << 56;
+				for (int j = end; j < length; j++) {
+					m |= (long) key.charAt(j) << ((j - end) * 16);
+				}
+			}
+			v3 ^= m;
+			for (int round = 0; round < 2; round++) {
+				v0 += v1; v1 = Long.rotateLeft(v1, 13); v1 ^= v0; v0 = Long.rotateLeft(v0, 32);
+				v2 += v3; v3 = Long.rotateLeft(v3, 16); v3 ^= v2;
+				v0 += v3; v3 = Long.rotateLeft(v3, 21); v3 ^= v0;
+				v2 += v1; v1 = Long.rotateLeft(v1, 17); v1 ^= v2; v2 = Long.rotateLeft(v2, 32);
+			}
+			v0 ^= m;
+		}
+		// 마무리 SipRound 4 번
+		v2 ^= 0xFF;
+		for (int round = 0; round < 4; round++) {
+			v0 += v1; v1 = Long.rotateLeft(v1, 13); v1 ^= v0; v0 = Long.rotateLeft(v0, 32);
+			v2 += v3; v3 = Long.rotateLeft(v3, 16); v3 ^= v2;
+			v0 += v3; v3 = Long.rotateLeft(v3, 21); v3 ^= v0;
+			v2 += v1; v1 = Long.rotateLeft(v1, 17); v1 ^= v2; v2 = Long.rotateLeft(v2, 32);
+		}
+		return v0 ^ v1 ^ v2 ^ v3;
+	}
+}
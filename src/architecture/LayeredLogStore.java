@@ -0,0 +1,892 @@
+package architecture;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * LayeredDBRepository 의 저장 엔진 - 외부 DB 없이 파일 두 개로 영속화
+ *
+ * users.log : 추가만 하는 레코드 로그(FileChannel)
+ *  - 레코드 = [payload 길이 int][CRC32C int][username 길이 short][username][password 길이 short][password]
+ *  - 64KB 쓰기 버퍼에 모았다가 한 번에 write
+ *
+ * users.idx : 메모리 매핑한 개방 주소법 해시 인덱스(LayeredMappedIndex)
+ *  - 슬롯 16 바이트 = [username 64 비트 해시][로그 위치]
+ *  - 해시는 인덱스를 만들 때 정한 무작위 키의 SipHash(키는 헤더에) - 미리 맞춘 username 으로 긴 탐색 사슬을 만들 수 없음
+ *  - 헤더에 "여기까지는 로그와 인덱스가 모두 디스크에 있음" 인 로그 길이(committed) 를 기록, sync 가 끝난 뒤에만 바꿈
+ *
+ * sync : 쓰기 버퍼 -> 로그 fsync -> 인덱스 fsync -> 헤더의 committed 갱신 순서
+ *  - syncEvery 건마다 자동으로, close 때 한 번 더
+ *  - 저장한 레코드는 sync 전에도 조회됨(같은 묶음 안의 중복 가입을 걸러야 하므로)
+ *  - 쓰기나 sync 가 실패하면(Error 포함) 파일 상태를 알 수 없으므로 이후 쓰기를 모두 거절하고
+ *    마지막으로 sync 한 뒤에 저장한 레코드는 조회에서 숨김 -> 실패로 답한 가입이 보이거나 다시 가입을 막지 않음
+ *
+ * 시작할 때 복구
+ *  - 인덱스를 매핑하고 committed 이후의 로그 꼬리만 다시 읽어서 인덱스에 추가 -> 로그 전체를 다시 읽지 않음
+ *  - 꼬리에서 길이가 모자라거나 CRC 가 맞지 않는 레코드(쓰다가 죽은 것) 부터는 잘라냄
+ *  - 인덱스 파일이 없거나 깨졌으면 로그 전체로 다시 만듦
+ *      이때 깨진 레코드 뒤에 바이트가 더 있으면 쓰다 만 꼬리가 아니라 손상 - 잘라내지 않고 예외(IllegalStateException)
+ *  - close 로 닫지 않았으면 로그 길이와 관계없이 인덱스에서 committed 이후를 가리키는 슬롯을 버린 뒤 꼬리를 다시 읽음
+ *    (sync 전의 슬롯은 로그 바이트보다 먼저 디스크에 내려갈 수 있음 - 로그 길이가 committed 와 같아도 남아 있을 수 있음)
+ *  - 그래도 조회할 때 레코드의 CRC 와 username 을 항상 확인
+ *  - 같은 username 의 레코드가 여럿이면(replace) 마지막 레코드를 씀
+ *
+ * 동시성 : 저장은 쓰기 락, 조회는 읽기 락(위치 지정 read 와 매핑 읽기는 여러 스레드가 동시에 가능)
+ */
+class LayeredLogStore implements AutoCloseable {
+	static final String LOG_FILE = "users.log";
+	static final String INDEX_FILE = "users.idx";
+
+	private static final int RECORD_HEADER = 8;
+	private static final int MAX_FIELD = Short.MAX_VALUE;
+	private static final int MAX_PAYLOAD = 4 + 2 * MAX_FIELD;
+	private static final int WRITE_BUFFER = 64 * 1024;
+	private static final int READ_BUFFER = 256;
+
+	private final Path directory;
+	private final FileChannel log;
+	private LayeredMappedIndex index;
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+	private final ByteBuffer writeBuffer = ByteBuffer.allocate(WRITE_BUFFER);
+	private final ThreadLocal<ByteBuffer> readBuffers = ThreadLocal.withInitial(() -> ByteBuffer.allocate(READ_BUFFER));
+	private final int syncEvery;
+	// 파일에 write 한 길이, 그 뒤는 writeBuffer 에 있음
+	private long fileLength;
+	// 마지막으로 sync 한 로그 길이
+	private long synced;
+	// 조회할 수 있는 로그 위치의 끝 - 쓰기가 실패하면 synced 로 줄어듦
+	private long visibleLength = Long.MAX_VALUE;
+	private Throwable failure;
+	private int unsynced;
+	private long recoveredRecords;
+	private long recoveryNanos;
+	private boolean closed;
+
+	private LayeredLogStore(Path directory, FileChannel log, int syncEvery) {
+		this.directory = directory;
+		this.log = log;
+		this.syncEvery = syncEvery;
+	}
+
+	public static LayeredLogStore open(Path directory, int syncEvery) {
+		if (syncEvery <= 0) {
+			throw new IllegalArgumentException("syncEvery 는 1 이상이어야 합니다.");
+		}
+		long start = System.nanoTime();
+		try {
+			Files.createDirectories(directory);
+			FileChannel log = FileChannel.open(directory.resolve(LOG_FILE),
+					StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+			LayeredLogStore store = new LayeredLogStore(directory, log, syncEvery);
+			try {
+				store.recover();
+			} catch (IOException | RuntimeException e) {
+				if (store.index != null) {
+					store.index.close();
+				}
+				log.close();
+				throw e;
+			}
+			store.recoveryNanos = System.nanoTime() - start;
+			return store;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * 저장 - 이미 있는 username 이면 false
+	 */
+	public boolean append(String username, String password) {
+		byte[] user = encode(username);
+		byte[] secret = encode(password);
+		lock.writeLock().lock();
+		try {
+			ensureWritable();
+			if (find(username) != null) {
+				return false;
+			}
+			long offset = appendRecord(user, secret);
+			index.put(hash(username), offset);
+			if (++unsynced >= syncEvery) {
+				sync();
+			}
+			return true;
+		} catch (IOException e) {
+			fail(e);
+			throw new UncheckedIOException(e);
+		} catch (Error e) {
+			fail(e);
+			throw e;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * 이관 / 일괄 적재용 저장 - syncEvery 와 관계없이 fsync 하지 않음, 다 넣은 뒤 sync 호출
+	 */
+	public boolean load(String username, String password) {
+		byte[] user = encode(username);
+		byte[] secret = encode(password);
+		lock.writeLock().lock();
+		try {
+			ensureWritable();
+			if (find(username) != null) {
+				return false;
+			}
+			index.put(hash(username), appendRecord(user, secret));
+			return true;
+		} catch (IOException e) {
+			fail(e);
+			throw new UncheckedIOException(e);
+		} catch (Error e) {
+			fail(e);
+			throw e;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * 여러 명을 쓰기 락 한 번 + sync 한 번으로 저장, 새로 저장한 수 반환(이미 있는 username 은 건너뜀)
+	 */
+	public int appendAll(List<LayeredUser> users) {
+		byte[][] encoded = new byte[users.size() * 2][];
+		for (int i = 0; i < users.size(); i++) {
+			encoded[i * 2] = encode(users.get(i).getUsername());
+			encoded[i * 2 + 1] = encode(users.get(i).getPassword());
+		}
+		lock.writeLock().lock();
+		try {
+			ensureWritable();
+			int saved = 0;
+			for (int i = 0; i < users.size(); i++) {
+				String username = users.get(i).getUsername();
+				if (find(username) == null) {
+					index.put(hash(username), appendRecord(encoded[i * 2], encoded[i * 2 + 1]));
+					saved++;
+				}
+			}
+			sync();
+			return saved;
+		} catch (IOException e) {
+			fail(e);
+			throw new UncheckedIOException(e);
+		} catch (Error e) {
+			fail(e);
+			throw e;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * 저장된 비밀번호가 expected 일 때만 replacement 로 바꿈, 바꿨으면 true
+	 *  - 새 레코드를 로그 끝에 쓰고 sync 한 뒤에 슬롯이 새 레코드를 가리키게 함
+	 *      슬롯이 가리키는 위치는 항상 committed 앞 -> 비정상 종료 뒤 복구에서 슬롯이 버려지지 않음
+	 *      슬롯을 바꾸기 전에 죽으면 이전 레코드를 그대로 가리킴(바꾸지 않은 것과 같음)
+	 *  - 이전 레코드는 로그에 남지만 조회 / forEach / 복구에서는 마지막 레코드만 사용
+	 */
+	public boolean replace(String username, String expected, String replacement) {
+		byte[] user = encode(username);
+		byte[] secret = encode(replacement);
+		lock.writeLock().lock();
+		try {
+			ensureWritable();
+			long slot = slotOf(username);
+			if (slot < 0 || !readRecord(index.offsetAt(slot)).getPassword().equals(expected)) {
+				return false;
+			}
+			long offset = appendRecord(user, secret);
+			sync();
+			index.replace(slot, offset);
+			return true;
+		} catch (IOException e) {
+			fail(e);
+			throw new UncheckedIOException(e);
+		} catch (Error e) {
+			fail(e);
+			throw e;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * 저장된 사용자를 로그 순서대로 - 호출한 시점까지 저장된 사용자만
+	 *  - 파일에 쓴 부분은 바뀌지 않으므로 쓰기 버퍼만 내려놓고 락 없이 읽음(저장 / 조회를 막지 않음)
+	 *  - replace 로 밀려난 이전 레코드는 건너뜀(호출한 뒤에 바뀐 사용자는 빠질 수 있음)
+	 */
+	public void forEach(Consumer<LayeredUser> action) {
+		long end;
+		lock.writeLock().lock();
+		try {
+			ensureOpen();
+			if (failure == null) {
+				flushBuffer();
+			}
+			end = Math.min(fileLength, visibleLength);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			lock.writeLock().unlock();
+		}
+		try {
+			scan(0, end, (user, position) -> {
+				if (isCurrent(user.getUsername(), position)) {
+					action.accept(user);
+				}
+			});
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * username 으로 조회, 없으면 null
+	 */
+	public LayeredUser find(String username) {
+		lock.readLock().lock();
+		try {
+			ensureOpen();
+			long hash = hash(username);
+			long limit = visibleLength;
+			for (long slot = index.slotOf(hash); ; slot = index.next(slot)) {
+				long stored = index.hashAt(slot);
+				if (stored == LayeredMappedIndex.EMPTY) {
+					return null;
+				}
+				if (stored == hash && index.offsetAt(slot) < limit) {
+					LayeredUser user = readRecord(index.offsetAt(slot));
+					if (user != null && user.getUsername().equals(username)) {
+						return user;
+					}
+				}
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * 지금까지 저장한 레코드를 디스크에 내림
+	 */
+	public void sync() {
+		lock.writeLock().lock();
+		try {
+			ensureWritable();
+			flushBuffer();
+			log.force(false);
+			index.commit(fileLength);
+			synced = fileLength;
+			unsynced = 0;
+		} catch (IOException e) {
+			fail(e);
+			throw new UncheckedIOException(e);
+		} catch (Error e) {
+			fail(e);
+			throw e;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public void close() {
+		lock.writeLock().lock();
+		try {
+			if (closed) {
+				return;
+			}
+			try {
+				if (failure == null) {
+					sync();
+					// 다음에 열 때 슬롯 검사를 건너뜀
+					index.markClean();
+				}
+			} finally {
+				closed = true;
+				index.close();
+				log.close();
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public long size() {
+		lock.readLock().lock();
+		try {
+			return index.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	// 로그 길이(쓰기 버퍼 포함)
+	public long logLength() {
+		lock.readLock().lock();
+		try {
+			return fileLength + writeBuffer.position();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	// 시작할 때 로그 꼬리에서 다시 읽은 레코드 수 / 걸린 시간
+	public long getRecoveredRecords() {
+		return recoveredRecords;
+	}
+
+	public long getRecoveryNanos() {
+		return recoveryNanos;
+	}
+
+	public Path getDirectory() {
+		return directory;
+	}
+
+	private void recover() throws IOException {
+		long length = log.size();
+		Path indexPath = directory.resolve(INDEX_FILE);
+		index = LayeredMappedIndex.open(indexPath);
+		long committed = index == null ? -1 : index.committedLength();
+		boolean rebuilt = index == null || committed > length;
+		if (rebuilt) {
+			// 인덱스가 없거나 로그보다 앞서 있으면(로그가 바뀐 경우) 처음부터
+			if (index != null) {
+				index.close();
+			}
+			index = LayeredMappedIndex.create(indexPath, LayeredMappedIndex.MIN_CAPACITY);
+			committed = 0;
+		} else if (!index.isClean() || committed < length) {
+			// 정상 종료가 아님 - sync 뒤에 추가된 슬롯은 로그보다 먼저 디스크에 있을 수 있으므로 버리고 꼬리에서 다시 만듦
+			index = index.retainBelow(committed);
+		}
+		// 복구 중 조회가 파일 전체를 읽을 수 있게 한 뒤 정상 레코드 끝으로 맞춤
+		fileLength = length;
+		fileLength = scan(committed, length, (user, position) -> {
+			// 같은 username 이 다시 나오면 replace 로 쓴 레코드 - 마지막 레코드가 맞음
+			long slot = slotOf(user.getUsername());
+			if (slot < 0) {
+				index.put(hash(user.getUsername()), position);
+			} else {
+				index.replace(slot, position);
+			}
+			recoveredRecords++;
+		});
+		if (fileLength < length) {
+			if (rebuilt && !isTornTail(fileLength, length)) {
+				// committed 를 모르므로 sync 된 레코드일 수 있음 - 뒤의 레코드를 지우지 않고 알림
+				throw new IllegalStateException("로그가 손상되었습니다 : " + directory.resolve(LOG_FILE) + " 의 "
+						+ fileLength + " 바이트 위치(전체 " + length + " 바이트)");
+			}
+			// 쓰다 만 레코드 제거
+			log.truncate(fileLength);
+		}
+		log.force(false);
+		index.commit(fileLength);
+		// 여기서부터 close 전에 죽으면 다음에 열 때 슬롯을 검사
+		index.markDirty();
+		synced = fileLength;
+	}
+
+	/**
+	 * position 의 깨진 레코드가 쓰다 만 마지막 레코드인지
+	 *  - 레코드가 파일 끝까지 닿거나, 남은 바이트가 모두 0(파일 크기만 먼저 늘어난 것) 이면 true
+	 *  - 그 뒤에 다른 바이트가 더 있으면 손상
+	 */
+	private boolean isTornTail(long position, long length) throws IOException {
+		if (length - position < RECORD_HEADER) {
+			return true;
+		}
+		ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER);
+		readFully(header, position, RECORD_HEADER);
+		int payload = header.getInt(0);
+		if (payload >= 0 && payload <= MAX_PAYLOAD && position + RECORD_HEADER + payload >= length) {
+			return true;
+		}
+		ByteBuffer buffer = ByteBuffer.allocate(1 << 20);
+		for (long at = position; at < length; at += buffer.limit()) {
+			buffer.clear();
+			readFully(buffer, at, (int) Math.min(buffer.capacity(), length - at));
+			if (buffer.limit() == 0) {
+				break;
+			}
+			while (buffer.hasRemaining()) {
+				if (buffer.get() != 0) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * [from, to) 의 로그를 순서대로 읽어서 레코드마다 visitor 호출, 마지막 정상 레코드의 끝 위치 반환
+	 *  - 1MB 버퍼로 읽으므로 가장 긴 레코드(약 64KB) 도 항상 버퍼 하나에 들어감
+	 */
+	private long scan(long from, long to, RecordVisitor visitor) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(1 << 20);
+		buffer.limit(0);
+		long position = from;
+		// buffer 의 0 번이 가리키는 로그 위치
+		long bufferStart = from;
+		while (true) {
+			int start = (int) (position - bufferStart);
+			if (!hasRecord(buffer, start)) {
+				// 남은 바이트를 앞으로 당기고 더 읽음
+				buffer.position(start);
+				buffer.compact();
+				bufferStart = position;
+				buffer.limit((int) Math.min(buffer.capacity(), to - bufferStart));
+				while (buffer.hasRemaining() && log.read(buffer, bufferStart + buffer.position()) > 0) {
+					// 가득 차거나 to 까지
+				}
+				buffer.flip();
+				start = 0;
+				if (!hasRecord(buffer, start)) {
+					break;
+				}
+			}
+			LayeredUser user = decode(buffer, start);
+			if (user == null) {
+				break;
+			}
+			visitor.visit(user, position);
+			position += RECORD_HEADER + buffer.getInt(start);
+		}
+		return position;
+	}
+
+	private interface RecordVisitor {
+		void visit(LayeredUser user, long position) throws IOException;
+	}
+
+	// start 부터 레코드 하나가 온전히 들어있는지(길이가 말이 안 되면 true, decode 가 걸러냄)
+	private static boolean hasRecord(ByteBuffer buffer, int start) {
+		int available = buffer.limit() - start;
+		if (available < RECORD_HEADER) {
+			return false;
+		}
+		int payload = buffer.getInt(start);
+		return payload < 0 || payload > MAX_PAYLOAD || available >= RECORD_HEADER + payload;
+	}
+
+	// username 의 슬롯, 없으면 -1 - 쓰기 락 안에서나 복구 중에만
+	private long slotOf(String username) throws IOException {
+		long hash = hash(username);
+		for (long slot = index.slotOf(hash); ; slot = index.next(slot)) {
+			long stored = index.hashAt(slot);
+			if (stored == LayeredMappedIndex.EMPTY) {
+				return -1;
+			}
+			if (stored == hash) {
+				LayeredUser user = readRecord(index.offsetAt(slot));
+				if (user != null && user.getUsername().equals(username)) {
+					return slot;
+				}
+			}
+		}
+	}
+
+	// position 의 레코드가 username 의 지금 레코드인지(replace 로 밀려났으면 false)
+	private boolean isCurrent(String username, long position) {
+		long hash = hash(username);
+		lock.readLock().lock();
+		try {
+			for (long slot = index.slotOf(hash); ; slot = index.next(slot)) {
+				long stored = index.hashAt(slot);
+				if (stored == LayeredMappedIndex.EMPTY) {
+					return false;
+				}
+				if (stored == hash && index.offsetAt(slot) == position) {
+					return true;
+				}
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private long appendRecord(byte[] user, byte[] secret) throws IOException {
+		int size = RECORD_HEADER + 4 + user.length + secret.length;
+		if (size > writeBuffer.capacity()) {
+			// 버퍼보다 긴 레코드는 바로 씀
+			flushBuffer();
+			ByteBuffer record = ByteBuffer.allocate(size);
+			fill(record, user, secret);
+			record.flip();
+			long offset = fileLength;
+			writeFully(record, offset);
+			fileLength += size;
+			return offset;
+		}
+		if (writeBuffer.remaining() < size) {
+			flushBuffer();
+		}
+		long offset = fileLength + writeBuffer.position();
+		fill(writeBuffer, user, secret);
+		return offset;
+	}
+
+	private static void fill(ByteBuffer target, byte[] user, byte[] secret) {
+		int start = target.position();
+		int payload = 4 + user.length + secret.length;
+		target.putInt(payload);
+		target.putInt(0);
+		target.putShort((short) user.length).put(user);
+		target.putShort((short) secret.length).put(secret);
+		CRC32C crc = new CRC32C();
+		crc.update(target.array(), start + RECORD_HEADER, payload);
+		target.putInt(start + 4, (int) crc.getValue());
+	}
+
+	private void flushBuffer() throws IOException {
+		if (writeBuffer.position() == 0) {
+			return;
+		}
+		writeBuffer.flip();
+		writeFully(writeBuffer, fileLength);
+		fileLength += writeBuffer.limit();
+		writeBuffer.clear();
+	}
+
+	private void writeFully(ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			position += log.write(buffer, position);
+		}
+	}
+
+	/**
+	 * offset 의 레코드를 읽음, 범위를 벗어나거나 CRC 가 맞지 않으면 null
+	 */
+	private LayeredUser readRecord(long offset) throws IOException {
+		long end = fileLength + writeBuffer.position();
+		if (offset < 0 || offset + RECORD_HEADER > end) {
+			return null;
+		}
+		if (offset >= fileLength) {
+			// 아직 파일에 쓰지 않은 레코드
+			int start = (int) (offset - fileLength);
+			if (start + RECORD_HEADER + writeBuffer.getInt(start) > writeBuffer.position()) {
+				return null;
+			}
+			return decode(writeBuffer, start);
+		}
+		ByteBuffer buffer = readBuffers.get();
+		buffer.clear();
+		readFully(buffer, offset, Math.min(buffer.capacity(), (int) Math.min(Integer.MAX_VALUE, fileLength - offset)));
+		int payload = buffer.getInt(0);
+		if (payload < 0 || offset + RECORD_HEADER + payload > fileLength) {
+			return null;
+		}
+		if (RECORD_HEADER + payload > buffer.limit()) {
+			// 긴 레코드는 따로 읽음
+			buffer = ByteBuffer.allocate(RECORD_HEADER + payload);
+			readFully(buffer, offset, buffer.capacity());
+		}
+		return decode(buffer, 0);
+	}
+
+	private void readFully(ByteBuffer buffer, long position, int length) throws IOException {
+		buffer.limit(length);
+		while (buffer.hasRemaining()) {
+			int read = log.read(buffer, position + buffer.position());
+			if (read < 0) {
+				break;
+			}
+		}
+		buffer.flip();
+	}
+
+	// buffer 의 start 위치 레코드 해석, CRC 가 맞지 않으면 null
+	private static LayeredUser decode(ByteBuffer buffer, int start) {
+		int payload = buffer.getInt(start);
+		if (payload < 4 || payload > MAX_PAYLOAD || start + RECORD_HEADER + payload > buffer.limit()) {
+			return null;
+		}
+		CRC32C crc = new CRC32C();
+		ByteBuffer body = buffer.duplicate();
+		body.limit(start + RECORD_HEADER + payload).position(start + RECORD_HEADER);
+		crc.update(body);
+		if ((int) crc.getValue() != buffer.getInt(start + 4)) {
+			return null;
+		}
+		int position = start + RECORD_HEADER;
+		int userLength = buffer.getShort(position) & 0xFFFF;
+		String username = string(buffer, position + 2, userLength);
+		position += 2 + userLength;
+		int secretLength = buffer.getShort(position) & 0xFFFF;
+		if (4 + userLength + secretLength != payload) {
+			return null;
+		}
+		String password = string(buffer, position + 2, secretLength);
+		return new LayeredUser(username, password);
+	}
+
+	private static String string(ByteBuffer buffer, int position, int length) {
+		byte[] bytes = new byte[length];
+		buffer.get(position, bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static byte[] encode(String value) {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		if (bytes.length > MAX_FIELD) {
+			throw new IllegalArgumentException("값이 너무 깁니다 : " + bytes.length + " 바이트");
+		}
+		return bytes;
+	}
+
+	private void ensureOpen() {
+		if (closed) {
+			throw new IllegalStateException("닫힌 저장소입니다 : " + directory);
+		}
+	}
+
+	private void ensureWritable() {
+		ensureOpen();
+		if (failure != null) {
+			throw new IllegalStateException("디스크 쓰기에 실패한 저장소입니다 : " + directory, failure);
+		}
+	}
+
+	// 쓰기 락 안에서만 - 마지막 sync 뒤에 저장한 레코드를 조회에서 숨기고 이후 쓰기를 거절
+	private void fail(Throwable cause) {
+		if (failure == null) {
+			failure = cause;
+			visibleLength = synced;
+		}
+	}
+
+	// 인덱스 키로 만든 username 해시
+	private long hash(String username) {
+		return index.hash(username);
+	}
+}
+
+/**
+ * 메모리 매핑한 개방 주소법 해시 인덱스
+ *  - 헤더 64 바이트 : [MAGIC int][VERSION int][슬롯 수 long][항목 수 long][committed 로그 길이 long]
+ *                     [해시 키 long x 2][정상 종료 int]
+ *      해시 키는 만들 때 무작위로 정하고 커질 때(복사) 도 그대로
+ *      정상 종료는 close 에서 마지막 sync 뒤에 1, 열고 복구를 마치면 0
+ *  - 슬롯 16 바이트 : [해시 long][로그 위치 long], 해시 0 은 빈 슬롯
+ *  - 채움률 50% 를 넘으면 두 배 크기의 새 파일을 만들어 옮긴 뒤 원자적으로 교체
+ *  - 매핑 하나로 처리하므로 슬롯 수는 2^26 까지(사용자 약 3300 만 명)
+ */
+class LayeredMappedIndex implements AutoCloseable {
+	static final long EMPTY = 0;
+	static final long MIN_CAPACITY = 1 << 16;
+	private static final long MAX_CAPACITY = 1L << 26;
+	private static final int MAGIC = 0x4C594458;
+	private static final int VERSION = 2;
+	private static final int HEADER = 64;
+	private static final int SLOT = 16;
+	private static final int CAPACITY_AT = 8;
+	private static final int SIZE_AT = 16;
+	private static final int COMMITTED_AT = 24;
+	private static final int KEY_AT = 32;
+	private static final int CLEAN_AT = 48;
+
+	private final Path path;
+	private final LayeredKeyedHash keyedHash;
+	private FileChannel channel;
+	private MappedByteBuffer buffer;
+	private long capacity;
+	private long mask;
+	private long size;
+
+	private LayeredMappedIndex(Path path, FileChannel channel, MappedByteBuffer buffer) {
+		this.path = path;
+		this.channel = channel;
+		this.buffer = buffer;
+		this.capacity = buffer.getLong(CAPACITY_AT);
+		this.mask = capacity - 1;
+		this.size = buffer.getLong(SIZE_AT);
+		this.keyedHash = new LayeredKeyedHash(buffer.getLong(KEY_AT), buffer.getLong(KEY_AT + 8));
+	}
+
+	/**
+	 * 기존 인덱스 열기, 없거나 헤더가 맞지 않으면 null
+	 */
+	static LayeredMappedIndex open(Path path) throws IOException {
+		if (!Files.exists(path) || Files.size(path) < HEADER) {
+			return null;
+		}
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+		long capacity = buffer.getLong(CAPACITY_AT);
+		if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION || Long.bitCount(capacity) != 1
+				|| capacity > MAX_CAPACITY || channel.size() != HEADER + capacity * SLOT) {
+			channel.close();
+			return null;
+		}
+		return new LayeredMappedIndex(path, channel, buffer);
+	}
+
+	static LayeredMappedIndex create(Path path, long capacity) throws IOException {
+		return create(path, capacity, LayeredKeyedHash.random());
+	}
+
+	private static LayeredMappedIndex create(Path path, long capacity, LayeredKeyedHash keyedHash) throws IOException {
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+				StandardOpenOption.READ, StandardOpenOption.WRITE);
+		MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER + capacity * SLOT);
+		buffer.putInt(0, MAGIC);
+		buffer.putInt(4, VERSION);
+		buffer.putLong(CAPACITY_AT, capacity);
+		buffer.putLong(SIZE_AT, 0);
+		buffer.putLong(COMMITTED_AT, 0);
+		buffer.putLong(KEY_AT, keyedHash.k0());
+		buffer.putLong(KEY_AT + 8, keyedHash.k1());
+		buffer.putInt(CLEAN_AT, 0);
+		return new LayeredMappedIndex(path, channel, buffer);
+	}
+
+	/**
+	 * username 의 64 비트 해시, 0 은 빈 슬롯 표시라서 쓰지 않음
+	 */
+	long hash(String username) {
+		long h = keyedHash.hash(username);
+		return h == EMPTY ? 1 : h;
+	}
+
+	long slotOf(long hash) {
+		return (hash ^ (hash >>> 29)) & mask;
+	}
+
+	long next(long slot) {
+		return (slot + 1) & mask;
+	}
+
+	long hashAt(long slot) {
+		return buffer.getLong(HEADER + (int) (slot * SLOT));
+	}
+
+	long offsetAt(long slot) {
+		return buffer.getLong(HEADER + (int) (slot * SLOT) + 8);
+	}
+
+	void put(long hash, long offset) throws IOException {
+		if ((size + 1) * 2 > capacity) {
+			grow();
+		}
+		long slot = slotOf(hash);
+		while (hashAt(slot) != EMPTY) {
+			slot = next(slot);
+		}
+		int position = HEADER + (int) (slot * SLOT);
+		buffer.putLong(position + 8, offset);
+		buffer.putLong(position, hash);
+		size++;
+	}
+
+	// 이미 있는 슬롯이 가리키는 로그 위치만 바꿈
+	void replace(long slot, long offset) {
+		buffer.putLong(HEADER + (int) (slot * SLOT) + 8, offset);
+	}
+
+	long size() {
+		return size;
+	}
+
+	long committedLength() {
+		return buffer.getLong(COMMITTED_AT);
+	}
+
+	boolean isClean() {
+		return buffer.getInt(CLEAN_AT) == 1;
+	}
+
+	// close 에서 마지막 commit 뒤에 - 이 뒤로는 슬롯을 바꾸지 않음
+	void markClean() {
+		buffer.putInt(CLEAN_AT, 1);
+		buffer.force(0, HEADER);
+	}
+
+	// 복구를 마친 뒤 첫 쓰기 전에 - 디스크에 내려간 뒤에 슬롯을 바꿈
+	void markDirty() {
+		buffer.putInt(CLEAN_AT, 0);
+		buffer.force(0, HEADER);
+	}
+
+	/**
+	 * 슬롯을 디스크에 내린 뒤 헤더의 항목 수와 committed 로그 길이 기록
+	 */
+	void commit(long logLength) {
+		buffer.putLong(SIZE_AT, size);
+		buffer.force();
+		buffer.putLong(COMMITTED_AT, logLength);
+		buffer.force(0, HEADER);
+	}
+
+	/**
+	 * 로그 위치가 limit 보다 앞인 슬롯만 남긴 새 인덱스(같은 크기) - 비정상 종료 뒤 복구용
+	 */
+	LayeredMappedIndex retainBelow(long limit) throws IOException {
+		replaceWith(copy(capacity, limit));
+		return this;
+	}
+
+	private void grow() throws IOException {
+		if (capacity >= MAX_CAPACITY) {
+			throw new IllegalStateException("인덱스가 가득 찼습니다 : " + size + " 건");
+		}
+		replaceWith(copy(capacity * 2, Long.MAX_VALUE));
+	}
+
+	// 임시 파일에 슬롯을 옮겨 담음
+	private LayeredMappedIndex copy(long newCapacity, long offsetLimit) throws IOException {
+		LayeredMappedIndex copy = create(temporaryPath(), newCapacity, keyedHash);
+		for (long slot = 0; slot < capacity; slot++) {
+			long hash = hashAt(slot);
+			if (hash != EMPTY && offsetAt(slot) < offsetLimit) {
+				copy.put(hash, offsetAt(slot));
+			}
+		}
+		copy.buffer.putLong(COMMITTED_AT, committedLength());
+		copy.buffer.putLong(SIZE_AT, copy.size);
+		copy.buffer.force();
+		return copy;
+	}
+
+	// 임시 파일을 원래 이름으로 원자적으로 바꾸고 매핑을 넘겨받음
+	private void replaceWith(LayeredMappedIndex copy) throws IOException {
+		Files.move(temporaryPath(), path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		channel.close();
+		// 이전 매핑은 GC 가 해제
+		channel = copy.channel;
+		buffer = copy.buffer;
+		capacity = copy.capacity;
+		mask = copy.mask;
+		size = copy.size;
+	}
+
+	private Path temporaryPath() {
+		return path.resolveSibling(path.getFileName() + ".tmp");
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+}
@@ -0,0 +1,101 @@
+package architecture;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * 로그인 실패 횟수 제한 - username 별, 요청 출처(IP 등) 별로 최근 window 동안의 실패 수를 셈
+ *
+ * 왜 필요할까?
+ *  - 크리덴셜 스터핑 공격에서는 틀린 로그인 하나하나가 저장소 조회 + 비밀번호 비교(해시면 수십 ms) 까지 감
+ *  - 실패가 쌓인 username / 출처는 저장소에 가기 전에 바로 거절
+ *
+ * 정책
+ *  - 최근 window 동안 username 의 실패가 maxFailuresPerUser 이상이면 거절(비밀번호가 맞아도)
+ *  - 최근 window 동안 출처의 실패가 maxFailuresPerSource 이상이면 거절
+ *  - 시도는 저장소에 가기 전에 실패로 먼저 세어 둠(acquire)
+ *      올리면서 합계를 받으므로 동시에 들어온 시도도 한도만큼만 통과(확인만 하고 나중에 세면 모두 통과)
+ *  - 로그인에 성공하면 그 username 의 실패 수는 초기화, 출처에 먼저 세어 둔 한 번은 되돌림
+ *  - 거절한 시도는 되돌려서 실패로 세지 않음(공격이 계속되어도 window 가 지나면 풀림)
+ *  - 한도에 닿은 username / 출처의 카운터는 다른 키가 빼앗지 못함(LayeredAttemptCounter 의 pinned)
+ *      표가 막힌 키로 가득 차서 한쪽을 세지 못하면 다른 쪽 한도만 적용, 둘 다 세지 못하면 거절
+ */
+class LayeredLoginThrottle {
+	static final Duration DEFAULT_WINDOW = Duration.ofMinutes(5);
+	static final int DEFAULT_MAX_FAILURES_PER_USER = 5;
+	static final int DEFAULT_MAX_FAILURES_PER_SOURCE = 50;
+	static final int DEFAULT_SLOTS = 1 << 16;
+
+	private final LayeredAttemptCounter users;
+	private final LayeredAttemptCounter sources;
+	private final int maxFailuresPerUser;
+	private final int maxFailuresPerSource;
+	private final LongAdder rejected = new LongAdder();
+
+	public LayeredLoginThrottle() {
+		this(DEFAULT_WINDOW, DEFAULT_MAX_FAILURES_PER_USER, DEFAULT_MAX_FAILURES_PER_SOURCE, DEFAULT_SLOTS, System::nanoTime);
+	}
+
+	public LayeredLoginThrottle(Duration window, int maxFailuresPerUser, int maxFailuresPerSource, int slots,
+			LongSupplier clock) {
+		if (maxFailuresPerUser <= 0 || maxFailuresPerSource <= 0) {
+			throw new IllegalArgumentException("허용 실패 수는 1 이상이어야 합니다.");
+		}
+		this.users = new LayeredAttemptCounter(slots, window, clock, maxFailuresPerUser);
+		this.sources = new LayeredAttemptCounter(slots, window, clock, maxFailuresPerSource);
+		this.maxFailuresPerUser = maxFailuresPerUser;
+		this.maxFailuresPerSource = maxFailuresPerSource;
+	}
+
+	/**
+	 * 저장소에 가기 전에 이번 시도를 실패로 세어 둠, source 는 null 가능
+	 *  - 거절이면 -1(세어 둔 것은 되돌리고 거절 수만 올림)
+	 *  - 통과면 recordSuccess 에 넘길 값, 로그인에 실패하면 더 할 일이 없음
+	 */
+	public long acquire(String username, String source) {
+		// users / sources 는 같은 window 와 clock 이므로 시간 칸 번호도 같음
+		long epoch = users.epoch();
+		int userFailures = users.record(username, epoch);
+		if (userFailures > maxFailuresPerUser) {
+			users.release(username, epoch);
+			rejected.increment();
+			return -1;
+		}
+		int sourceFailures = source == null ? LayeredAttemptCounter.UNTRACKED : sources.record(source, epoch);
+		if (sourceFailures > maxFailuresPerSource
+				|| (userFailures == LayeredAttemptCounter.UNTRACKED && sourceFailures == LayeredAttemptCounter.UNTRACKED)) {
+			// 출처 한도 초과, 또는 어느 쪽으로도 세지 못함(fail closed)
+			if (source != null) {
+				sources.release(source, epoch);
+			}
+			users.release(username, epoch);
+			rejected.increment();
+			return -1;
+		}
+		return epoch;
+	}
+
+	/**
+	 * 로그인 성공 - username 의 실패 수 초기화, 출처에 세어 둔 한 번은 되돌림
+	 */
+	public void recordSuccess(String username, String source, long acquired) {
+		users.reset(username);
+		if (source != null) {
+			sources.release(source, acquired);
+		}
+	}
+
+	public int userFailures(String username) {
+		return users.count(username);
+	}
+
+	public int sourceFailures(String source) {
+		return sources.count(source);
+	}
+
+	// 저장소에 가지 않고 거절한 수
+	public long getRejected() {
+		return rejected.sum();
+	}
+}
@@ -0,0 +1,307 @@
+package architecture;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * 저장소를 바꾸는 동안 쓰는 저장소 - 기존 사용자를 백그라운드에서 새 저장소로 옮김
+ *
+ * 왜 필요할까?
+ *  - 빈 저장소로 바꿔치기하면 가입했던 사용자가 모두 사라짐
+ *  - 다 옮길 때까지 요청을 막으면 사용자 수에 비례해서 로그인이 멈춤
+ *
+ * 동작
+ *  - 가입 : 새 저장소에만 씀(이전 저장소에 있는 아이디면 중복)
+ *      이전 저장소에는 아무도 쓰지 않아야 함 - 쓰면 이관이 새 저장소의 같은 아이디를 보고 건너뛰어 사라짐
+ *      LayeredService 는 진행 중인 쓰기가 모두 끝난 뒤에(쓰기 게이트) 이 객체로 바꿈
+ *  - 조회 / 로그인 : 새 저장소 -> 없으면 이전 저장소(락 없음)
+ *  - 이관 스레드 : 이전 저장소를 순회하며 새 저장소에 load
+ *      바꾸기 직전에 이전 저장소로 들어간 가입이 빠지지 않게, 순회한 수가 이전 저장소 크기보다 적으면 한 번 더
+ *  - 다 옮기면 flush 후 이전 저장소를 닫음(진행 중인 조회가 끝나기를 기다린 뒤)
+ *  - 실패하면 두 저장소를 계속 함께 씀, retry 로 같은 두 저장소 사이의 이관을 다시 시작(이미 옮긴 사용자는 건너뜀)
+ *
+ * 진행 상황 : getMigrated / getTotal / progress / throughput
+ */
+class LayeredMigratingRepository implements LayeredRepository {
+	private final LayeredRepository source;
+	private final LayeredRepository target;
+	private final Thread worker;
+	private final CountDownLatch finished = new CountDownLatch(1);
+	// 이전 저장소를 읽고 있는 요청 수 - 닫기 전에 0 이 되기를 기다림(retire 는 이 객체의 모니터에서 대기)
+	private final AtomicInteger sourceReaders = new AtomicInteger();
+	private final AtomicLong migrated = new AtomicLong();
+	private final AtomicLong skipped = new AtomicLong();
+	private final long total;
+	private volatile boolean done;
+	private volatile RuntimeException failure;
+	private volatile long startNanos;
+	private volatile long endNanos;
+
+	public LayeredMigratingRepository(LayeredRepository source, LayeredRepository target) {
+		if (source == target) {
+			throw new IllegalArgumentException("같은 저장소로는 옮길 수 없습니다.");
+		}
+		this.source = source;
+		this.target = target;
+		this.total = source.size();
+		this.worker = new Thread(this::migrate, "layered-migration");
+		worker.setDaemon(true);
+	}
+
+	void start() {
+		worker.start();
+	}
+
+	@Override
+	public boolean save(String username, String password) {
+		if (readSource(username) != null) {
+			System.out.println("이관 중 : 이미 존재하는 아이디");
+			return false;
+		}
+		return target.save(username, password);
+	}
+
+	@Override
+	public boolean login(String username, String password) {
+		LayeredUser user = findUser(username);
+		return user != null && user.getPassword().equals(password);
+	}
+
+	@Override
+	public LayeredUser findUser(String username) {
+		LayeredUser user = target.findUser(username);
+		if (user != null) {
+			return user;
+		}
+		user = readSource(username);
+		// 그 사이에 이관이 끝났으면 이전 저장소는 읽지 않았지만 새 저장소에 이미 있음
+		return user != null || !done ? user : target.findUser(username);
+	}
+
+	// 아직 안 옮긴 사용자 + 새 저장소(이관 중에는 근사값)
+	@Override
+	public long size() {
+		if (done) {
+			return target.size();
+		}
+		return target.size() + Math.max(0, total - migrated.get() - skipped.get());
+	}
+
+	@Override
+	public void forEach(Consumer<LayeredUser> action) {
+		target.forEach(action);
+		if (!done) {
+			source.forEach(user -> {
+				if (!target.contains(user.getUsername())) {
+					action.accept(user);
+				}
+			});
+		}
+	}
+
+	@Override
+	public boolean load(LayeredUser user) {
+		if (readSource(user.getUsername()) != null) {
+			return false;
+		}
+		return target.load(user);
+	}
+
+	// 이관 중에는 바꾸지 않음 - 옮기는 중인 이전 레코드가 바꾼 값을 덮을 수 있음, 다음 로그인에서 다시
+	@Override
+	public boolean replacePassword(String username, String expected, String replacement) {
+		return false;
+	}
+
+	@Override
+	public void flush() {
+		target.flush();
+	}
+
+	// 이전 저장소에 있는 아이디를 뺀 나머지를 새 저장소에 한 번에
+	@Override
+	public int saveAll(List<LayeredUser> users) {
+		List<LayeredUser> fresh = new ArrayList<>(users.size());
+		for (LayeredUser user : users) {
+			if (readSource(user.getUsername()) == null) {
+				fresh.add(user);
+			}
+		}
+		return target.saveAll(fresh);
+	}
+
+	/**
+	 * 이관이 끝날 때까지 기다림 - 실패했으면 그 예외를 던짐
+	 */
+	public void awaitCompletion() {
+		awaitFinished();
+		if (failure != null) {
+			throw new IllegalStateException("이관에 실패했습니다.", failure);
+		}
+	}
+
+	// 성공 / 실패와 관계없이 이관 스레드가 끝날 때까지
+	void awaitFinished() {
+		try {
+			finished.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("이관을 기다리다 중단되었습니다.", e);
+		}
+	}
+
+	/**
+	 * 실패한 이관을 같은 두 저장소로 다시 - 시작하지 않은 새 객체(start 는 바꿔 넣은 쪽이)
+	 */
+	LayeredMigratingRepository retry() {
+		if (failure == null) {
+			throw new IllegalStateException("실패한 이관만 다시 시도할 수 있습니다.");
+		}
+		return new LayeredMigratingRepository(source, target);
+	}
+
+	public boolean isDone() {
+		return done;
+	}
+
+	public LayeredRepository getSource() {
+		return source;
+	}
+
+	public LayeredRepository getTarget() {
+		return target;
+	}
+
+	// 새 저장소에 넣은 수
+	public long getMigrated() {
+		return migrated.get();
+	}
+
+	// 새 저장소에 이미 있어서 건너뛴 수(이관 전에 새로 가입했거나 파일 저장소에 원래 있던 사용자)
+	public long getSkipped() {
+		return skipped.get();
+	}
+
+	// 시작할 때 이전 저장소의 사용자 수
+	public long getTotal() {
+		return total;
+	}
+
+	public double progress() {
+		if (done || total == 0) {
+			return 1;
+		}
+		return Math.min(1, (double) (migrated.get() + skipped.get()) / total);
+	}
+
+	// 초당 옮긴 사용자 수
+	public double throughput() {
+		long start = startNanos;
+		if (start == 0) {
+			return 0;
+		}
+		long end = done ? endNanos : System.nanoTime();
+		return (migrated.get() + skipped.get()) / Math.max(1e-9, (end - start) / 1e9);
+	}
+
+	public long getElapsedNanos() {
+		long start = startNanos;
+		if (start == 0) {
+			return 0;
+		}
+		return (done ? endNanos : System.nanoTime()) - start;
+	}
+
+	public RuntimeException getFailure() {
+		return failure;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("이관 %s %,d / %,d (%.1f%%), 건너뜀 %,d, %,.0f 명/s", done ? "완료" : "중",
+				migrated.get(), total, progress() * 100, skipped.get(), throughput());
+	}
+
+	// 끝난 뒤에는 이전 저장소를 읽지 않음
+	private LayeredUser readSource(String username) {
+		if (done) {
+			return null;
+		}
+		sourceReaders.incrementAndGet();
+		try {
+			// 카운트를 올린 뒤 다시 확인 - retire 가 done 을 세운 뒤에는 이전 저장소가 닫혔을 수 있음
+			return done ? null : source.findUser(username);
+		} finally {
+			if (sourceReaders.decrementAndGet() == 0 && done) {
+				// retire 가 기다리는 중일 수 있음(done 뒤의 마지막 조회만 깨움)
+				synchronized (this) {
+					notifyAll();
+				}
+			}
+		}
+	}
+
+	private void migrate() {
+		startNanos = System.nanoTime();
+		try {
+			long visited = copyAll(true);
+			// 바꾸기 직전에 이전 저장소로 들어간 가입
+			while (visited < source.size()) {
+				visited = copyAll(false);
+			}
+			target.flush();
+			retire();
+		} catch (RuntimeException e) {
+			// 실패하면 두 저장소를 계속 함께 씀
+			failure = e;
+		} finally {
+			finished.countDown();
+		}
+	}
+
+	// 두 번째부터는 새로 넣은 것만 셈
+	private long copyAll(boolean firstPass) {
+		long[] visited = new long[1];
+		source.forEach(user -> {
+			visited[0]++;
+			if (target.load(user)) {
+				migrated.incrementAndGet();
+			} else if (firstPass) {
+				skipped.incrementAndGet();
+			}
+		});
+		return visited[0];
+	}
+
+	private void retire() {
+		endNanos = System.nanoTime();
+		done = true;
+		// done 을 세운 뒤 0 이 되는 조회는 모니터를 잡고 깨우므로 확인과 wait 사이에 놓치지 않음
+		boolean interrupted = false;
+		synchronized (this) {
+			while (sourceReaders.get() != 0) {
+				try {
+					wait();
+				} catch (InterruptedException e) {
+					// 닫기 전에는 꼭 기다려야 함, interrupt 는 끝난 뒤에 되돌림
+					interrupted = true;
+				}
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+		if (source instanceof AutoCloseable closeable) {
+			try {
+				closeable.close();
+			} catch (Exception e) {
+				// 이미 다 옮겼으므로 닫기 실패는 이관 결과에 영향 없음
+				System.out.println("이전 저장소를 닫지 못했습니다 : " + e);
+			}
+		}
+	}
+}
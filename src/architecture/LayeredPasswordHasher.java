@@ -0,0 +1,261 @@
+package architecture;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.crypto.Mac;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * 비밀번호 해시(PBKDF2WithHmacSHA256) + 최근 로그인 확인 캐시
+ *
+ * 왜 필요할까?
+ *  - 평문 비밀번호를 저장하면 저장소(로그 파일)가 새면 그대로 노출
+ *  - 느린 해시는 로그인 한 번에 CPU 를 수 ms 씀 -> 요청 스레드에서 돌리면 요청 스레드가 모두 해시 계산에 묶임
+ *
+ * 동작
+ *  - 해시 / 확인은 전용 스레드 풀(스레드 수, 대기열 크기 고정) 에서
+ *      대기열이 가득 차면 넣는 쪽이 기다림 -> 해시 계산이 CPU 를 threads 개 이상 쓰지 않음
+ *  - 저장 형식 : pbkdf2-sha256$반복 횟수$salt(Base64)$해시(Base64), 반복 횟수를 바꿔도 예전 해시는 그대로 확인 가능
+ *  - 확인 캐시 : 로그인에 성공하면 username -> HMAC(프로세스마다 새로 만든 키, username + 비밀번호 + 저장된 해시) 를 ttl 동안 기억
+ *      같은 사용자가 같은 비밀번호로 다시 로그인하면 PBKDF2 없이 HMAC 한 번(약 1us) 으로 확인
+ *      평문은 기억하지 않음, 저장된 해시가 바뀌면 맞지 않음, 실패한 로그인은 기억하지 않음
+ *      항목 수 상한을 넘으면 만료된 항목을 치우고, 그래도 가득 차면 더 기억하지 않음
+ */
+class LayeredPasswordHasher implements AutoCloseable {
+	static final String PREFIX = "pbkdf2-sha256";
+	static final int DEFAULT_ITERATIONS = 100_000;
+	static final Duration DEFAULT_CACHE_TTL = Duration.ofSeconds(30);
+	static final int DEFAULT_CACHE_ENTRIES = 100_000;
+	private static final int SALT_BYTES = 16;
+	private static final int HASH_BITS = 256;
+	private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+
+	private final int iterations;
+	private final long cacheTtlNanos;
+	private final int cacheEntries;
+	private final ThreadPoolExecutor executor;
+	private final SecureRandom random = new SecureRandom();
+	private final SecretKeySpec cacheKey;
+	private final ThreadLocal<Mac> macs;
+	private final ConcurrentHashMap<String, VerifiedCredential> verified = new ConcurrentHashMap<>();
+
+	private final LongAdder hashes = new LongAdder();
+	private final LongAdder cacheHits = new LongAdder();
+	private final LongAdder cacheMisses = new LongAdder();
+
+	public LayeredPasswordHasher() {
+		this(DEFAULT_ITERATIONS, Runtime.getRuntime().availableProcessors(), DEFAULT_CACHE_TTL);
+	}
+
+	/**
+	 * cacheTtl 이 0 이면 캐시를 쓰지 않음
+	 */
+	public LayeredPasswordHasher(int iterations, int threads, Duration cacheTtl) {
+		this(iterations, threads, cacheTtl, DEFAULT_CACHE_ENTRIES);
+	}
+
+	public LayeredPasswordHasher(int iterations, int threads, Duration cacheTtl, int cacheEntries) {
+		if (iterations <= 0 || threads <= 0 || cacheEntries < 0) {
+			throw new IllegalArgumentException("반복 횟수와 스레드 수는 1 이상, 캐시 항목 수는 0 이상이어야 합니다.");
+		}
+		if (cacheTtl.isNegative()) {
+			throw new IllegalArgumentException("cacheTtl 은 음수일 수 없습니다.");
+		}
+		this.iterations = iterations;
+		this.cacheTtlNanos = cacheTtl.toNanos();
+		this.cacheEntries = cacheEntries;
+		AtomicInteger sequence = new AtomicInteger();
+		this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(threads * 64), task -> {
+					Thread thread = new Thread(task, "layered-hasher-" + sequence.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				}, LayeredPasswordHasher::waitForRoom);
+		byte[] key = new byte[32];
+		random.nextBytes(key);
+		this.cacheKey = new SecretKeySpec(key, "HmacSHA256");
+		this.macs = ThreadLocal.withInitial(() -> {
+			try {
+				Mac mac = Mac.getInstance("HmacSHA256");
+				mac.init(cacheKey);
+				return mac;
+			} catch (GeneralSecurityException e) {
+				throw new IllegalStateException(e);
+			}
+		});
+	}
+
+	// 대기열이 가득 차면 버리지 않고 자리가 날 때까지 기다림
+	private static void waitForRoom(Runnable task, ThreadPoolExecutor executor) {
+		if (executor.isShutdown()) {
+			throw new RejectedExecutionException("닫힌 해시 스레드 풀입니다.");
+		}
+		try {
+			executor.getQueue().put(task);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RejectedExecutionException(e);
+		}
+		// 기다리는 사이에 닫혔으면 일하는 스레드가 이미 끝났을 수 있음 - 남아 있으면 꺼내서 거절
+		if (executor.isShutdown() && executor.getQueue().remove(task)) {
+			throw new RejectedExecutionException("닫힌 해시 스레드 풀입니다.");
+		}
+	}
+
+	/**
+	 * 저장할 해시 문자열
+	 */
+	public CompletableFuture<String> hash(String password) {
+		return CompletableFuture.supplyAsync(() -> hashNow(password), executor);
+	}
+
+	/**
+	 * stored 가 이 클래스의 형식이 아니면 예전 평문 저장으로 보고 그대로 비교
+	 */
+	public CompletableFuture<Boolean> verify(String username, String password, String stored) {
+		if (!isHash(stored)) {
+			// 길이 말고는 내용에 따라 걸리는 시간이 달라지지 않게 비교
+			return CompletableFuture.completedFuture(
+					MessageDigest.isEqual(stored.getBytes(StandardCharsets.UTF_8), password.getBytes(StandardCharsets.UTF_8)));
+		}
+		byte[] digest = null;
+		if (cacheTtlNanos > 0) {
+			digest = cacheDigest(username, password, stored);
+			VerifiedCredential cached = verified.get(username);
+			if (cached != null && cached.expiresAt - System.nanoTime() > 0 && MessageDigest.isEqual(cached.digest, digest)) {
+				cacheHits.increment();
+				return CompletableFuture.completedFuture(true);
+			}
+			cacheMisses.increment();
+		}
+		byte[] remember = digest;
+		return CompletableFuture.supplyAsync(() -> {
+			boolean matches = verifyNow(password, stored);
+			if (matches && remember != null) {
+				remember(username, remember);
+			}
+			return matches;
+		}, executor);
+	}
+
+	static boolean isHash(String stored) {
+		return stored.startsWith(PREFIX + "$");
+	}
+
+	public int getIterations() {
+		return iterations;
+	}
+
+	// PBKDF2 를 실제로 계산한 횟수(가입 + 캐시를 못 쓴 로그인)
+	public long getHashCount() {
+		return hashes.sum();
+	}
+
+	public long getCacheHits() {
+		return cacheHits.sum();
+	}
+
+	public long getCacheMisses() {
+		return cacheMisses.sum();
+	}
+
+	public int getCacheSize() {
+		return verified.size();
+	}
+
+	public void clearCache() {
+		verified.clear();
+	}
+
+	@Override
+	public void close() {
+		executor.shutdown();
+	}
+
+	private String hashNow(String password) {
+		byte[] salt = new byte[SALT_BYTES];
+		random.nextBytes(salt);
+		byte[] hash = pbkdf2(password, salt, iterations);
+		Base64.Encoder encoder = Base64.getEncoder().withoutPadding();
+		return PREFIX + "$" + iterations + "$" + encoder.encodeToString(salt) + "$" + encoder.encodeToString(hash);
+	}
+
+	private boolean verifyNow(String password, String stored) {
+		String[] parts = stored.split("\\$");
+		if (parts.length != 4) {
+			return false;
+		}
+		int storedIterations;
+		byte[] salt;
+		byte[] expected;
+		try {
+			storedIterations = Integer.parseInt(parts[1]);
+			salt = Base64.getDecoder().decode(parts[2]);
+			expected = Base64.getDecoder().decode(parts[3]);
+		} catch (IllegalArgumentException e) {
+			// 깨진 해시는 어떤 비밀번호와도 맞지 않음
+			return false;
+		}
+		if (storedIterations <= 0) {
+			return false;
+		}
+		return MessageDigest.isEqual(expected, pbkdf2(password, salt, storedIterations));
+	}
+
+	private byte[] pbkdf2(String password, byte[] salt, int rounds) {
+		PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, rounds, HASH_BITS);
+		try {
+			hashes.increment();
+			return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+		} catch (GeneralSecurityException e) {
+			throw new IllegalStateException("PBKDF2 를 사용할 수 없습니다.", e);
+		} finally {
+			spec.clearPassword();
+		}
+	}
+
+	private byte[] cacheDigest(String username, String password, String stored) {
+		Mac mac = macs.get();
+		mac.update(username.getBytes(StandardCharsets.UTF_8));
+		mac.update((byte) 0);
+		mac.update(password.getBytes(StandardCharsets.UTF_8));
+		mac.update((byte) 0);
+		return mac.doFinal(stored.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private void remember(String username, byte[] digest) {
+		long now = System.nanoTime();
+		if (verified.size() >= cacheEntries && !verified.containsKey(username)) {
+			verified.values().removeIf(credential -> credential.expiresAt - now <= 0);
+			if (verified.size() >= cacheEntries) {
+				return;
+			}
+		}
+		verified.put(username, new VerifiedCredential(digest, now + cacheTtlNanos));
+	}
+
+	private static final class VerifiedCredential {
+		final byte[] digest;
+		final long expiresAt;
+
+		VerifiedCredential(byte[] digest, long expiresAt) {
+			this.digest = digest;
+			this.expiresAt = expiresAt;
+		}
+	}
+}
@@ -0,0 +1,5 @@
+package architecture;
+
+enum LayeredRepoType {
+	MEMORY, DB
+}
@@ -0,0 +1,53 @@
+package architecture;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+// GPT 의 피드백 - Repository 계층 추가
+/**
+ * Repository (Persistence) Layer
+ *  - 데이터 저장, 조회, DB 접근 처리
+ */
+interface LayeredRepository {
+	// 이미 있는 아이디면 저장하지 않고 false
+	boolean save(String username, String password);
+	boolean login(String username, String password);
+	// 없으면 null
+	LayeredUser findUser(String username);
+	long size();
+	// 호출한 시점의 사용자를 하나씩(도중에 추가된 사용자는 빠질 수 있음)
+	void forEach(Consumer<LayeredUser> action);
+	// 출력 없이 저장(이관 / 일괄 적재용), 다 넣은 뒤 flush
+	boolean load(LayeredUser user);
+	
+	default boolean contains(String username) {
+		return findUser(username) != null;
+	}
+	
+	// load 한 사용자를 디스크에 내림
+	default void flush() {
+	}
+	
+	/**
+	 * 저장된 비밀번호가 expected 일 때만 replacement 로 바꿈(예전 평문을 해시로 바꿀 때), 바꿨으면 true
+	 *  - 바꾸지 못하는 저장소는 false - 그대로 두고 다음 로그인에서 다시 시도
+	 */
+	default boolean replacePassword(String username, String expected, String replacement) {
+		return false;
+	}
+	
+	/**
+	 * 여러 명을 한 번에 저장(사용자마다 출력하지 않음), 새로 저장한 수 반환 - 이미 있는 아이디는 건너뜀
+	 *  - 반환하면 모두 디스크에 있음
+	 */
+	default int saveAll(List<LayeredUser> users) {
+		int saved = 0;
+		for (LayeredUser user : users) {
+			if (load(user)) {
+				saved++;
+			}
+		}
+		flush();
+		return saved;
+	}
+}
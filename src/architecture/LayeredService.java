@@ -0,0 +1,298 @@
+package architecture;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Service (Business) Layer
+ *  - 도메인 로직 처리, 트랜잭션, 유스케이스
+ *
+ * 저장소를 바꾸면 기존 사용자를 새 저장소로 옮김(LayeredMigratingRepository)
+ *  - 옮기는 동안에도 가입 / 로그인은 멈추지 않음
+ *  - 다 옮기면 이전 저장소를 닫고 새 저장소만 씀
+ *
+ * 비밀번호는 LayeredPasswordHasher 로 해시해서 저장(저장소에는 해시 문자열만)
+ *  - 해시 / 확인은 hasher 의 스레드 풀에서, 요청 스레드는 결과만 기다림
+ *  - 예전에 평문으로 저장된 사용자도 그대로 로그인 가능, 로그인에 성공하면 해시로 바꿔 저장
+ *
+ * 로그인 실패가 쌓인 username / 출처는 LayeredLoginThrottle 이 저장소에 가기 전에 거절
+ *
+ * 스레드 안전 - 저장소들이 스레드 안전하고, 저장소 참조는 volatile 로 읽음
+ *  - 저장소에 쓰는 요청은 쓰기 게이트(읽기 락) 안에서 - 저장소를 바꾸는 쪽은 쓰기 락으로 진행 중인 쓰기가 끝나기를 기다림
+ *    -> 바꾼 뒤에는 아무도 이전 저장소에 쓰지 않으므로 이관이 가입을 놓치지 않음
+ *  - 이관을 기다릴 때는 락을 잡지 않음, 실패한 이관은 다음 저장소 변경 / close 때 다시 시도
+ *
+ * 다 쓰면 close - 진행 중인 이관을 기다린 뒤 저장소와 hasher 를 닫음(이관 스레드는 daemon 이라 JVM 종료를 막지 않음)
+ */
+class LayeredService implements AutoCloseable {
+	static final int BULK_BATCH = 4_096;
+	
+	// 요청 스레드는 락 없이 읽음, 바꾸는 쪽만 synchronized(writeGate 가 필요하면 writeGate 를 먼저)
+	private volatile LayeredRepository repository;
+	// 쓰는 요청은 읽기 락, 저장소를 이관용으로 바꾸는 쪽은 쓰기 락
+	private final ReentrantReadWriteLock writeGate = new ReentrantReadWriteLock();
+	// null 이면 평문 저장(해시 비용 없이 저장소만 측정할 때)
+	private final LayeredPasswordHasher hasher;
+	// null 이면 실패 횟수 제한 없음
+	private final LayeredLoginThrottle throttle;
+	
+	public LayeredService() {
+		this(new LayeredInMemoryRepository(), new LayeredPasswordHasher(), new LayeredLoginThrottle());
+	}
+	
+	// 평문 저장, 제한 없음
+	public LayeredService(LayeredRepository repository) {
+		this(repository, null, null);
+	}
+	
+	public LayeredService(LayeredRepository repository, LayeredPasswordHasher hasher) {
+		this(repository, hasher, null);
+	}
+	
+	public LayeredService(LayeredRepository repository, LayeredPasswordHasher hasher, LayeredLoginThrottle throttle) {
+		this.repository = repository;
+		this.hasher = hasher;
+		this.throttle = throttle;
+	}
+	
+	public boolean addUser(String username, String password) {
+		if (hasher == null) {
+			return write(repository -> repository.save(username, password));
+		}
+		// 이미 있는 아이디면 해시 계산을 건너뜀(동시에 가입하는 경우의 최종 중복 검사는 save)
+		if (current().contains(username)) {
+			System.out.println("이미 존재하는 아이디");
+			return false;
+		}
+		String hash = await(hasher.hash(password));
+		return write(repository -> repository.save(username, hash));
+	}
+	
+	public boolean loginProcess(String username, String password) {
+		return loginProcess(username, password, null);
+	}
+	
+	/**
+	 * source : 요청 출처(IP 등), 모르면 null - 출처별 실패 횟수 제한에 씀
+	 */
+	public boolean loginProcess(String username, String password, String source) {
+		if (throttle == null) {
+			return authenticate(username, password);
+		}
+		// 해시 확인(수 ms) 전에 먼저 세어 둠 - 동시에 들어온 틀린 로그인도 한도까지만 해시 확인
+		long acquired = throttle.acquire(username, source);
+		if (acquired < 0) {
+			return false;
+		}
+		boolean success = authenticate(username, password);
+		if (success) {
+			throttle.recordSuccess(username, source, acquired);
+		}
+		return success;
+	}
+	
+	private boolean authenticate(String username, String password) {
+		if (hasher == null) {
+			return current().login(username, password);
+		}
+		LayeredUser user = current().findUser(username);
+		if (user == null || !await(hasher.verify(username, password, user.getPassword()))) {
+			return false;
+		}
+		if (!LayeredPasswordHasher.isHash(user.getPassword())) {
+			// 예전 평문 저장 - 그 사이 바뀌었으면 그대로 둠
+			String hash = await(hasher.hash(password));
+			write(repository -> repository.replacePassword(username, user.getPassword(), hash));
+		}
+		return true;
+	}
+	
+	/**
+	 * 대량 가입 - BULK_BATCH 명씩 모아서 저장소의 saveAll 한 번으로 저장, 새로 가입한 수 반환
+	 *  - 사용자마다 출력하지 않음, 이미 있는 아이디는 건너뜀
+	 *  - 한 묶음만 메모리에 두므로 users 가 아무리 길어도 메모리는 묶음 크기만큼
+	 *  - 비밀번호 해시는 묶음 안의 사용자를 hasher 스레드 풀에 한꺼번에 맡긴 뒤 기다림
+	 */
+	public long addUsers(Iterator<LayeredUser> users) {
+		long saved = 0;
+		List<LayeredUser> batch = new ArrayList<>(BULK_BATCH);
+		while (users.hasNext()) {
+			batch.add(users.next());
+			if (batch.size() == BULK_BATCH) {
+				saved += saveBatch(batch);
+				batch.clear();
+			}
+		}
+		if (!batch.isEmpty()) {
+			saved += saveBatch(batch);
+		}
+		return saved;
+	}
+	
+	public long addUsers(Stream<LayeredUser> users) {
+		try (users) {
+			return addUsers(users.iterator());
+		}
+	}
+	
+	private int saveBatch(List<LayeredUser> batch) {
+		if (hasher == null) {
+			return write(repository -> repository.saveAll(batch));
+		}
+		List<CompletableFuture<String>> hashes = new ArrayList<>(batch.size());
+		for (LayeredUser user : batch) {
+			hashes.add(hasher.hash(user.getPassword()));
+		}
+		List<LayeredUser> hashed = new ArrayList<>(batch.size());
+		for (int i = 0; i < batch.size(); i++) {
+			hashed.add(new LayeredUser(batch.get(i).getUsername(), await(hashes.get(i))));
+		}
+		return write(repository -> repository.saveAll(hashed));
+	}
+
+	// 저장소에 쓰는 작업은 모두 여기로 - 쓰는 동안에는 저장소를 바꾸지 않음(읽기 락이라 쓰기끼리는 막지 않음)
+	private <T> T write(Function<LayeredRepository, T> action) {
+		writeGate.readLock().lock();
+		try {
+			return action.apply(current());
+		} finally {
+			writeGate.readLock().unlock();
+		}
+	}
+	
+	LayeredPasswordHasher getHasher() {
+		return hasher;
+	}
+	
+	LayeredLoginThrottle getThrottle() {
+		return throttle;
+	}
+	
+	private static <T> T await(CompletableFuture<T> future) {
+		try {
+			return future.join();
+		} catch (CompletionException e) {
+			throw e.getCause() instanceof RuntimeException cause ? cause : e;
+		}
+	}
+	
+	public void changeRepository(LayeredRepoType type) {
+		LayeredRepository target;
+		switch (type) {
+		case MEMORY: target = new LayeredInMemoryRepository(); break;
+		case DB:
+			// 같은 파일을 두 번 열지 않음
+			if (settled() instanceof LayeredDBRepository) {
+				return;
+			}
+			target = new LayeredDBRepository();
+			break;
+		default:
+			throw new IllegalArgumentException("Unexpected value: " + type);
+		}
+		changeRepository(target);
+	}
+	
+	/**
+	 * target 으로 바꾸고 기존 사용자를 백그라운드에서 옮김 - 진행 상황은 반환한 객체로 확인
+	 */
+	public LayeredMigratingRepository changeRepository(LayeredRepository target) {
+		while (true) {
+			LayeredRepository source = settled();
+			// 진행 중인 쓰기가 이전 저장소에 다 들어간 뒤에 바꿈
+			writeGate.writeLock().lock();
+			try {
+				synchronized (this) {
+					// 기다리는 동안 다른 스레드가 바꿨으면 다시
+					if (repository == source) {
+						LayeredMigratingRepository migration = new LayeredMigratingRepository(source, target);
+						repository = migration;
+						migration.start();
+						return migration;
+					}
+				}
+			} finally {
+				writeGate.writeLock().unlock();
+			}
+		}
+	}
+	
+	/**
+	 * 진행 중인 이관이 있으면 끝날 때까지(락 없이) 기다린 뒤의 저장소
+	 *  - 실패한 이관은 같은 두 저장소로 한 번 다시 시도, 그것도 실패하면 예외
+	 *    (저장소는 두 저장소를 함께 쓰는 상태로 남고 다음 호출이 또 다시 시도)
+	 */
+	private LayeredRepository settled() {
+		LayeredMigratingRepository retried = null;
+		while (true) {
+			LayeredRepository current = repository;
+			if (!(current instanceof LayeredMigratingRepository migration)) {
+				return current;
+			}
+			migration.awaitFinished();
+			if (migration.getFailure() != null && migration == retried) {
+				throw new IllegalStateException("이관에 실패했습니다.", migration.getFailure());
+			}
+			synchronized (this) {
+				if (repository == migration) {
+					if (migration.getFailure() == null) {
+						repository = migration.getTarget();
+					} else {
+						// 이전 저장소에는 이미 아무도 쓰지 않으므로 쓰기 게이트 없이 바꿔도 됨
+						retried = migration.retry();
+						repository = retried;
+						retried.start();
+					}
+				}
+			}
+		}
+	}
+	
+	// 이관이 끝났으면 감싼 객체를 벗겨냄
+	private LayeredRepository current() {
+		LayeredRepository current = repository;
+		if (current instanceof LayeredMigratingRepository migration && migration.isDone()) {
+			synchronized (this) {
+				if (repository == migration) {
+					repository = migration.getTarget();
+				}
+				return repository;
+			}
+		}
+		return current;
+	}
+	
+	LayeredRepository getRepository() {
+		return repository;
+	}
+	
+	@Override
+	public void close() {
+		try {
+			settled();
+		} finally {
+			// 이관이 실패했어도 새 저장소에 옮긴 것은 디스크에 내림
+			LayeredRepository current = repository instanceof LayeredMigratingRepository migration
+					? migration.getTarget() : repository;
+			try {
+				if (current instanceof AutoCloseable closeable) {
+					closeable.close();
+				}
+			} catch (RuntimeException e) {
+				throw e;
+			} catch (Exception e) {
+				throw new IllegalStateException(e);
+			} finally {
+				if (hasher != null) {
+					hasher.close();
+				}
+			}
+		}
+	}
+}
@@ -1,7 +1,5 @@
 package architecture;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Scanner;
 
 /**
@@ -51,9 +49,13 @@ public class MVC {
         
         // 수정 후
         MVCController controller = new MVCController();
-        controller.saveUser(username, password);
-        boolean isLogin = controller.loginProcess(username, password);
         MVCView view = new MVCView();
+        if (controller.saveUser(username, password)) {
+        	view.saveSuccess();
+        } else {
+        	view.saveDuplicate();
+        }
+        boolean isLogin = controller.loginProcess(username, password);
         if (isLogin) {
         	view.loginSuccess();
         } else {
@@ -61,47 +63,3 @@ public class MVC {
         }
 	}
 }
-
-// 수정 후
-class MVCUser {
-	private String username;
-	private String password;
-	
-	public MVCUser(String username, String password) {
-		this.username = username;
-		this.password = password;
-	}
-	
-	public String getUsername() {
-		return username;
-	}
-	
-	public String getPassword() {
-		return password;
-	}
-}
-
-class MVCController {
-	private List<MVCUser> list = new ArrayList<MVCUser>();
-	
-	public void saveUser(String username, String password) {
-		System.out.println("유저 정보 저장 완료");
-		list.add(new MVCUser(username, password));
-	}
-	
-	public boolean loginProcess(String username, String password) {
-		return list.stream().anyMatch(model -> model.getUsername().equals(username) && model.getPassword().equals(password));
-	}
-}
-
-// GPT 의 추가 개선 사항 -> View 도 역할 분리하자
-class MVCView {
-	
-	public void loginSuccess() {
-    	System.out.println("로그인 성공");
-	}
-	
-	public void loginFail() {
-    	System.out.println("로그인 실패");
-	}
-}
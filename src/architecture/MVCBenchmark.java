@@ -0,0 +1,251 @@
+package architecture;
+
+import java.io.BufferedOutputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * MVCController 여러 스레드 성능 측정
+ *
+ *  - 요청의 95% 로그인(그중 5% 는 틀린 비밀번호), 5% 새 아이디 가입
+ *  - 스레드 1 ~ 64 개가 동시에 요청하고 요청마다 nanoTime 으로 재서 처리량과 백분위 출력
+ *  - 변경 전 리스트 순회는 스레드 안전하지 않으므로 스레드 하나, 적은 사용자 수로만 비교
+ *  - MVCController 는 출력하지 않으므로(결과만 반환) 가입도 System.out 의 락을 거치지 않음
+ *  - 마지막에 MVCView 응답 출력 비교 - 예전 println 과 미리 인코딩한 응답 + 버퍼(임시 파일에 씀)
+ *
+ * 인자로 사용자 수를 고를 수 있음, view 면 View 비교만
+ *  - 예) java architecture.MVCBenchmark 10000 1000000
+ *  - 예) java architecture.MVCBenchmark view
+ */
+public class MVCBenchmark {
+	private static final int WARMUP_REQUESTS = 200_000;
+	private static final int MEASURE_REQUESTS = 1_000_000;
+	private static final int[] DEFAULT_USERS = { 10_000, 1_000_000 };
+	private static final int[] THREADS = { 1, 2, 4, 8, 16, 32, 64 };
+	private static final int VIEW_RESPONSES = 5_000_000;
+
+	static volatile long sink;
+
+	public static void main(String[] args) {
+		if (args.length == 1 && args[0].equals("view")) {
+			benchmarkView();
+			return;
+		}
+		int[] sizes = args.length == 0 ? DEFAULT_USERS : Arrays.stream(args).mapToInt(Integer::parseInt).toArray();
+		System.out.println("[MVCController] CPU " + Runtime.getRuntime().availableProcessors() + "개, 로그인 95% / 가입 5%");
+		for (int users : sizes) {
+			if (users <= 10_000) {
+				benchmarkListScan(users);
+			}
+			for (int threads : THREADS) {
+				benchmarkStore(users, threads);
+			}
+		}
+		benchmarkView();
+	}
+
+	private static void benchmarkStore(int users, int threads) {
+		MVCController controller = new MVCController();
+		for (int i = 0; i < users; i++) {
+			controller.saveUser(username(i), password(i));
+		}
+		// 스레드마다 겹치지 않는 새 아이디로 가입
+		BenchmarkSupport.runConcurrently(threads, thread -> {
+			Random random = new Random(thread);
+			int[] next = { users + thread };
+			for (int i = 0; i < WARMUP_REQUESTS / threads; i++) {
+				request(controller, random, users, next, threads);
+			}
+		});
+		long[][] latencies = new long[threads][MEASURE_REQUESTS / threads];
+		long elapsed = BenchmarkSupport.runConcurrently(threads, thread -> {
+			Random random = new Random(thread + 1_000);
+			int[] next = { users + WARMUP_REQUESTS + thread };
+			long[] mine = latencies[thread];
+			for (int i = 0; i < mine.length; i++) {
+				long start = System.nanoTime();
+				request(controller, random, users, next, threads);
+				mine[i] = System.nanoTime() - start;
+			}
+		});
+		report("store users=" + users + " threads=" + threads, latencies, elapsed);
+	}
+
+	private static void request(MVCController controller, Random random, int users, int[] next, int threads) {
+		int kind = random.nextInt(100);
+		if (kind < 5) {
+			int id = next[0];
+			next[0] += threads;
+			sink += controller.saveUser(username(id), password(id)) ? 1 : 0;
+			return;
+		}
+		int id = random.nextInt(users);
+		String password = kind < 10 ? "wrong" : password(id);
+		sink += controller.loginProcess(username(id), password) ? 1 : 0;
+	}
+
+	// 변경 전 구조 - 스레드 하나
+	private static void benchmarkListScan(int users) {
+		ListScanController controller = new ListScanController();
+		for (int i = 0; i < users; i++) {
+			controller.saveUser(username(i), password(i));
+		}
+		Random random = new Random(users);
+		int[] next = { users };
+		int requests = MEASURE_REQUESTS / 10;
+		long[][] latencies = new long[1][requests];
+		for (int i = 0; i < requests / 4; i++) {
+			listRequest(controller, random, users, next);
+		}
+		long begin = System.nanoTime();
+		for (int i = 0; i < requests; i++) {
+			long start = System.nanoTime();
+			listRequest(controller, random, users, next);
+			latencies[0][i] = System.nanoTime() - start;
+		}
+		report("list scan users=" + users + " threads=1", latencies, System.nanoTime() - begin);
+	}
+
+	private static void listRequest(ListScanController controller, Random random, int users, int[] next) {
+		int kind = random.nextInt(100);
+		if (kind < 5) {
+			int id = next[0]++;
+			controller.saveUser(username(id), password(id));
+			return;
+		}
+		int id = random.nextInt(users);
+		sink += controller.loginProcess(username(id), kind < 10 ? "wrong" : password(id)) ? 1 : 0;
+	}
+
+	private static void benchmarkView() {
+		System.out.println("[MVCView] 응답 " + VIEW_RESPONSES + " 개, 성공 95% / 실패 5%");
+		Path directory = BenchmarkSupport.temporaryDirectory();
+		try {
+			for (int round = 0; round < 2; round++) {
+				// 첫 바퀴는 워밍업
+				boolean print = round == 1;
+				Path println = directory.resolve("println.out");
+				long elapsed = viewPrintln(println);
+				reportView(print, "println(System.out 과 같은 PrintStream)", elapsed, println);
+				Path console = directory.resolve("console.out");
+				elapsed = viewChannel(console, 256, true);
+				reportView(print, "MVCView 응답마다 flush", elapsed, console);
+				Path buffered = directory.resolve("buffered.out");
+				elapsed = viewChannel(buffered, MVCView.BUFFER_SIZE, false);
+				reportView(print, "MVCView 버퍼 " + MVCView.BUFFER_SIZE + "B", elapsed, buffered);
+				if (BenchmarkSupport.fileSize(println) != BenchmarkSupport.fileSize(buffered)) {
+					throw new IllegalStateException("출력 크기가 다릅니다.");
+				}
+			}
+		} finally {
+			BenchmarkSupport.deleteDirectory(directory);
+		}
+	}
+
+	// 변경 전 - System.out 을 바꿔 두고 예전 MVCView 그대로 println
+	private static long viewPrintln(Path file) {
+		PrintStream out = System.out;
+		try (PrintStream stream = new PrintStream(new BufferedOutputStream(new FileOutputStream(file.toFile()), 128), true,
+				StandardCharsets.UTF_8)) {
+			System.setOut(stream);
+			PrintlnView view = new PrintlnView();
+			Random random = new Random(0);
+			long begin = System.nanoTime();
+			for (int i = 0; i < VIEW_RESPONSES; i++) {
+				if (random.nextInt(100) < 95) {
+					view.loginSuccess();
+				} else {
+					view.loginFail();
+				}
+			}
+			return System.nanoTime() - begin;
+		} catch (FileNotFoundException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			System.setOut(out);
+		}
+	}
+
+	private static long viewChannel(Path file, int bufferSize, boolean autoFlush) {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			MVCView view = new MVCView(channel, bufferSize, autoFlush);
+			Random random = new Random(0);
+			long begin = System.nanoTime();
+			for (int i = 0; i < VIEW_RESPONSES; i++) {
+				if (random.nextInt(100) < 95) {
+					view.loginSuccess();
+				} else {
+					view.loginFail();
+				}
+			}
+			view.close();
+			return System.nanoTime() - begin;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static void reportView(boolean print, String label, long elapsedNanos, Path file) {
+		if (print) {
+			System.out.printf("%-40s %,13.0f responses/s  %,d bytes%n", label, VIEW_RESPONSES / (elapsedNanos / 1e9),
+					BenchmarkSupport.fileSize(file));
+		}
+	}
+
+	private static void report(String label, long[][] latencies, long elapsedNanos) {
+		long[] merged = Arrays.stream(latencies).flatMapToLong(Arrays::stream).toArray();
+		Arrays.sort(merged);
+		System.out.printf("%-36s %,11.0f ops/s  p50 %,7d ns  p99 %,9d ns  p99.9 %,10d ns  max %,12d ns%n", label,
+				merged.length / (elapsedNanos / 1e9), BenchmarkSupport.percentile(merged, 50),
+				BenchmarkSupport.percentile(merged, 99), BenchmarkSupport.percentile(merged, 99.9),
+				merged[merged.length - 1]);
+	}
+
+	private static String username(int id) {
+		return "user" + id;
+	}
+
+	private static String password(int id) {
+		return "pw" + id;
+	}
+
+	/**
+	 * 변경 전 MVCView - 응답마다 System.out.println
+	 */
+	private static final class PrintlnView {
+		void loginSuccess() {
+			System.out.println("로그인 성공");
+		}
+
+		void loginFail() {
+			System.out.println("로그인 실패");
+		}
+	}
+
+	/**
+	 * 변경 전 MVCController 와 같은 리스트 순회 - 비교 기준(출력 없음)
+	 */
+	private static final class ListScanController {
+		private final List<MVCUser> list = new ArrayList<>();
+
+		void saveUser(String username, String password) {
+			list.add(new MVCUser(username, password));
+		}
+
+		boolean loginProcess(String username, String password) {
+			return list.stream().anyMatch(model -> model.getUsername().equals(username) && model.getPassword().equals(password));
+		}
+	}
+}
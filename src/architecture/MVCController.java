@@ -0,0 +1,24 @@
+package architecture;
+
+// 스레드 안전 - 상태는 MVCUserStore 에만 있음, 출력은 하지 않고 결과만 돌려줌(출력은 View)
+class MVCController {
+	private final MVCUserStore store;
+	
+	public MVCController() {
+		this(new MVCUserStore());
+	}
+	
+	public MVCController(MVCUserStore store) {
+		this.store = store;
+	}
+	
+	// 이미 있는 아이디면 저장하지 않고 false
+	public boolean saveUser(String username, String password) {
+		return store.save(new MVCUser(username, password));
+	}
+	
+	public boolean loginProcess(String username, String password) {
+		MVCUser user = store.find(username);
+		return user != null && user.getPassword().equals(password);
+	}
+}
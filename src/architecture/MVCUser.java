@@ -0,0 +1,20 @@
+package architecture;
+
+// 여러 스레드가 함께 읽으므로 불변
+class MVCUser {
+	private final String username;
+	private final String password;
+	
+	public MVCUser(String username, String password) {
+		this.username = username;
+		this.password = password;
+	}
+	
+	public String getUsername() {
+		return username;
+	}
+	
+	public String getPassword() {
+		return password;
+	}
+}
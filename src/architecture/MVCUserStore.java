@@ -0,0 +1,25 @@
+package architecture;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Model - username -> 사용자 해시 인덱스
+ *  - 리스트 전체를 훑던 로그인을 해시 조회 한 번으로
+ *  - ConcurrentHashMap 이라 전체 락 없이 여러 스레드가 동시에 저장 / 조회
+ *  - 같은 아이디는 한 번만 저장(동시에 가입해도 putIfAbsent 로 하나만 성공)
+ */
+class MVCUserStore {
+	private final ConcurrentHashMap<String, MVCUser> users = new ConcurrentHashMap<>();
+	
+	public boolean save(MVCUser user) {
+		return users.putIfAbsent(user.getUsername(), user) == null;
+	}
+	
+	public MVCUser find(String username) {
+		return users.get(username);
+	}
+	
+	public int size() {
+		return users.size();
+	}
+}
@@ -0,0 +1,127 @@
+package architecture;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+// GPT 의 추가 개선 사항 -> View 도 역할 분리하자
+/**
+ * View - 응답을 미리 바이트로 만들어 두고 버퍼에 모아서 채널로 씀
+ *  - 매번 println 하면 문자열 인코딩 + PrintStream 락 + 쓰기 한 번씩
+ *  - 고정된 응답은 처음에 한 번만 인코딩, 응답은 버퍼에 복사만 하고 가득 차거나 flush 할 때 한 번에 씀
+ *  - 기본 생성자는 콘솔용 - 지금의 System.out 으로, 응답마다 바로 flush(출력 순서가 예전과 같음)
+ *      System.out 의 println 과 같은 문자셋으로 인코딩(cp949 콘솔에서 UTF-8 바이트를 쓰면 한글이 깨짐)
+ *  - 채널을 넘기는 생성자는 UTF-8
+ *  - 버퍼를 다시 쓰므로 스레드 안전하지 않음(스레드 / 연결마다 View 하나)
+ */
+class MVCView implements Flushable, AutoCloseable {
+	static final int BUFFER_SIZE = 8 * 1024;
+	private static final String[] MESSAGES = { "로그인 성공", "로그인 실패", "유저 정보 저장 완료", "이미 존재하는 아이디" };
+	private static final byte[][] RESPONSES = encodeAll(StandardCharsets.UTF_8);
+	private static final Charset CONSOLE_CHARSET = consoleCharset();
+	private static final byte[][] CONSOLE_RESPONSES = encodeAll(CONSOLE_CHARSET);
+	
+	private final WritableByteChannel channel;
+	private final ByteBuffer buffer;
+	private final boolean autoFlush;
+	// MESSAGES 순서
+	private final byte[][] responses;
+	
+	public MVCView() {
+		this(Channels.newChannel(System.out), 256, true, CONSOLE_RESPONSES);
+	}
+	
+	public MVCView(WritableByteChannel channel) {
+		this(channel, BUFFER_SIZE, false);
+	}
+	
+	public MVCView(WritableByteChannel channel, int bufferSize, boolean autoFlush) {
+		this(channel, bufferSize, autoFlush, RESPONSES);
+	}
+	
+	private MVCView(WritableByteChannel channel, int bufferSize, boolean autoFlush, byte[][] responses) {
+		for (byte[] response : responses) {
+			if (bufferSize < response.length) {
+				throw new IllegalArgumentException("버퍼가 응답보다 작습니다 : " + bufferSize);
+			}
+		}
+		this.channel = channel;
+		this.buffer = ByteBuffer.allocateDirect(bufferSize);
+		this.autoFlush = autoFlush;
+		this.responses = responses;
+	}
+	
+	private static byte[][] encodeAll(Charset charset) {
+		byte[][] encoded = new byte[MESSAGES.length][];
+		for (int i = 0; i < MESSAGES.length; i++) {
+			encoded[i] = (MESSAGES[i] + System.lineSeparator()).getBytes(charset);
+		}
+		return encoded;
+	}
+	
+	// System.out 이 쓰는 문자셋 - stdout.encoding(JDK 19 이상) / sun.stdout.encoding(콘솔일 때) / 기본 문자셋 순서
+	private static Charset consoleCharset() {
+		for (String property : new String[] { "stdout.encoding", "sun.stdout.encoding" }) {
+			String name = System.getProperty(property);
+			if (name != null) {
+				try {
+					return Charset.forName(name);
+				} catch (IllegalArgumentException e) {
+					// 모르는 문자셋 이름이면 다음 후보
+				}
+			}
+		}
+		return Charset.defaultCharset();
+	}
+	
+	public void loginSuccess() {
+		write(responses[0]);
+	}
+	
+	public void loginFail() {
+		write(responses[1]);
+	}
+	
+	public void saveSuccess() {
+		write(responses[2]);
+	}
+	
+	public void saveDuplicate() {
+		write(responses[3]);
+	}
+	
+	private void write(byte[] response) {
+		if (buffer.remaining() < response.length) {
+			flush();
+		}
+		buffer.put(response);
+		if (autoFlush) {
+			flush();
+		}
+	}
+	
+	@Override
+	public void flush() {
+		buffer.flip();
+		try {
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			buffer.clear();
+		}
+	}
+	
+	// 남은 응답을 씀, 채널은 만든 쪽에서 닫음
+	@Override
+	public void close() {
+		flush();
+	}
+}
@@ -0,0 +1,222 @@
+package architecture;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+/**
+ * username 해시로 나눈 N 개의 독립 저장소(샤드)
+ *
+ * 왜 필요할까?
+ *  - 저장소 하나는 가입이 몰리면 경합 지점이 됨
+ *      LayeredInMemoryRepository : ConcurrentHashMap 하나(크기 조정, 같은 칸 CAS)
+ *      LayeredDBRepository : 로그 파일 하나에 쓰기 락 하나
+ *  - 샤드마다 인덱스(파일 저장소면 로그 파일도) 가 따로라서 서로 다른 샤드의 가입 / 로그인은 전혀 기다리지 않음
+ *  - 샤드로 가는 save 는 저장소의 "회원가입 완료" 출력을 하지 않음(System.out 의 락 하나에 모든 샤드가 다시 모이지 않게)
+ *
+ * 파일 샤드의 조회는 락 없이 읽지 않음
+ *  - 샤드 안에서는 LayeredLogStore 의 ReentrantReadWriteLock 읽기 락을 그대로 씀(인덱스가 커질 때 매핑을 바꾸므로)
+ *  - 읽기 락끼리는 서로 막지 않지만 락 상태를 CAS 로 바꾸므로 같은 샤드를 읽는 스레드끼리 캐시 라인을 주고받음
+ *      샤드 수만큼 나뉘므로 스레드가 샤드 수보다 아주 많지 않으면 거의 늘어나는 만큼 빨라짐
+ *  - 메모리 샤드는 ConcurrentHashMap 이라 조회에 락이 없음
+ *
+ * 파일 샤드의 fsync
+ *  - db : syncEvery 건마다 저장하는 스레드가 직접
+ *  - groupCommit : 샤드마다 LayeredGroupCommitWriter 하나(쓰는 스레드도 샤드 수만큼) - 같은 샤드에 동시에 들어온 가입을 묶음
+ *
+ * 샤드 선택 : String.hashCode 를 섞은 값 % N
+ *  - String.hashCode 는 명세로 정해진 값이라 다시 시작해도 같은 샤드
+ *  - 파일 저장소는 샤드 수를 디렉터리에 기록해 두고, 다른 샤드 수로 열면 거절(사용자를 엉뚱한 샤드에서 찾지 않게)
+ */
+class ShardedLayeredRepository implements LayeredRepository, AutoCloseable {
+	static final int DEFAULT_SHARDS = 16;
+	static final String SHARDS_FILE = "shards";
+
+	private final LayeredRepository[] shards;
+
+	public ShardedLayeredRepository(List<? extends LayeredRepository> shards) {
+		if (shards.isEmpty()) {
+			throw new IllegalArgumentException("샤드가 하나 이상 필요합니다.");
+		}
+		this.shards = shards.toArray(new LayeredRepository[0]);
+	}
+
+	public static ShardedLayeredRepository inMemory(int shardCount) {
+		return new ShardedLayeredRepository(create(shardCount, shard -> new LayeredInMemoryRepository()));
+	}
+
+	/**
+	 * directory/shard-00, shard-01 ... 에 샤드마다 로그 + 인덱스
+	 */
+	public static ShardedLayeredRepository db(Path directory, int shardCount, int syncEvery) {
+		checkShardCount(directory, shardCount);
+		return new ShardedLayeredRepository(create(shardCount,
+				shard -> new LayeredDBRepository(directory.resolve(String.format("shard-%02d", shard)), syncEvery)));
+	}
+
+	/**
+	 * db 와 같지만 샤드마다 그룹 커밋 저장소 - LayeredDBRepository.groupCommit 참고
+	 */
+	public static ShardedLayeredRepository groupCommit(Path directory, int shardCount, int maxBatch, Duration maxWait) {
+		checkShardCount(directory, shardCount);
+		return new ShardedLayeredRepository(create(shardCount,
+				shard -> LayeredDBRepository.groupCommit(directory.resolve(String.format("shard-%02d", shard)), maxBatch, maxWait)));
+	}
+
+	private static List<LayeredRepository> create(int shardCount, IntFunction<LayeredRepository> factory) {
+		if (shardCount <= 0) {
+			throw new IllegalArgumentException("샤드 수는 1 이상이어야 합니다.");
+		}
+		List<LayeredRepository> shards = new ArrayList<>(shardCount);
+		try {
+			for (int shard = 0; shard < shardCount; shard++) {
+				shards.add(factory.apply(shard));
+			}
+		} catch (RuntimeException e) {
+			// 이미 연 샤드는 닫음
+			closeAll(shards);
+			throw e;
+		}
+		return shards;
+	}
+
+	// 처음이면 샤드 수를 기록, 있으면 같은지 확인
+	private static void checkShardCount(Path directory, int shardCount) {
+		Path file = directory.resolve(SHARDS_FILE);
+		try {
+			if (Files.exists(file)) {
+				int stored = Integer.parseInt(Files.readString(file, StandardCharsets.UTF_8).trim());
+				if (stored != shardCount) {
+					throw new IllegalStateException("샤드 수가 다릅니다 : 저장된 값 " + stored + ", 요청 " + shardCount);
+				}
+				return;
+			}
+			Files.createDirectories(directory);
+			Files.writeString(file, Integer.toString(shardCount), StandardCharsets.UTF_8);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	// 샤드의 출력 없이 저장 - 모르는 저장소면 그 저장소의 save
+	@Override
+	public boolean save(String username, String password) {
+		LayeredRepository shard = shardOf(username);
+		if (shard instanceof LayeredDBRepository db) {
+			return db.saveQuietly(username, password);
+		}
+		if (shard instanceof LayeredInMemoryRepository) {
+			return shard.load(new LayeredUser(username, password));
+		}
+		return shard.save(username, password);
+	}
+
+	@Override
+	public boolean login(String username, String password) {
+		return shardOf(username).login(username, password);
+	}
+
+	@Override
+	public LayeredUser findUser(String username) {
+		return shardOf(username).findUser(username);
+	}
+
+	@Override
+	public long size() {
+		long size = 0;
+		for (LayeredRepository shard : shards) {
+			size += shard.size();
+		}
+		return size;
+	}
+
+	@Override
+	public void forEach(Consumer<LayeredUser> action) {
+		for (LayeredRepository shard : shards) {
+			shard.forEach(action);
+		}
+	}
+
+	@Override
+	public boolean load(LayeredUser user) {
+		return shardOf(user.getUsername()).load(user);
+	}
+
+	@Override
+	public boolean replacePassword(String username, String expected, String replacement) {
+		return shardOf(username).replacePassword(username, expected, replacement);
+	}
+
+	@Override
+	public void flush() {
+		for (LayeredRepository shard : shards) {
+			shard.flush();
+		}
+	}
+
+	// 샤드별로 나눠서 샤드마다 saveAll 한 번
+	@Override
+	public int saveAll(List<LayeredUser> users) {
+		List<List<LayeredUser>> perShard = new ArrayList<>(shards.length);
+		for (int i = 0; i < shards.length; i++) {
+			perShard.add(new ArrayList<>());
+		}
+		for (LayeredUser user : users) {
+			perShard.get(shardIndex(user.getUsername())).add(user);
+		}
+		int saved = 0;
+		for (int i = 0; i < shards.length; i++) {
+			if (!perShard.get(i).isEmpty()) {
+				saved += shards[i].saveAll(perShard.get(i));
+			}
+		}
+		return saved;
+	}
+
+	public int getShardCount() {
+		return shards.length;
+	}
+
+	LayeredRepository shardAt(int index) {
+		return shards[index];
+	}
+
+	int shardIndex(String username) {
+		int h = username.hashCode() * 0x9E3779B9;
+		return Math.floorMod(h ^ (h >>> 16), shards.length);
+	}
+
+	private LayeredRepository shardOf(String username) {
+		return shards[shardIndex(username)];
+	}
+
+	@Override
+	public void close() {
+		closeAll(List.of(shards));
+	}
+
+	private static void closeAll(List<LayeredRepository> shards) {
+		RuntimeException failure = null;
+		for (LayeredRepository shard : shards) {
+			if (shard instanceof AutoCloseable closeable) {
+				try {
+					closeable.close();
+				} catch (RuntimeException e) {
+					failure = failure == null ? e : failure;
+				} catch (Exception e) {
+					failure = failure == null ? new IllegalStateException(e) : failure;
+				}
+			}
+		}
+		if (failure != null) {
+			throw failure;
+		}
+	}
+}
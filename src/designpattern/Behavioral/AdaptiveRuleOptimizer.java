@@ -0,0 +1,296 @@
+package designpattern.Behavioral;
+
+/**
+ * 실행 통계로 AndExpression / OrExpression 의 평가 순서를 바꾸는 적응형 최적화
+ *
+ * 왜 필요할까?
+ *  - AndExpression 은 항상 left 부터 평가
+ *  - right 가 싸고 대부분 false 라면 right 를 먼저 평가하는 편이 훨씬 빠름
+ *
+ * 동작
+ *  - wrap 으로 규칙 트리의 And / Or 노드를 AdaptiveBooleanExpression 으로 감쌈(원하는 규칙만 선택 적용)
+ *  - 노드마다 양쪽 피연산자가 true 를 낸 비율과 평가 시간을 기록(64 번에 한 번 표본 평가에서만)
+ *  - interval 번 평가마다 두 순서의 기대 비용을 비교해서 더 싼 순서로 바꿈
+ *      AND : cost(첫째) + P(첫째 = true) * cost(둘째)
+ *      OR  : cost(첫째) + P(첫째 = false) * cost(둘째)
+ *  - 둘째 피연산자는 첫째가 단락하지 않을 때만 평가되므로 보통 표본의 true 비율은 조건부(첫째가 통과한 경우만)
+ *      순서를 바꾸면 둘째가 첫째가 되어 조건 없는 비율이 필요 -> 표본 8 번에 한 번은 단락 없이 둘째도 평가해서 따로 셈
+ *  - 권한 검사는 부수 효과가 없으므로 순서가 바뀌어도 결과는 같음
+ *
+ * report 로 노드별 통계와 마지막 판단 이유를 확인할 수 있음
+ */
+public class AdaptiveRuleOptimizer {
+	static final int DEFAULT_INTERVAL = 4_096;
+
+	private AdaptiveRuleOptimizer() {
+	}
+
+	public static ExpressionR wrap(ExpressionR rule) {
+		return wrap(rule, DEFAULT_INTERVAL);
+	}
+
+	public static ExpressionR wrap(ExpressionR rule, int interval) {
+		if (rule instanceof AndExpression and) {
+			return new AdaptiveBooleanExpression(true, wrap(and.getLeft(), interval), wrap(and.getRight(), interval), interval);
+		}
+		if (rule instanceof OrExpression or) {
+			return new AdaptiveBooleanExpression(false, wrap(or.getLeft(), interval), wrap(or.getRight(), interval), interval);
+		}
+		return rule;
+	}
+
+	/**
+	 * 노드별 통계를 트리 모양 문자열로
+	 */
+	public static String report(ExpressionR rule) {
+		StringBuilder builder = new StringBuilder();
+		report(rule, "", builder);
+		return builder.toString();
+	}
+
+	private static void report(ExpressionR rule, String indent, StringBuilder builder) {
+		if (rule instanceof AdaptiveBooleanExpression node) {
+			builder.append(indent).append(node).append('\n');
+			report(node.getLeft(), indent + "  ", builder);
+			report(node.getRight(), indent + "  ", builder);
+		} else if (rule instanceof RoleExpression role) {
+			builder.append(indent).append(role.getRole()).append('\n');
+		} else {
+			builder.append(indent).append(rule).append('\n');
+		}
+	}
+}
+
+/**
+ * 통계를 모으고 평가 순서를 바꾸는 And / Or 노드
+ *  - 표본이 아닌 평가는 카운터 하나만 올림(규칙 전체를 감싸도 노드마다 비용이 거의 없음)
+ *  - 노드마다 표본 위치를 다르게 시작해서 부모와 자식이 같은 호출에서 동시에 시간을 재지 않게 함
+ *  - 통계 필드는 동기화하지 않음, 여러 스레드가 쓰면 일부 카운트가 빠질 수 있지만 순서 판단에는 충분
+ */
+class AdaptiveBooleanExpression implements ExpressionR {
+	// 64 번에 한 번만 시간 측정(nanoTime 자체 비용이 작은 권한 검사보다 큼)
+	private static final long SAMPLE_MASK = 63;
+	// 그중 8 번에 한 번(512 번에 한 번) 은 단락 없이 둘째도 평가
+	private static final long FULL_SAMPLE_MASK = 511;
+	// 다른 순서가 10% 이상 싸야 바꿈(왔다갔다 방지)
+	private static final double MARGIN = 0.9;
+
+	private final boolean and;
+	private final ExpressionR left;
+	private final ExpressionR right;
+	private final int interval;
+	private final OperandStats leftStats = new OperandStats();
+	private final OperandStats rightStats = new OperandStats();
+	private volatile boolean swapped;
+	private long evaluations;
+	private long lastReconsidered;
+	private int reorderCount;
+
+	// 판단 때는 문자열을 만들지 않고 비용만 기록, getLastDecision 에서 조합
+	private volatile ReorderDecision lastDecision = ReorderDecision.NOT_YET;
+	private double lastCurrentCost;
+	private double lastOtherCost;
+
+	public AdaptiveBooleanExpression(boolean and, ExpressionR left, ExpressionR right, int interval) {
+		if (interval <= 0) {
+			throw new IllegalArgumentException("interval 은 1 이상이어야 합니다.");
+		}
+		this.and = and;
+		this.left = left;
+		this.right = right;
+		this.interval = interval;
+		this.evaluations = System.identityHashCode(this) & SAMPLE_MASK;
+		this.lastReconsidered = evaluations;
+	}
+
+	@Override
+	public boolean interpret(RoleContext context) {
+		long count = ++evaluations;
+		if ((count & SAMPLE_MASK) != 0) {
+			ExpressionR first = swapped ? right : left;
+			boolean value = first.interpret(context);
+			// 단락 평가 - AND 는 false, OR 는 true 면 둘째는 평가하지 않음
+			return (and != value) ? value : (first == left ? right : left).interpret(context);
+		}
+		boolean full = (count & FULL_SAMPLE_MASK) == 0;
+		boolean result = swapped
+				? evaluateSample(right, rightStats, left, leftStats, full, context)
+				: evaluateSample(left, leftStats, right, rightStats, full, context);
+		if (count - lastReconsidered >= interval) {
+			lastReconsidered = count;
+			reconsider();
+		}
+		return result;
+	}
+
+	// full 이면 첫째가 단락해도 둘째를 평가(결과는 단락 평가와 같음) - 둘째의 조건 없는 true 비율용
+	private boolean evaluateSample(ExpressionR first, OperandStats firstStats,
+			ExpressionR second, OperandStats secondStats, boolean full, RoleContext context) {
+		long start = System.nanoTime();
+		boolean value = first.interpret(context);
+		long middle = System.nanoTime();
+		// 첫째는 항상 평가되므로 모든 표본이 조건 없는 표본
+		firstStats.recordSample(value, middle - start, true);
+		if (and != value && !full) {
+			return value;
+		}
+		boolean secondValue = second.interpret(context);
+		secondStats.recordSample(secondValue, System.nanoTime() - middle, full);
+		return and != value ? value : secondValue;
+	}
+
+	private void reconsider() {
+		OperandStats first = swapped ? rightStats : leftStats;
+		OperandStats second = swapped ? leftStats : rightStats;
+		if (!second.hasSamples()) {
+			lastDecision = ReorderDecision.SECOND_UNSAMPLED;
+			return;
+		}
+		if (!first.hasUnconditionalSamples() || !second.hasUnconditionalSamples()) {
+			lastDecision = ReorderDecision.TOO_FEW_SAMPLES;
+			return;
+		}
+		double current = expectedCost(first, second);
+		double other = expectedCost(second, first);
+		lastCurrentCost = current;
+		lastOtherCost = other;
+		if (other < current * MARGIN) {
+			swapped = !swapped;
+			reorderCount++;
+			lastDecision = ReorderDecision.SWAPPED;
+		} else {
+			lastDecision = ReorderDecision.KEPT;
+		}
+	}
+
+	// 첫째를 먼저 평가할 때 한 번 평가의 기대 비용 - 첫째의 true 비율은 조건 없는 표본으로
+	private double expectedCost(OperandStats first, OperandStats second) {
+		double trueRatio = first.unconditionalTrueRatio();
+		double continueProbability = and ? trueRatio : 1 - trueRatio;
+		return first.averageNanos() + continueProbability * second.averageNanos();
+	}
+
+	public ExpressionR getLeft() {
+		return left;
+	}
+
+	public ExpressionR getRight() {
+		return right;
+	}
+
+	public boolean isSwapped() {
+		return swapped;
+	}
+
+	public int getReorderCount() {
+		return reorderCount;
+	}
+
+	public String getLastDecision() {
+		ReorderDecision decision = lastDecision;
+		if (!decision.isCompared()) {
+			return decision.getMessage();
+		}
+		return String.format("%s - 현재 순서 %.1fns, 반대 순서 %.1fns", decision.getMessage(), lastCurrentCost, lastOtherCost);
+	}
+
+	public OperandStats getLeftStats() {
+		return leftStats;
+	}
+
+	public OperandStats getRightStats() {
+		return rightStats;
+	}
+
+	@Override
+	public String toString() {
+		return (and ? "AND" : "OR") + (swapped ? " [right 먼저]" : " [left 먼저]")
+				+ " left=" + leftStats + ", right=" + rightStats
+				+ ", 변경 " + reorderCount + "회, " + getLastDecision();
+	}
+}
+
+// reconsider 의 마지막 판단 - 비교까지 했으면 두 순서의 비용을 함께 보여 줌
+enum ReorderDecision {
+	NOT_YET("아직 판단 전", false),
+	SECOND_UNSAMPLED("유지 - 둘째 피연산자가 거의 평가되지 않음(첫째에서 단락)", false),
+	TOO_FEW_SAMPLES("유지 - 시간 표본 부족", false),
+	SWAPPED("순서 변경", true),
+	KEPT("유지", true);
+
+	private final String message;
+	private final boolean compared;
+
+	ReorderDecision(String message, boolean compared) {
+		this.message = message;
+		this.compared = compared;
+	}
+
+	public String getMessage() {
+		return message;
+	}
+
+	public boolean isCompared() {
+		return compared;
+	}
+}
+
+/**
+ * 피연산자 하나의 통계
+ *  - 평가 시간은 지수 이동 평균(최근 표본 가중), 초기 JIT 전 측정값이나 GC 멈춤이 오래 남지 않게 함
+ *  - true 비율은 두 가지
+ *      trueRatio : 평가된 모든 표본 - 둘째 자리에 있었다면 첫째가 통과한 경우만의 조건부 비율
+ *      unconditionalTrueRatio : 앞 피연산자와 관계없이 평가한 표본만 - 순서 판단에 사용
+ */
+class OperandStats {
+	private static final double SMOOTHING = 1.0 / 16;
+
+	private long samples;
+	private long trueCount;
+	private long unconditionalSamples;
+	private long unconditionalTrueCount;
+	private double averageNanos;
+
+	void recordSample(boolean value, long nanos, boolean unconditional) {
+		if (value) {
+			trueCount++;
+		}
+		if (unconditional) {
+			unconditionalSamples++;
+			if (value) {
+				unconditionalTrueCount++;
+			}
+		}
+		averageNanos = (samples == 0) ? nanos : averageNanos + (nanos - averageNanos) * SMOOTHING;
+		samples++;
+	}
+
+	boolean hasSamples() {
+		return samples > 0;
+	}
+
+	boolean hasUnconditionalSamples() {
+		return unconditionalSamples > 0;
+	}
+
+	public double unconditionalTrueRatio() {
+		return unconditionalSamples == 0 ? 0 : (double) unconditionalTrueCount / unconditionalSamples;
+	}
+
+	public long getSamples() {
+		return samples;
+	}
+
+	public double trueRatio() {
+		return samples == 0 ? 0 : (double) trueCount / samples;
+	}
+
+	public double averageNanos() {
+		return averageNanos;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("{표본 %d, true %.1f%%, %.1fns}", samples, trueRatio() * 100, averageNanos());
+	}
+}
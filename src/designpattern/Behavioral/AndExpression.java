@@ -0,0 +1,24 @@
+package designpattern.Behavioral;
+
+// 권한 체크 조건
+class AndExpression implements ExpressionR {
+	private ExpressionR left, right;
+	
+	public AndExpression(ExpressionR left, ExpressionR right) {
+		this.left = left;
+		this.right = right;
+	}
+	
+	public ExpressionR getLeft() {
+		return left;
+	}
+	
+	public ExpressionR getRight() {
+		return right;
+	}
+	
+	@Override
+	public boolean interpret(RoleContext context) {
+        return left.interpret(context) && right.interpret(context);
+	}
+}
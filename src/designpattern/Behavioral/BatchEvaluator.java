@@ -0,0 +1,262 @@
+package designpattern.Behavioral;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * 하나의 Expression 을 여러 행(row)에 한 번에 적용하는 컬럼 단위 평가
+ *
+ * 왜 필요할까?
+ *  - 같은 수식 (x + 3) * y 를 행마다 Context 를 만들어 interpret 하면 행 수 x 노드 수 만큼 가상 호출
+ *  - 노드마다 모든 행을 한 번에 계산하면 호출은 노드 수 만큼이고, 나머지는 배열 루프
+ *
+ * 입력 : 변수 이름 -> int[] 컬럼, 출력 : 행별 결과 int[]
+ *  - 덧셈, 뺄셈, 곱셈 루프는 단순한 카운트 루프로 두어 JIT(C2)의 자동 벡터화(SIMD) 대상이 되게 함
+ *      본 코드의 경로는 이 스칼라 루프뿐, Vector API 로 직접 쓴 비교용 커널은 jmh 모듈의 vector 프로파일(VectorBatchEvaluator)
+ *  - 입력 컬럼은 수정하지 않고, 중간 결과 배열은 가능한 재사용
+ *
+ * 예외
+ *  - 컬럼이 없는 변수 -> Context 와 같은 IllegalArgumentException
+ *  - 0 으로 나누는 행이 하나라도 있으면 DivideExpression 과 같은 ArithmeticException
+ *  - 여러 행, 여러 노드가 동시에 실패하면 어떤 예외가 먼저 나는지는 행 단위 평가와 다를 수 있음
+ */
+public class BatchEvaluator {
+
+	private BatchEvaluator() {
+	}
+
+	public static int[] evaluate(Expression expression, Map<String, int[]> columns, int rows) {
+		Column result = evaluateColumn(expression, columns, rows);
+		if (result.isConstant()) {
+			int[] values = new int[rows];
+			Arrays.fill(values, result.constant);
+			return values;
+		}
+		// 입력 컬럼을 그대로 돌려주지 않도록 복사
+		return result.owned ? result.values : result.values.clone();
+	}
+
+	private static Column evaluateColumn(Expression expression, Map<String, int[]> columns, int rows) {
+		if (expression instanceof NumberExpression number) {
+			return Column.constant(number.getNumber());
+		}
+		if (expression instanceof VariableExpression variable) {
+			return Column.input(column(columns, variable.getName(), rows));
+		}
+		if (expression instanceof SlotVariableExpression variable) {
+			return Column.input(column(columns, variable.getName(), rows));
+		}
+		if (expression instanceof PlusExpression plus) {
+			return plus(evaluateColumn(plus.getLeft(), columns, rows), evaluateColumn(plus.getRight(), columns, rows), rows);
+		}
+		if (expression instanceof MinusExpression minus) {
+			return minus(evaluateColumn(minus.getLeft(), columns, rows), evaluateColumn(minus.getRight(), columns, rows), rows);
+		}
+		if (expression instanceof MultiplyExpression multiply) {
+			return multiply(evaluateColumn(multiply.getLeft(), columns, rows), evaluateColumn(multiply.getRight(), columns, rows), rows);
+		}
+		if (expression instanceof DivideExpression divide) {
+			// 기존 interpret 처럼 오른쪽부터 계산
+			Column right = evaluateColumn(divide.getRight(), columns, rows);
+			checkDivisor(right, rows);
+			return divide(evaluateColumn(divide.getLeft(), columns, rows), right, rows);
+		}
+		// 모르는 Expression 은 행마다 Context 를 만들어 해석
+		return rowByRow(expression, columns, rows);
+	}
+
+	// 변수의 입력 컬럼, 없거나 rows 보다 짧으면 IllegalArgumentException
+	static int[] column(Map<String, int[]> columns, String name, int rows) {
+		int[] values = columns.get(name);
+		if (values == null) {
+			throw new IllegalArgumentException("변수 " + name + "은(는) 정의되지 않았습니다.");
+		}
+		if (values.length < rows) {
+			throw new IllegalArgumentException("변수 " + name + " 컬럼의 길이가 " + rows + " 보다 짧습니다.");
+		}
+		return values;
+	}
+
+	private static Column plus(Column left, Column right, int rows) {
+		if (left.isConstant() && right.isConstant()) {
+			return Column.constant(left.constant + right.constant);
+		}
+		int[] out = target(left, right, rows);
+		if (right.isConstant()) {
+			int[] a = left.values;
+			int c = right.constant;
+			for (int i = 0; i < rows; i++) {
+				out[i] = a[i] + c;
+			}
+		} else if (left.isConstant()) {
+			int c = left.constant;
+			int[] b = right.values;
+			for (int i = 0; i < rows; i++) {
+				out[i] = c + b[i];
+			}
+		} else {
+			int[] a = left.values;
+			int[] b = right.values;
+			for (int i = 0; i < rows; i++) {
+				out[i] = a[i] + b[i];
+			}
+		}
+		return Column.owned(out);
+	}
+
+	private static Column minus(Column left, Column right, int rows) {
+		if (left.isConstant() && right.isConstant()) {
+			return Column.constant(left.constant - right.constant);
+		}
+		int[] out = target(left, right, rows);
+		if (right.isConstant()) {
+			int[] a = left.values;
+			int c = right.constant;
+			for (int i = 0; i < rows; i++) {
+				out[i] = a[i] - c;
+			}
+		} else if (left.isConstant()) {
+			int c = left.constant;
+			int[] b = right.values;
+			for (int i = 0; i < rows; i++) {
+				out[i] = c - b[i];
+			}
+		} else {
+			int[] a = left.values;
+			int[] b = right.values;
+			for (int i = 0; i < rows; i++) {
+				out[i] = a[i] - b[i];
+			}
+		}
+		return Column.owned(out);
+	}
+
+	private static Column multiply(Column left, Column right, int rows) {
+		if (left.isConstant() && right.isConstant()) {
+			return Column.constant(left.constant * right.constant);
+		}
+		int[] out = target(left, right, rows);
+		if (right.isConstant()) {
+			int[] a = left.values;
+			int c = right.constant;
+			for (int i = 0; i < rows; i++) {
+				out[i] = a[i] * c;
+			}
+		} else if (left.isConstant()) {
+			int c = left.constant;
+			int[] b = right.values;
+			for (int i = 0; i < rows; i++) {
+				out[i] = c * b[i];
+			}
+		} else {
+			int[] a = left.values;
+			int[] b = right.values;
+			for (int i = 0; i < rows; i++) {
+				out[i] = a[i] * b[i];
+			}
+		}
+		return Column.owned(out);
+	}
+
+	private static void checkDivisor(Column right, int rows) {
+		if (right.isConstant()) {
+			if (right.constant == 0) {
+				throw new ArithmeticException(DivideExpression.ZERO_DIVISION_MESSAGE);
+			}
+			return;
+		}
+		int[] b = right.values;
+		for (int i = 0; i < rows; i++) {
+			if (b[i] == 0) {
+				throw new ArithmeticException(DivideExpression.ZERO_DIVISION_MESSAGE);
+			}
+		}
+	}
+
+	// 정수 나눗셈은 SIMD 명령이 없어 벡터화되지 않음 - 0 검사는 checkDivisor 에서 끝냄
+	private static Column divide(Column left, Column right, int rows) {
+		if (left.isConstant() && right.isConstant()) {
+			return Column.constant(left.constant / right.constant);
+		}
+		int[] out = target(left, right, rows);
+		if (right.isConstant()) {
+			int[] a = left.values;
+			int c = right.constant;
+			for (int i = 0; i < rows; i++) {
+				out[i] = a[i] / c;
+			}
+		} else if (left.isConstant()) {
+			int c = left.constant;
+			int[] b = right.values;
+			for (int i = 0; i < rows; i++) {
+				out[i] = c / b[i];
+			}
+		} else {
+			int[] a = left.values;
+			int[] b = right.values;
+			for (int i = 0; i < rows; i++) {
+				out[i] = a[i] / b[i];
+			}
+		}
+		return Column.owned(out);
+	}
+
+	// 자식의 중간 결과 배열이 있으면 그 자리에 덮어씀
+	private static int[] target(Column left, Column right, int rows) {
+		if (left.owned) {
+			return left.values;
+		}
+		if (right.owned) {
+			return right.values;
+		}
+		return new int[rows];
+	}
+
+	private static Column rowByRow(Expression expression, Map<String, int[]> columns, int rows) {
+		int[] out = new int[rows];
+		for (int i = 0; i < rows; i++) {
+			Context context = new Context();
+			for (Map.Entry<String, int[]> column : columns.entrySet()) {
+				if (column.getValue().length > i) {
+					context.setVariable(column.getKey(), column.getValue()[i]);
+				}
+			}
+			out[i] = expression.interpret(context);
+		}
+		return Column.owned(out);
+	}
+
+	/**
+	 * 노드 하나의 계산 결과
+	 *  - 상수 : 모든 행이 같은 값이라 배열을 만들지 않음
+	 *  - input : 입력 컬럼 그대로(수정 금지)
+	 *  - owned : 이 평가에서 만든 중간 배열(덮어써도 됨)
+	 */
+	private static final class Column {
+		private final int[] values;
+		private final int constant;
+		private final boolean owned;
+
+		private Column(int[] values, int constant, boolean owned) {
+			this.values = values;
+			this.constant = constant;
+			this.owned = owned;
+		}
+
+		static Column constant(int value) {
+			return new Column(null, value, false);
+		}
+
+		static Column input(int[] values) {
+			return new Column(values, 0, false);
+		}
+
+		static Column owned(int[] values) {
+			return new Column(values, 0, true);
+		}
+
+		boolean isConstant() {
+			return values == null;
+		}
+	}
+}
@@ -0,0 +1,66 @@
+package designpattern.Behavioral;
+
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * long[] 비트셋으로 권한을 보관하는 RoleContext
+ *  - hasRole(String) 도 그대로 동작하므로 기존 RoleExpression 트리에도 사용 가능
+ */
+class BitsetRoleContext extends RoleContext {
+	private final RoleDictionary dictionary;
+	private long[] words = new long[1];
+
+	public BitsetRoleContext(RoleDictionary dictionary) {
+		super(Set.of());
+		this.dictionary = dictionary;
+	}
+
+	public void addRole(String role) {
+		int id = dictionary.intern(role);
+		int word = id >>> 6;
+		if (word >= words.length) {
+			words = Arrays.copyOf(words, word + 1);
+		}
+		words[word] |= 1L << id;
+	}
+
+	public boolean hasRole(int id) {
+		int word = id >>> 6;
+		return word < words.length && (words[word] & (1L << id)) != 0;
+	}
+
+	@Override
+	public boolean hasRole(String role) {
+		int id = dictionary.idOf(role);
+		return id >= 0 && hasRole(id);
+	}
+
+	boolean containsAll(long[] mask) {
+		for (int i = 0; i < mask.length; i++) {
+			long word = i < words.length ? words[i] : 0L;
+			if ((word & mask[i]) != mask[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	boolean containsAny(long[] mask) {
+		int length = Math.min(mask.length, words.length);
+		for (int i = 0; i < length; i++) {
+			if ((words[i] & mask[i]) != 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	long[] words() {
+		return words.clone();
+	}
+
+	RoleDictionary getDictionary() {
+		return dictionary;
+	}
+}
@@ -0,0 +1,6 @@
+package designpattern.Behavioral;
+
+// 컴파일 결과 - Expression 을 그대로 구현하므로 기존 트리 자리에 바로 사용 가능
+@FunctionalInterface
+interface CompiledExpression extends Expression {
+}
@@ -0,0 +1,20 @@
+package designpattern.Behavioral;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Context - 문자가 들어올 경우 해석
+class Context {
+    private Map<String, Integer> variables = new HashMap<>();
+
+    public void setVariable(String name, int value) {
+        variables.put(name, value);
+    }
+
+    public int getVariable(String name) {
+        if (!variables.containsKey(name)) {
+            throw new IllegalArgumentException("변수 " + name + "은(는) 정의되지 않았습니다.");
+        }
+        return variables.get(name);
+    }
+}
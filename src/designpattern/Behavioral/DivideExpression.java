@@ -0,0 +1,30 @@
+package designpattern.Behavioral;
+
+// 나눗셈 표현
+class DivideExpression implements Expression {
+	static final String ZERO_DIVISION_MESSAGE = "0 으로 나눌 수 없습니다.";
+	
+	private Expression left;
+	private Expression right;
+	
+	public DivideExpression(Expression left, Expression right) {
+		this.left = left;
+		this.right = right;
+	}
+	
+	public Expression getLeft() {
+		return left;
+	}
+	
+	public Expression getRight() {
+		return right;
+	}
+	
+	@Override
+	public int interpret(Context context) {
+	    if (right.interpret(context) == 0) {
+	        throw new ArithmeticException(ZERO_DIVISION_MESSAGE);
+	    }
+		return left.interpret(context) / right.interpret(context);
+	}
+}
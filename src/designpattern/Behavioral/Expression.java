@@ -0,0 +1,24 @@
+package designpattern.Behavioral;
+
+/**
+ * AbstractExpression
+ *  - 모든 표현식이 따르는 인터페이스
+ * 
+ * TerminalExpression
+ *  - 더 이상 분해되지 않는 기본 표현식
+ * 
+ * NonTerminalExpression
+ *  - 다른 표현식을 조합한 복합 표현식
+ * 
+ * Context
+ *  - 해석 시 필요한 정보
+ * 
+ * Client
+ *  - 표현식을 만들고 실행하는 쪽(Interpreter.main)
+ */
+
+// AbstractExpression
+interface Expression {
+//	int interpret();
+	int interpret(Context context);
+}
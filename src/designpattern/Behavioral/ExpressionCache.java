@@ -0,0 +1,75 @@
+package designpattern.Behavioral;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 파싱 + 최적화 + 컴파일 결과를 정규화된 수식 문자열로 보관하는 LRU 캐시
+ *  - 자주 쓰는 수식은 한 번만 파싱, 최적화, 컴파일
+ *  - maxSize 를 넘으면 가장 오래 사용하지 않은 수식부터 제거
+ *  - 파싱은 락 밖에서 하므로 느린 파싱이 다른 조회를 막지 않음
+ */
+class ExpressionCache {
+	private final int maxSize;
+	private final Map<String, CompiledExpression> cache;
+	private long hitCount;
+	private long missCount;
+
+	public ExpressionCache(int maxSize) {
+		if (maxSize <= 0) {
+			throw new IllegalArgumentException("캐시 크기는 1 이상이어야 합니다.");
+		}
+		this.maxSize = maxSize;
+		this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, CompiledExpression> eldest) {
+				return size() > ExpressionCache.this.maxSize;
+			}
+		};
+	}
+
+	public CompiledExpression get(String source) {
+		String key = ExpressionParser.normalize(source);
+		synchronized (this) {
+			CompiledExpression cached = cache.get(key);
+			if (cached != null) {
+				hitCount++;
+				return cached;
+			}
+			missCount++;
+		}
+		CompiledExpression compiled = ExpressionCompiler.compile(ExpressionOptimizer.optimize(ExpressionParser.parse(key)));
+		synchronized (this) {
+			// 그 사이 다른 스레드가 넣었다면 먼저 들어간 것을 사용
+			CompiledExpression raced = cache.putIfAbsent(key, compiled);
+			return raced != null ? raced : compiled;
+		}
+	}
+
+	public synchronized long getHitCount() {
+		return hitCount;
+	}
+
+	public synchronized long getMissCount() {
+		return missCount;
+	}
+
+	public synchronized int size() {
+		return cache.size();
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	public synchronized void clear() {
+		cache.clear();
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "ExpressionCache[size=" + cache.size() + "/" + maxSize + ", hit=" + hitCount + ", miss=" + missCount + "]";
+	}
+}
@@ -0,0 +1,136 @@
+package designpattern.Behavioral;
+
+/**
+ * 완성된 Expression 트리를 람다 클로저 체인으로 컴파일
+ *
+ * 왜 필요할까?
+ *  - interpret 호출마다 트리를 따라 인터페이스 디스패치가 일어남(메가모픽 호출)
+ *  - 노드마다 고정된 람다를 미리 엮어 두면 각 호출 지점의 대상이 하나로 고정되어 JIT 인라이닝이 쉬워짐
+ *
+ * 리프(숫자, 변수) 조합은 한 단계로 합쳐서 호출 깊이를 줄임
+ * 결과와 예외(0 나눗셈, 정의되지 않은 변수)는 기존 interpret 와 동일하게 유지
+ *  - DivideExpression 과 같이 오른쪽을 먼저 계산하고 0 이면 왼쪽은 계산하지 않음
+ */
+public class ExpressionCompiler {
+
+	private ExpressionCompiler() {
+	}
+
+	public static CompiledExpression compile(Expression expression) {
+		if (expression instanceof CompiledExpression compiled) {
+			return compiled;
+		}
+		if (expression instanceof NumberExpression number) {
+			int value = number.getNumber();
+			return context -> value;
+		}
+		if (expression instanceof VariableExpression variable) {
+			String name = variable.getName();
+			return context -> context.getVariable(name);
+		}
+		if (expression instanceof SlotVariableExpression variable) {
+			// final 클래스라 호출 지점이 단형(monomorphic)으로 고정됨
+			return context -> variable.interpret(context);
+		}
+		if (expression instanceof PlusExpression plus) {
+			return plus(plus.getLeft(), plus.getRight());
+		}
+		if (expression instanceof MinusExpression minus) {
+			return minus(minus.getLeft(), minus.getRight());
+		}
+		if (expression instanceof MultiplyExpression multiply) {
+			return multiply(multiply.getLeft(), multiply.getRight());
+		}
+		if (expression instanceof DivideExpression divide) {
+			return divide(divide.getLeft(), divide.getRight());
+		}
+		// 모르는 Expression 은 기존 방식 그대로 해석
+		return expression::interpret;
+	}
+
+	private static CompiledExpression plus(Expression left, Expression right) {
+		if (left instanceof VariableExpression l && right instanceof NumberExpression r) {
+			String name = l.getName();
+			int value = r.getNumber();
+			return context -> context.getVariable(name) + value;
+		}
+		if (left instanceof VariableExpression l && right instanceof VariableExpression r) {
+			String leftName = l.getName();
+			String rightName = r.getName();
+			return context -> context.getVariable(leftName) + context.getVariable(rightName);
+		}
+		if (right instanceof NumberExpression r) {
+			CompiledExpression l = compile(left);
+			int value = r.getNumber();
+			return context -> l.interpret(context) + value;
+		}
+		CompiledExpression l = compile(left);
+		CompiledExpression r = compile(right);
+		return context -> l.interpret(context) + r.interpret(context);
+	}
+
+	private static CompiledExpression minus(Expression left, Expression right) {
+		if (left instanceof VariableExpression l && right instanceof NumberExpression r) {
+			String name = l.getName();
+			int value = r.getNumber();
+			return context -> context.getVariable(name) - value;
+		}
+		if (left instanceof VariableExpression l && right instanceof VariableExpression r) {
+			String leftName = l.getName();
+			String rightName = r.getName();
+			return context -> context.getVariable(leftName) - context.getVariable(rightName);
+		}
+		if (right instanceof NumberExpression r) {
+			CompiledExpression l = compile(left);
+			int value = r.getNumber();
+			return context -> l.interpret(context) - value;
+		}
+		CompiledExpression l = compile(left);
+		CompiledExpression r = compile(right);
+		return context -> l.interpret(context) - r.interpret(context);
+	}
+
+	private static CompiledExpression multiply(Expression left, Expression right) {
+		if (left instanceof VariableExpression l && right instanceof NumberExpression r) {
+			String name = l.getName();
+			int value = r.getNumber();
+			return context -> context.getVariable(name) * value;
+		}
+		if (left instanceof VariableExpression l && right instanceof VariableExpression r) {
+			String leftName = l.getName();
+			String rightName = r.getName();
+			return context -> context.getVariable(leftName) * context.getVariable(rightName);
+		}
+		if (right instanceof NumberExpression r) {
+			CompiledExpression l = compile(left);
+			int value = r.getNumber();
+			return context -> l.interpret(context) * value;
+		}
+		CompiledExpression l = compile(left);
+		CompiledExpression r = compile(right);
+		return context -> l.interpret(context) * r.interpret(context);
+	}
+
+	private static CompiledExpression divide(Expression left, Expression right) {
+		if (right instanceof NumberExpression r) {
+			int value = r.getNumber();
+			// 오른쪽이 상수 0 이면 왼쪽을 계산하기 전에 항상 예외
+			if (value == 0) {
+				return context -> {
+					throw new ArithmeticException(DivideExpression.ZERO_DIVISION_MESSAGE);
+				};
+			}
+			CompiledExpression l = compile(left);
+			return context -> l.interpret(context) / value;
+		}
+		CompiledExpression l = compile(left);
+		CompiledExpression r = compile(right);
+		return context -> {
+			int divisor = r.interpret(context);
+			if (divisor == 0) {
+				throw new ArithmeticException(DivideExpression.ZERO_DIVISION_MESSAGE);
+			}
+			return l.interpret(context) / divisor;
+		};
+	}
+}
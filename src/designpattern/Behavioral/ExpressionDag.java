@@ -0,0 +1,208 @@
+package designpattern.Behavioral;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * 공통 부분식 제거(CSE) - 트리를 DAG 로 바꿔서 같은 부분식은 한 번만 계산
+ *
+ * 왜 필요할까?
+ *  - 생성된 수식에는 (x + 3) 같은 같은 부분 트리가 여러 번 반복됨
+ *  - 트리 순회는 복사본마다 다시 계산하고, DivideExpression 은 right 를 두 번 계산함
+ *
+ * 해시 콘싱(hash-consing)
+ *  - (연산, 왼쪽 노드 번호, 오른쪽 노드 번호) 가 같은 노드는 하나의 번호로 합침
+ *  - 노드 번호는 기존 interpret 의 계산 순서대로 매김(나눗셈은 오른쪽 -> 0 검사 -> 왼쪽)
+ *
+ * 평가
+ *  - 노드 번호 순서대로 int[] 에 값을 채우는 단순 루프, 각 고유 노드는 Context 당 정확히 한 번 계산
+ *  - 먼저 실패하는 노드가 트리 순회와 같으므로 예외도 같음
+ */
+public class ExpressionDag {
+	private static final int NUMBER = 0;
+	private static final int LEAF = 1;
+	private static final int PLUS = 2;
+	private static final int MINUS = 3;
+	private static final int MULTIPLY = 4;
+	private static final int DIVIDE = 5;
+	// 나눗셈의 왼쪽을 계산하기 전에 오른쪽이 0 인지 검사하는 명령(값은 없음)
+	private static final int CHECK_DIVISOR = 6;
+
+	private final int[] ops;
+	private final int[] lefts;
+	private final int[] rights;
+	private final int[] constants;
+	private final Expression[] leaves;
+	private final int root;
+	private final long treeNodes;
+
+	private ExpressionDag(Builder builder, int root) {
+		this.ops = Arrays.copyOf(builder.ops, builder.size);
+		this.lefts = Arrays.copyOf(builder.lefts, builder.size);
+		this.rights = Arrays.copyOf(builder.rights, builder.size);
+		this.constants = Arrays.copyOf(builder.constants, builder.size);
+		this.leaves = Arrays.copyOf(builder.leaves, builder.size);
+		this.root = root;
+		this.treeNodes = builder.treeSizes[root];
+	}
+
+	public static ExpressionDag build(Expression expression) {
+		Builder builder = new Builder();
+		int root = builder.add(expression);
+		return new ExpressionDag(builder, root);
+	}
+
+	public int evaluate(Context context) {
+		return evaluate(context, new int[ops.length]);
+	}
+
+	/**
+	 * 중간 값 배열을 재사용하는 평가 - values 길이는 size() 이상
+	 */
+	public int evaluate(Context context, int[] values) {
+		for (int i = 0; i < ops.length; i++) {
+			values[i] = computeNode(i, values, context);
+		}
+		return values[root];
+	}
+
+	/**
+	 * 노드 하나만 계산 - 자식 노드 값은 values 에 이미 있어야 함
+	 *  - 0 검사 명령은 값이 없어서 0 반환
+	 */
+	int computeNode(int node, int[] values, Context context) {
+		switch (ops[node]) {
+		case NUMBER:
+			return constants[node];
+		case LEAF:
+			return leaves[node].interpret(context);
+		case PLUS:
+			return values[lefts[node]] + values[rights[node]];
+		case MINUS:
+			return values[lefts[node]] - values[rights[node]];
+		case MULTIPLY:
+			return values[lefts[node]] * values[rights[node]];
+		case CHECK_DIVISOR:
+			if (values[rights[node]] == 0) {
+				throw new ArithmeticException(DivideExpression.ZERO_DIVISION_MESSAGE);
+			}
+			return 0;
+		default:
+			return values[lefts[node]] / values[rights[node]];
+		}
+	}
+
+	// 자식 노드 번호, 없으면 -1
+	int leftOf(int node) {
+		return lefts[node];
+	}
+
+	int rightOf(int node) {
+		return rights[node];
+	}
+
+	// 변수 같은 리프 노드의 원래 Expression, 리프가 아니면 null
+	Expression leafOf(int node) {
+		return leaves[node];
+	}
+
+	int rootNode() {
+		return root;
+	}
+
+	// 고유 노드 수(0 검사 명령 포함)
+	public int size() {
+		return ops.length;
+	}
+
+	// DAG 로 만들기 전 트리의 노드 수(같은 객체를 여러 번 참조하면 그만큼 센 값)
+	public long treeNodeCount() {
+		return treeNodes;
+	}
+
+	private static final class Builder {
+		private final Map<String, Integer> unique = new HashMap<>();
+		// 같은 객체를 다시 만나면 하위 트리를 다시 돌지 않음
+		private final Map<Expression, Integer> visited = new IdentityHashMap<>();
+		private int[] ops = new int[16];
+		private int[] lefts = new int[16];
+		private int[] rights = new int[16];
+		private int[] constants = new int[16];
+		private Expression[] leaves = new Expression[16];
+		private long[] treeSizes = new long[16];
+		private int size;
+
+		int add(Expression expression) {
+			Integer known = visited.get(expression);
+			if (known != null) {
+				return known;
+			}
+			int id = addNew(expression);
+			visited.put(expression, id);
+			return id;
+		}
+
+		private int addNew(Expression expression) {
+			if (expression instanceof NumberExpression number) {
+				return intern("n" + number.getNumber(), NUMBER, -1, -1, number.getNumber(), null);
+			}
+			if (expression instanceof VariableExpression variable) {
+				return intern("v" + variable.getName(), LEAF, -1, -1, 0, expression);
+			}
+			if (expression instanceof SlotVariableExpression variable) {
+				return intern("s" + variable.getSlot() + ":" + variable.getName(), LEAF, -1, -1, 0, expression);
+			}
+			if (expression instanceof PlusExpression plus) {
+				int left = add(plus.getLeft());
+				return binary(PLUS, left, add(plus.getRight()));
+			}
+			if (expression instanceof MinusExpression minus) {
+				int left = add(minus.getLeft());
+				return binary(MINUS, left, add(minus.getRight()));
+			}
+			if (expression instanceof MultiplyExpression multiply) {
+				int left = add(multiply.getLeft());
+				return binary(MULTIPLY, left, add(multiply.getRight()));
+			}
+			if (expression instanceof DivideExpression divide) {
+				// interpret 와 같은 순서 : 오른쪽 -> 0 검사 -> 왼쪽
+				int right = add(divide.getRight());
+				intern("?" + right, CHECK_DIVISOR, -1, right, 0, null);
+				int left = add(divide.getLeft());
+				return binary(DIVIDE, left, right);
+			}
+			// 모르는 Expression 은 공유하지 않는 리프로 취급
+			return intern("@" + System.identityHashCode(expression) + ":" + size, LEAF, -1, -1, 0, expression);
+		}
+
+		private int binary(int op, int left, int right) {
+			return intern(op + ":" + left + ":" + right, op, left, right, 0, null);
+		}
+
+		private int intern(String key, int op, int left, int right, int constant, Expression leaf) {
+			Integer existing = unique.get(key);
+			if (existing != null) {
+				return existing;
+			}
+			if (size == ops.length) {
+				int length = size * 2;
+				ops = Arrays.copyOf(ops, length);
+				lefts = Arrays.copyOf(lefts, length);
+				rights = Arrays.copyOf(rights, length);
+				constants = Arrays.copyOf(constants, length);
+				leaves = Arrays.copyOf(leaves, length);
+				treeSizes = Arrays.copyOf(treeSizes, length);
+			}
+			ops[size] = op;
+			lefts[size] = left;
+			rights[size] = right;
+			constants[size] = constant;
+			leaves[size] = leaf;
+			treeSizes[size] = (op == CHECK_DIVISOR) ? 0 : 1 + (left < 0 ? 0 : treeSizes[left]) + (right < 0 ? 0 : treeSizes[right]);
+			unique.put(key, size);
+			return size++;
+		}
+	}
+}
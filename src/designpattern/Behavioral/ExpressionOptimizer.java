@@ -0,0 +1,128 @@
+package designpattern.Behavioral;
+
+/**
+ * 평가 전에 트리를 같은 결과를 내는 더 작은 트리로 바꾸는 최적화
+ *
+ * 상수 접기(constant folding)
+ *  - NumberExpression(2) * NumberExpression(3) -> NumberExpression(6)
+ *  - (x + 2) + 3 -> x + 5, (x * 2) * 3 -> x * 6 (int 오버플로우도 결과가 같음)
+ *
+ * 항등식 제거
+ *  - x + 0, 0 + x, x - 0, x * 1, 1 * x, x / 1 -> x
+ *
+ * 하지 않는 것
+ *  - 상수 0 으로 나누기는 접지 않고 DivideExpression 을 그대로 남김(평가할 때 같은 예외가 나야 함)
+ *  - x * 0 -> 0 은 하지 않음, x 가 정의되지 않은 변수나 0 나눗셈을 포함하면 예외가 사라지기 때문
+ *
+ * 원본 트리는 수정하지 않고 새 트리를 반환
+ */
+public class ExpressionOptimizer {
+
+	private ExpressionOptimizer() {
+	}
+
+	public static Expression optimize(Expression expression) {
+		if (expression instanceof PlusExpression plus) {
+			return plus(optimize(plus.getLeft()), optimize(plus.getRight()));
+		}
+		if (expression instanceof MinusExpression minus) {
+			return minus(optimize(minus.getLeft()), optimize(minus.getRight()));
+		}
+		if (expression instanceof MultiplyExpression multiply) {
+			return multiply(optimize(multiply.getLeft()), optimize(multiply.getRight()));
+		}
+		if (expression instanceof DivideExpression divide) {
+			return divide(optimize(divide.getLeft()), optimize(divide.getRight()));
+		}
+		// 숫자, 변수, 모르는 Expression 은 그대로
+		return expression;
+	}
+
+	/**
+	 * 트리의 노드 수 - 최적화 전후 비교용
+	 */
+	public static int countNodes(Expression expression) {
+		if (expression instanceof PlusExpression plus) {
+			return 1 + countNodes(plus.getLeft()) + countNodes(plus.getRight());
+		}
+		if (expression instanceof MinusExpression minus) {
+			return 1 + countNodes(minus.getLeft()) + countNodes(minus.getRight());
+		}
+		if (expression instanceof MultiplyExpression multiply) {
+			return 1 + countNodes(multiply.getLeft()) + countNodes(multiply.getRight());
+		}
+		if (expression instanceof DivideExpression divide) {
+			return 1 + countNodes(divide.getLeft()) + countNodes(divide.getRight());
+		}
+		return 1;
+	}
+
+	private static Expression plus(Expression left, Expression right) {
+		if (left instanceof NumberExpression l && right instanceof NumberExpression r) {
+			return new NumberExpression(l.getNumber() + r.getNumber());
+		}
+		if (isNumber(right, 0)) {
+			return left;
+		}
+		if (isNumber(left, 0)) {
+			return right;
+		}
+		// (x + c1) + c2 -> x + (c1 + c2)
+		if (right instanceof NumberExpression r && left instanceof PlusExpression inner
+				&& inner.getRight() instanceof NumberExpression c) {
+			return plus(inner.getLeft(), new NumberExpression(c.getNumber() + r.getNumber()));
+		}
+		return new PlusExpression(left, right);
+	}
+
+	private static Expression minus(Expression left, Expression right) {
+		if (left instanceof NumberExpression l && right instanceof NumberExpression r) {
+			return new NumberExpression(l.getNumber() - r.getNumber());
+		}
+		if (isNumber(right, 0)) {
+			return left;
+		}
+		// (x - c1) - c2 -> x - (c1 + c2)
+		if (right instanceof NumberExpression r && left instanceof MinusExpression inner
+				&& inner.getRight() instanceof NumberExpression c) {
+			return minus(inner.getLeft(), new NumberExpression(c.getNumber() + r.getNumber()));
+		}
+		return new MinusExpression(left, right);
+	}
+
+	private static Expression multiply(Expression left, Expression right) {
+		if (left instanceof NumberExpression l && right instanceof NumberExpression r) {
+			return new NumberExpression(l.getNumber() * r.getNumber());
+		}
+		if (isNumber(right, 1)) {
+			return left;
+		}
+		if (isNumber(left, 1)) {
+			return right;
+		}
+		// (x * c1) * c2 -> x * (c1 * c2)
+		if (right instanceof NumberExpression r && left instanceof MultiplyExpression inner
+				&& inner.getRight() instanceof NumberExpression c) {
+			return multiply(inner.getLeft(), new NumberExpression(c.getNumber() * r.getNumber()));
+		}
+		return new MultiplyExpression(left, right);
+	}
+
+	private static Expression divide(Expression left, Expression right) {
+		// 0 으로 나누기는 평가 시점에 예외가 나도록 남김
+		if (isNumber(right, 0)) {
+			return new DivideExpression(left, right);
+		}
+		if (left instanceof NumberExpression l && right instanceof NumberExpression r) {
+			return new NumberExpression(l.getNumber() / r.getNumber());
+		}
+		if (isNumber(right, 1)) {
+			return left;
+		}
+		return new DivideExpression(left, right);
+	}
+
+	private static boolean isNumber(Expression expression, int value) {
+		return expression instanceof NumberExpression number && number.getNumber() == value;
+	}
+}
@@ -0,0 +1,192 @@
+package designpattern.Behavioral;
+
+/**
+ * 문자열 수식 "(x + 3) * y / z" 를 Expression 트리로 변환하는 재귀 하강 파서
+ *
+ * 문법(우선순위 낮은 순)
+ *  - expression : term (('+' | '-') term)*
+ *  - term       : unary (('*' | '/') unary)*
+ *  - unary      : '-' unary | primary
+ *  - primary    : 숫자 | 변수 | '(' expression ')'
+ *
+ * 같은 우선순위는 왼쪽부터 결합(a - b - c -> (a - b) - c)
+ * 단항 '-' 는 0 - x 로 표현, 단 -2147483648 은 2147483648 이 int 를 넘으므로 숫자 하나로
+ * 괄호 / 단항 '-' 는 MAX_DEPTH 겹까지(더 깊으면 StackOverflowError 대신 IllegalArgumentException)
+ */
+public class ExpressionParser {
+	// 괄호 한 겹마다 재귀 4 단계 - 기본 스레드 스택으로 충분한 깊이
+	static final int MAX_DEPTH = 1_000;
+
+	private final String source;
+	private int position;
+	private int depth;
+
+	private ExpressionParser(String source) {
+		this.source = source;
+	}
+
+	public static Expression parse(String source) {
+		if (source == null) {
+			throw new IllegalArgumentException("수식이 비어 있습니다.");
+		}
+		ExpressionParser parser = new ExpressionParser(source);
+		Expression expression = parser.expression();
+		parser.skipWhitespace();
+		if (parser.position < source.length()) {
+			throw parser.error("예상하지 못한 문자 '" + source.charAt(parser.position) + "'");
+		}
+		return expression;
+	}
+
+	/**
+	 * 캐시 키로 쓰는 정규화된 수식
+	 *  - 공백은 제거하되, "a b" 가 "ab" 로 합쳐지지 않도록 단어 사이 공백은 하나만 남김
+	 *  - 정규화 결과를 파싱해도 원래 수식과 같은 트리(또는 같은 오류)가 나옴
+	 */
+	public static String normalize(String source) {
+		StringBuilder builder = new StringBuilder(source.length());
+		boolean pendingSpace = false;
+		for (int i = 0; i < source.length(); i++) {
+			char c = source.charAt(i);
+			// 같은 패키지의 Character(Command 패턴 예제)와 이름이 겹쳐 java.lang.Character 는 전체 이름으로 사용
+			if (java.lang.Character.isWhitespace(c)) {
+				pendingSpace = true;
+				continue;
+			}
+			if (pendingSpace && builder.length() > 0
+					&& isWordChar(builder.charAt(builder.length() - 1)) && isWordChar(c)) {
+				builder.append(' ');
+			}
+			pendingSpace = false;
+			builder.append(c);
+		}
+		return builder.toString();
+	}
+
+	private static boolean isWordChar(char c) {
+		return java.lang.Character.isLetterOrDigit(c) || c == '_';
+	}
+
+	private Expression expression() {
+		Expression left = term();
+		while (true) {
+			if (accept('+')) {
+				left = new PlusExpression(left, term());
+			} else if (accept('-')) {
+				left = new MinusExpression(left, term());
+			} else {
+				return left;
+			}
+		}
+	}
+
+	private Expression term() {
+		Expression left = unary();
+		while (true) {
+			if (accept('*')) {
+				left = new MultiplyExpression(left, unary());
+			} else if (accept('/')) {
+				left = new DivideExpression(left, unary());
+			} else {
+				return left;
+			}
+		}
+	}
+
+	private Expression unary() {
+		if (accept('-')) {
+			skipWhitespace();
+			if (position < source.length() && java.lang.Character.isDigit(source.charAt(position))) {
+				return number(true);
+			}
+			enter();
+			Expression operand = unary();
+			depth--;
+			return new MinusExpression(new NumberExpression(0), operand);
+		}
+		return primary();
+	}
+
+	private Expression primary() {
+		skipWhitespace();
+		if (position >= source.length()) {
+			throw error("수식이 끝났습니다");
+		}
+		char c = source.charAt(position);
+		if (c == '(') {
+			position++;
+			enter();
+			Expression inner = expression();
+			if (!accept(')')) {
+				throw error("')' 가 필요합니다");
+			}
+			depth--;
+			return inner;
+		}
+		if (java.lang.Character.isDigit(c)) {
+			return number(false);
+		}
+		if (java.lang.Character.isLetter(c) || c == '_') {
+			return variable();
+		}
+		throw error("예상하지 못한 문자 '" + c + "'");
+	}
+
+	/**
+	 * negated 면 앞의 단항 '-' 까지 - 2147483648 은 음수일 때만 int 범위
+	 */
+	private Expression number(boolean negated) {
+		int start = position;
+		while (position < source.length() && java.lang.Character.isDigit(source.charAt(position))) {
+			position++;
+		}
+		String digits = source.substring(start, position);
+		int value;
+		try {
+			// 2147483648 이상은 음수가 됨
+			value = Integer.parseUnsignedInt(digits);
+		} catch (NumberFormatException e) {
+			throw error("int 범위를 벗어난 숫자 " + (negated ? "-" : "") + digits);
+		}
+		if (value >= 0) {
+			return negated ? new MinusExpression(new NumberExpression(0), new NumberExpression(value)) : new NumberExpression(value);
+		}
+		if (negated && value == Integer.MIN_VALUE) {
+			return new NumberExpression(Integer.MIN_VALUE);
+		}
+		throw error("int 범위를 벗어난 숫자 " + (negated ? "-" : "") + digits);
+	}
+
+	private void enter() {
+		if (++depth > MAX_DEPTH) {
+			throw error("괄호 / 단항 '-' 가 " + MAX_DEPTH + " 겹보다 깊습니다");
+		}
+	}
+
+	private Expression variable() {
+		int start = position;
+		while (position < source.length() && isWordChar(source.charAt(position))) {
+			position++;
+		}
+		return new VariableExpression(source.substring(start, position));
+	}
+
+	private boolean accept(char expected) {
+		skipWhitespace();
+		if (position < source.length() && source.charAt(position) == expected) {
+			position++;
+			return true;
+		}
+		return false;
+	}
+
+	private void skipWhitespace() {
+		while (position < source.length() && java.lang.Character.isWhitespace(source.charAt(position))) {
+			position++;
+		}
+	}
+
+	private IllegalArgumentException error(String message) {
+		return new IllegalArgumentException("수식 파싱 실패(" + position + ") : " + message + " -> " + source);
+	}
+}
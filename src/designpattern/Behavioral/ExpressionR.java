@@ -0,0 +1,5 @@
+package designpattern.Behavioral;
+
+interface ExpressionR {
+	boolean interpret(RoleContext context);
+}
@@ -0,0 +1,162 @@
+package designpattern.Behavioral;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 변수 하나가 바뀌었을 때 영향을 받는 노드만 다시 계산하는 평가
+ *
+ * 왜 필요할까?
+ *  - 가격 계산 루프에서는 큰 수식의 변수 한두 개만 바뀌는데 interpret 는 트리 전체를 다시 계산
+ *
+ * 동작
+ *  - ExpressionDag 의 노드마다 마지막 값을 보관
+ *  - setVariable 로 값이 바뀌면 그 변수 노드만 "다시 계산 필요" 로 표시
+ *  - evaluate 때 표시된 노드를 번호 순서(자식 -> 부모)로 다시 계산하고
+ *    값이 실제로 바뀐 경우에만 부모를 표시 -> 변수에서 루트로 가는 경로만 계산
+ *
+ * 예외
+ *  - 계산 중 예외(0 나눗셈, 정의되지 않은 변수)가 나면 그 노드부터는 표시를 유지하고 예외를 던짐
+ *  - 이후 변수를 고치고 evaluate 하면 남은 노드부터 이어서 계산
+ */
+public class IncrementalEvaluator {
+	private final ExpressionDag dag;
+	private final Context context;
+	private final int[] values;
+	private final int[][] parents;
+	private final Map<String, int[]> variableNodes;
+	// 어떤 변수를 읽는지 알 수 없는 리프(컴파일 결과 등) - 변수가 바뀔 때마다 다시 계산
+	private final int[] opaqueLeaves;
+	private final BitSet pending = new BitSet();
+	private int lastRecomputed;
+	private long totalRecomputed;
+
+	public IncrementalEvaluator(Expression expression) {
+		this(expression, new Context());
+	}
+
+	public IncrementalEvaluator(Expression expression, Context context) {
+		this.dag = ExpressionDag.build(expression);
+		this.context = context;
+		this.values = new int[dag.size()];
+		this.parents = buildParents(dag);
+		this.variableNodes = buildVariableNodes(dag);
+		this.opaqueLeaves = buildOpaqueLeaves(dag);
+		// 처음에는 전체 계산
+		pending.set(0, dag.size());
+	}
+
+	public void setVariable(String name, int value) {
+		int[] nodes = variableNodes.get(name);
+		if (isDefined(name) && context.getVariable(name) == value) {
+			return;
+		}
+		context.setVariable(name, value);
+		if (nodes != null) {
+			for (int node : nodes) {
+				pending.set(node);
+			}
+		}
+		for (int node : opaqueLeaves) {
+			pending.set(node);
+		}
+	}
+
+	public int evaluate() {
+		int recomputed = 0;
+		try {
+			for (int node = pending.nextSetBit(0); node >= 0; node = pending.nextSetBit(node + 1)) {
+				int value = dag.computeNode(node, values, context);
+				pending.clear(node);
+				recomputed++;
+				// 값이 그대로면 부모는 다시 계산할 필요 없음(처음 계산 때는 모든 노드가 이미 표시되어 있음)
+				if (value != values[node]) {
+					values[node] = value;
+					for (int parent : parents[node]) {
+						pending.set(parent);
+					}
+				}
+			}
+		} finally {
+			lastRecomputed = recomputed;
+			totalRecomputed += recomputed;
+		}
+		return values[dag.rootNode()];
+	}
+
+	// 마지막 evaluate 에서 다시 계산한 노드 수
+	public int getLastRecomputedCount() {
+		return lastRecomputed;
+	}
+
+	public long getTotalRecomputedCount() {
+		return totalRecomputed;
+	}
+
+	// 고유 노드 수 - 전체 재계산 비용
+	public int getNodeCount() {
+		return dag.size();
+	}
+
+	private boolean isDefined(String name) {
+		try {
+			context.getVariable(name);
+			return true;
+		} catch (IllegalArgumentException e) {
+			return false;
+		}
+	}
+
+	private static int[][] buildParents(ExpressionDag dag) {
+		List<List<Integer>> parents = new ArrayList<>();
+		for (int node = 0; node < dag.size(); node++) {
+			parents.add(new ArrayList<>());
+		}
+		for (int node = 0; node < dag.size(); node++) {
+			if (dag.leftOf(node) >= 0) {
+				parents.get(dag.leftOf(node)).add(node);
+			}
+			if (dag.rightOf(node) >= 0 && dag.rightOf(node) != dag.leftOf(node)) {
+				parents.get(dag.rightOf(node)).add(node);
+			}
+		}
+		int[][] result = new int[dag.size()][];
+		for (int node = 0; node < dag.size(); node++) {
+			result[node] = parents.get(node).stream().mapToInt(Integer::intValue).toArray();
+		}
+		return result;
+	}
+
+	private static int[] buildOpaqueLeaves(ExpressionDag dag) {
+		List<Integer> nodes = new ArrayList<>();
+		for (int node = 0; node < dag.size(); node++) {
+			Expression leaf = dag.leafOf(node);
+			if (leaf != null && !(leaf instanceof VariableExpression) && !(leaf instanceof SlotVariableExpression)) {
+				nodes.add(node);
+			}
+		}
+		return nodes.stream().mapToInt(Integer::intValue).toArray();
+	}
+
+	private static Map<String, int[]> buildVariableNodes(ExpressionDag dag) {
+		Map<String, List<Integer>> nodes = new HashMap<>();
+		for (int node = 0; node < dag.size(); node++) {
+			Expression leaf = dag.leafOf(node);
+			String name = null;
+			if (leaf instanceof VariableExpression variable) {
+				name = variable.getName();
+			} else if (leaf instanceof SlotVariableExpression variable) {
+				name = variable.getName();
+			}
+			if (name != null) {
+				nodes.computeIfAbsent(name, key -> new ArrayList<>()).add(node);
+			}
+		}
+		Map<String, int[]> result = new HashMap<>();
+		nodes.forEach((name, list) -> result.put(name, list.stream().mapToInt(Integer::intValue).toArray()));
+		return result;
+	}
+}
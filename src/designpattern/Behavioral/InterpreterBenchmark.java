@@ -0,0 +1,915 @@
+package designpattern.Behavioral;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntSupplier;
+
+import com.sun.management.ThreadMXBean;
+
+/**
+ * Interpreter 평가 경로 성능 측정
+ *
+ * JMH 없이 javac 만으로 바로 돌려 보는 측정, 같은 항목의 JMH 벤치마크는 jmh 모듈(jmh/pom.xml)
+ *  - 워밍업 라운드로 JIT 컴파일을 끝낸 뒤 측정 라운드 평균을 사용
+ *  - 결과를 sink 에 누적해서 JIT 가 계산 자체를 제거하지 못하게 함
+ *  - 할당량(B/op) 은 측정 스레드가 할당한 바이트(com.sun.management.ThreadMXBean), JMH 의 -prof gc 대신
+ *    ForkJoin 작업 스레드의 할당은 포함되지 않음
+ *
+ * 시스템 속성
+ *  - benchmark.rounds : 워밍업 / 측정 라운드 수(기본 5)
+ *  - benchmark.roundMillis : 라운드 하나의 시간(기본 200)
+ *  - benchmark.csv : 결과를 CSV 로 저장할 파일, 이전 결과와 비교해서 성능 회귀 확인
+ *
+ * 트리 모양
+ *  - deep : 한쪽으로만 깊어지는 체인, ((x0 + 1) * x1) - 3 ...
+ *  - wide : 리프가 많은 균형 트리
+ */
+public class InterpreterBenchmark {
+	private static final int WARMUP_ROUNDS = Integer.getInteger("benchmark.rounds", 5);
+	private static final int MEASURE_ROUNDS = Integer.getInteger("benchmark.rounds", 5);
+	private static final long ROUND_NANOS = Long.getLong("benchmark.roundMillis", 200) * 1_000_000L;
+	private static final int MAX_BATCH = 1_000;
+	private static final ThreadMXBean THREADS = allocationCounter();
+
+	static volatile long sink;
+	// label, ns/op, B/op
+	private static final List<String> results = new ArrayList<>();
+
+	/**
+	 * 인자로 실행할 항목을 고를 수 있음(없으면 전체)
+	 *  - 예) java designpattern.Behavioral.InterpreterBenchmark compile batch
+	 */
+	public static void main(String[] args) {
+		Map<String, Runnable> benchmarks = new LinkedHashMap<>();
+		benchmarks.put("compile", InterpreterBenchmark::compileBenchmark);
+		benchmarks.put("slot", InterpreterBenchmark::slotBenchmark);
+		benchmarks.put("batch", InterpreterBenchmark::batchBenchmark);
+		benchmarks.put("parse", InterpreterBenchmark::parseBenchmark);
+		benchmarks.put("optimize", InterpreterBenchmark::optimizeBenchmark);
+		benchmarks.put("dag", InterpreterBenchmark::dagBenchmark);
+		benchmarks.put("incremental", InterpreterBenchmark::incrementalBenchmark);
+		benchmarks.put("role", InterpreterBenchmark::roleBenchmark);
+		benchmarks.put("ruleindex", InterpreterBenchmark::ruleIndexBenchmark);
+		benchmarks.put("adaptive", InterpreterBenchmark::adaptiveBenchmark);
+		benchmarks.put("bdd", InterpreterBenchmark::bddBenchmark);
+		benchmarks.put("parallel", InterpreterBenchmark::parallelBenchmark);
+		benchmarks.put("suite", InterpreterBenchmark::suiteBenchmark);
+
+		List<String> selected = args.length == 0 ? new ArrayList<>(benchmarks.keySet()) : List.of(args);
+		for (String name : selected) {
+			Runnable benchmark = benchmarks.get(name);
+			if (benchmark == null) {
+				throw new IllegalArgumentException("알 수 없는 벤치마크 : " + name + " " + benchmarks.keySet());
+			}
+			benchmark.run();
+		}
+		String csv = System.getProperty("benchmark.csv");
+		if (csv != null) {
+			writeResults(Path.of(csv));
+		}
+	}
+
+	private static void writeResults(Path path) {
+		List<String> lines = new ArrayList<>();
+		lines.add("benchmark,ns_per_op,bytes_per_op");
+		lines.addAll(results);
+		try {
+			Files.write(path, lines, StandardCharsets.UTF_8);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		System.out.println("결과 저장 : " + path.toAbsolutePath());
+	}
+
+	// 트리 순회 vs 클로저 컴파일
+	static void compileBenchmark() {
+		System.out.println("[트리 순회 vs ExpressionCompiler]");
+		Context context = newContext(8);
+
+		benchmarkCompile("deep(64)", deepTree(64, 8), context);
+		benchmarkCompile("deep(512)", deepTree(512, 8), context);
+		benchmarkCompile("wide(256)", wideTree(256, 8), context);
+		benchmarkCompile("wide(4096)", wideTree(4096, 8), context);
+
+		// 0 나눗셈 예외도 동일해야 함
+		Expression zero = new DivideExpression(new VariableExpression("x0"),
+				new MinusExpression(new VariableExpression("x1"), new VariableExpression("x1")));
+		checkFailure("divide by zero", () -> zero.interpret(context),
+				() -> ExpressionCompiler.compile(zero).interpret(context));
+	}
+
+	private static void benchmarkCompile(String name, Expression tree, Context context) {
+		CompiledExpression compiled = ExpressionCompiler.compile(tree);
+		check(name, tree.interpret(context), compiled.interpret(context));
+
+		double interpret = measure(name + " interpret", () -> tree.interpret(context));
+		double compile = measure(name + " compiled", () -> compiled.interpret(context));
+		System.out.printf("  -> %.2fx%n", interpret / compile);
+	}
+
+	// HashMap Context vs 슬롯 바인딩 SlotContext
+	static void slotBenchmark() {
+		System.out.println("[Context vs SlotContext]");
+		benchmarkSlot("deep(64)", deepTree(64, 8), 8);
+		benchmarkSlot("wide(256)", wideTree(256, 8), 8);
+		benchmarkSlot("wide(256), vars(64)", wideTree(256, 64), 64);
+	}
+
+	private static void benchmarkSlot(String name, Expression tree, int variables) {
+		Context context = newContext(variables);
+		SlotLayout layout = new SlotLayout();
+		Expression bound = layout.bind(tree);
+		SlotContext slotContext = layout.newContext();
+		for (int i = 0; i < variables; i++) {
+			slotContext.setVariable(variableName(i), i + 2);
+		}
+		CompiledExpression compiled = ExpressionCompiler.compile(bound);
+		check(name, tree.interpret(context), bound.interpret(slotContext));
+		check(name, tree.interpret(context), compiled.interpret(slotContext));
+
+		double map = measure(name + " Context", () -> tree.interpret(context));
+		double slot = measure(name + " SlotContext", () -> bound.interpret(slotContext));
+		double slotCompiled = measure(name + " SlotContext compiled", () -> compiled.interpret(slotContext));
+		System.out.printf("  -> %.2fx / %.2fx%n", map / slot, map / slotCompiled);
+	}
+
+	// 행 단위 interpret 루프 vs 컬럼 단위 배치 평가
+	static void batchBenchmark() {
+		System.out.println("[row-at-a-time vs BatchEvaluator]");
+		int rows = 1 << 18;
+		// (x + 3) * y
+		Expression formula = new MultiplyExpression(
+				new PlusExpression(new VariableExpression("x"), new NumberExpression(3)),
+				new VariableExpression("y"));
+		benchmarkBatch("(x + 3) * y", formula, List.of("x", "y"), rows);
+		benchmarkBatch("wide(64)", wideTree(64, 8), variableNames(8), rows);
+	}
+
+	private static void benchmarkBatch(String name, Expression tree, List<String> variables, int rows) {
+		Map<String, int[]> columns = new HashMap<>();
+		for (int v = 0; v < variables.size(); v++) {
+			int[] column = new int[rows];
+			for (int i = 0; i < rows; i++) {
+				column[i] = (i * 31 + v) % 1000 + 1;
+			}
+			columns.put(variables.get(v), column);
+		}
+		Context[] contexts = new Context[rows];
+		for (int i = 0; i < rows; i++) {
+			contexts[i] = new Context();
+			for (String variable : variables) {
+				contexts[i].setVariable(variable, columns.get(variable)[i]);
+			}
+		}
+
+		int[] batch = BatchEvaluator.evaluate(tree, columns, rows);
+		for (int i = 0; i < rows; i++) {
+			check(name + " row " + i, tree.interpret(contexts[i]), batch[i]);
+		}
+
+		double row = measure(name + " interpret x " + rows, () -> {
+			int acc = 0;
+			for (Context context : contexts) {
+				acc += tree.interpret(context);
+			}
+			return acc;
+		});
+		double column = measure(name + " batch x " + rows, () -> BatchEvaluator.evaluate(tree, columns, rows)[rows - 1]);
+		System.out.printf("  -> %.1f M rows/s vs %.1f M rows/s (%.2fx)%n",
+				rows / row * 1_000, rows / column * 1_000, row / column);
+	}
+
+	// 매번 파싱 + 컴파일 vs 캐시 조회
+	static void parseBenchmark() {
+		System.out.println("[parse vs ExpressionCache]");
+		String source = "(x0 + 3) * x1 / (x2 - 1) + x3 * (x4 + x5 * 2) - x6";
+		Context context = newContext(8);
+		ExpressionCache cache = new ExpressionCache(128);
+		check("parse", ExpressionParser.parse(source).interpret(context), cache.get(source).interpret(context));
+		checkParserLimits();
+
+		double parse = measure("parse + compile", () -> ExpressionCompiler.compile(ExpressionParser.parse(source)).interpret(context));
+		double cached = measure("cache hit", () -> cache.get(source).interpret(context));
+		System.out.printf("  -> %.2fx, %s%n", parse / cached, cache);
+	}
+
+	// int 경계의 숫자와 너무 깊은 괄호 / 단항 '-' - 파싱 오류는 모두 IllegalArgumentException
+	private static void checkParserLimits() {
+		Context context = newContext(8);
+		check("-2147483648", Integer.MIN_VALUE, ExpressionParser.parse("-2147483648").interpret(context));
+		check("x0 - - 2147483648", ExpressionParser.parse("x0 + 2147483647 + 1").interpret(context),
+				ExpressionParser.parse("x0 - - 2147483648").interpret(context));
+		check("-5 * 3", -15, ExpressionParser.parse("-5 * 3").interpret(context));
+		String nested = "(".repeat(ExpressionParser.MAX_DEPTH) + "x0" + ")".repeat(ExpressionParser.MAX_DEPTH);
+		check("nested", ExpressionParser.parse("x0").interpret(context), ExpressionParser.parse(nested).interpret(context));
+		for (String source : List.of("2147483648", "-2147483649", "99999999999",
+				"(".repeat(100_000) + "1" + ")".repeat(100_000), "-".repeat(100_000) + "1", "-".repeat(100_000) + "x0")) {
+			try {
+				ExpressionParser.parse(source);
+				throw new IllegalStateException("파싱 오류가 나지 않았습니다 : " + source.substring(0, Math.min(20, source.length())));
+			} catch (IllegalArgumentException expected) {
+				// 거절이 맞음
+			}
+		}
+	}
+
+	// 상수 접기 / 항등식 제거 전후
+	static void optimizeBenchmark() {
+		System.out.println("[ExpressionOptimizer]");
+		Context context = newContext(8);
+		benchmarkOptimize("config formula", ExpressionParser.parse(
+				"(x0 * 1 + 0) * (2 * 3) + (x1 + 2 + 3) * (10 / 5) - x2 / 1 + (4 - 4) * 7 - (x3 - 1 - 2)"), context);
+		benchmarkOptimize("deep(256) + noise", withConstantNoise(deepTree(256, 8)), context);
+
+		// 상수 0 나눗셈은 접히지 않고 평가 시점에 같은 예외
+		Expression zero = ExpressionParser.parse("x0 / (2 - 2)");
+		checkFailure("x0 / (2 - 2)", () -> zero.interpret(context),
+				() -> ExpressionOptimizer.optimize(zero).interpret(context));
+	}
+
+	private static void benchmarkOptimize(String name, Expression tree, Context context) {
+		Expression optimized = ExpressionOptimizer.optimize(tree);
+		check(name, tree.interpret(context), optimized.interpret(context));
+		System.out.printf("%s : nodes %d -> %d%n", name, ExpressionOptimizer.countNodes(tree), ExpressionOptimizer.countNodes(optimized));
+
+		double before = measure(name + " before", () -> tree.interpret(context));
+		double after = measure(name + " after", () -> optimized.interpret(context));
+		System.out.printf("  -> %.2fx%n", before / after);
+	}
+
+	// 설정에서 만들어진 트리처럼 x -> (x * 1 + (2 - 2)) 형태의 군더더기를 붙임
+	private static Expression withConstantNoise(Expression tree) {
+		if (tree instanceof PlusExpression plus) {
+			return new PlusExpression(withConstantNoise(plus.getLeft()), withConstantNoise(plus.getRight()));
+		}
+		if (tree instanceof MinusExpression minus) {
+			return new MinusExpression(withConstantNoise(minus.getLeft()), withConstantNoise(minus.getRight()));
+		}
+		if (tree instanceof MultiplyExpression multiply) {
+			return new MultiplyExpression(withConstantNoise(multiply.getLeft()), withConstantNoise(multiply.getRight()));
+		}
+		if (tree instanceof DivideExpression divide) {
+			return new DivideExpression(withConstantNoise(divide.getLeft()), withConstantNoise(divide.getRight()));
+		}
+		if (tree instanceof VariableExpression) {
+			return new PlusExpression(new MultiplyExpression(tree, new NumberExpression(1)),
+					new MinusExpression(new NumberExpression(2), new NumberExpression(2)));
+		}
+		return tree;
+	}
+
+	// 트리 순회 vs 공통 부분식을 합친 DAG
+	static void dagBenchmark() {
+		System.out.println("[tree vs ExpressionDag]");
+		Context context = newContext(8);
+		benchmarkDag("no sharing wide(256)", wideTree(256, 8), context);
+		benchmarkDag("(x + 3) x 5", ExpressionParser.parse(
+				"(x0 + 3) * (x0 + 3) + (x0 + 3) / (x1 + 3) - (x0 + 3) * x2 + (x0 + 3)"), context);
+		benchmarkDag("shared(8)", sharedTree(8), context);
+		benchmarkDag("shared(12)", sharedTree(12), context);
+
+		// 왼쪽에 정의되지 않은 변수가 있어도 0 검사가 먼저
+		Expression zero = ExpressionParser.parse("undefined / (x1 - x1)");
+		checkFailure("undefined / (x1 - x1)", () -> zero.interpret(context),
+				() -> ExpressionDag.build(zero).evaluate(context));
+	}
+
+	private static void benchmarkDag(String name, Expression tree, Context context) {
+		ExpressionDag dag = ExpressionDag.build(tree);
+		int[] values = new int[dag.size()];
+		check(name, tree.interpret(context), dag.evaluate(context, values));
+		System.out.printf("%s : tree nodes %d -> dag nodes %d%n", name, dag.treeNodeCount(), dag.size());
+
+		double walk = measure(name + " tree", () -> tree.interpret(context));
+		double shared = measure(name + " dag", () -> dag.evaluate(context, values));
+		System.out.printf("  -> %.2fx%n", walk / shared);
+	}
+
+	/**
+	 * 같은 부분 트리를 계속 재사용하는 트리 - 트리로는 2^depth 크기, DAG 로는 depth 에 비례
+	 *  - f(0) = x0 + 3, f(k) = f(k-1) * x1 + f(k-1) / (x2 + 1)
+	 *  - 모양이 같은 새 객체로 만들어서 해시 콘싱이 실제로 합쳐야 하도록 함
+	 */
+	static Expression sharedTree(int depth) {
+		if (depth == 0) {
+			return new PlusExpression(new VariableExpression("x0"), new NumberExpression(3));
+		}
+		return new PlusExpression(
+				new MultiplyExpression(sharedTree(depth - 1), new VariableExpression("x1")),
+				new DivideExpression(sharedTree(depth - 1),
+						new PlusExpression(new VariableExpression("x2"), new NumberExpression(1))));
+	}
+
+	// 변수 하나만 바뀔 때 전체 재계산 vs 증분 재계산
+	static void incrementalBenchmark() {
+		System.out.println("[interpret vs IncrementalEvaluator]");
+		benchmarkIncremental("wide(4096), vars(64)", wideTree(4096, 64), 64);
+		benchmarkIncremental("deep(512), vars(8)", deepTree(512, 8), 8);
+	}
+
+	private static void benchmarkIncremental(String name, Expression tree, int variables) {
+		Context context = newContext(variables);
+		IncrementalEvaluator incremental = new IncrementalEvaluator(tree);
+		for (int i = 0; i < variables; i++) {
+			incremental.setVariable(variableName(i), i + 2);
+		}
+		check(name, tree.interpret(context), incremental.evaluate());
+		System.out.printf("%s : nodes %d, first evaluate %d%n", name, incremental.getNodeCount(), incremental.getLastRecomputedCount());
+
+		// 매번 변수 하나(x1)만 바꿈
+		int[] next = {0};
+		long before = incremental.getTotalRecomputedCount();
+		int updates = 1_000;
+		for (int i = 0; i < updates; i++) {
+			int value = ++next[0] % 100 + 1;
+			context.setVariable("x1", value);
+			incremental.setVariable("x1", value);
+			check(name, tree.interpret(context), incremental.evaluate());
+		}
+		System.out.printf("%s : avg recomputed nodes per update %.1f%n", name,
+				(double) (incremental.getTotalRecomputedCount() - before) / updates);
+
+		double full = measure(name + " interpret", () -> {
+			context.setVariable("x1", ++next[0] % 100 + 1);
+			return tree.interpret(context);
+		});
+		double partial = measure(name + " incremental", () -> {
+			incremental.setVariable("x1", ++next[0] % 100 + 1);
+			return incremental.evaluate();
+		});
+		System.out.printf("  -> %.2fx%n", full / partial);
+	}
+
+	// Set<String> 기반 RoleContext vs 비트셋 RoleProgram
+	static void roleBenchmark() {
+		System.out.println("[ExpressionR vs RoleProgram]");
+		// Admin OR (Manager AND HR)
+		ExpressionR sample = new OrExpression(new RoleExpression("Admin"),
+				new AndExpression(new RoleExpression("Manager"), new RoleExpression("HR")));
+		benchmarkRole("Admin OR (Manager AND HR)", sample, Set.of("HR", "Guest", "Manager"));
+		benchmarkRole("mixed rule(64)", mixedRule(64, 32), roleSet(8, 32));
+		benchmarkRole("any of 16 roles", anyRule(16), roleSet(8, 64));
+		benchmarkRole("(r0 OR r1) AND ... x 8", cnfRule(8), roleSet(12, 16));
+	}
+
+	private static void benchmarkRole(String name, ExpressionR rule, Set<String> roles) {
+		RoleDictionary dictionary = new RoleDictionary();
+		RoleProgram program = RoleProgram.compile(rule, dictionary);
+		RoleContext context = new RoleContext(roles);
+		BitsetRoleContext bitset = dictionary.context(roles);
+		for (int size = 0; size <= 16; size++) {
+			Set<String> sample = roleSet(size, 64);
+			if (rule.interpret(new RoleContext(sample)) != program.evaluate(dictionary.context(sample))) {
+				throw new IllegalStateException(name + " 결과 불일치 : " + sample);
+			}
+		}
+
+		double tree = measure(name + " interpret", () -> rule.interpret(context) ? 1 : 0);
+		double compiled = measure(name + " bitset program", () -> program.evaluate(bitset) ? 1 : 0);
+		System.out.printf("  -> %.2fx%n", tree / compiled);
+	}
+
+	static String roleName(int index) {
+		return "Role" + index;
+	}
+
+	// 0 ~ roleCount 범위에서 size 개의 권한
+	static Set<String> roleSet(int size, int roleCount) {
+		Set<String> roles = new HashSet<>();
+		for (int i = 0; roles.size() < size; i++) {
+			roles.add(roleName((i * 7 + 3) % roleCount));
+		}
+		return roles;
+	}
+
+	/**
+	 * (r0 AND r1) OR (r2 AND r3) OR ... 형태의 리프 leaves 개짜리 규칙
+	 */
+	static ExpressionR mixedRule(int leaves, int roleCount) {
+		ExpressionR rule = null;
+		for (int i = 0; i + 1 < leaves; i += 2) {
+			ExpressionR term = new AndExpression(new RoleExpression(roleName(i % roleCount)),
+					new RoleExpression(roleName((i * 5 + 1) % roleCount)));
+			rule = rule == null ? term : new OrExpression(rule, term);
+		}
+		return rule;
+	}
+
+	// 곱의 합으로 펼치면 2^clauses 항이 되는 규칙 - 후위 명령 실행 경로
+	static ExpressionR cnfRule(int clauses) {
+		ExpressionR rule = null;
+		for (int i = 0; i < clauses; i++) {
+			ExpressionR clause = new OrExpression(new RoleExpression(roleName(i * 2)), new RoleExpression(roleName(i * 2 + 1)));
+			rule = rule == null ? clause : new AndExpression(rule, clause);
+		}
+		return rule;
+	}
+
+	static ExpressionR anyRule(int leaves) {
+		ExpressionR rule = new RoleExpression(roleName(0));
+		for (int i = 1; i < leaves; i++) {
+			rule = new OrExpression(rule, new RoleExpression(roleName(i * 4)));
+		}
+		return rule;
+	}
+
+	// 규칙마다 interpret vs 카운팅 규칙 인덱스
+	static void ruleIndexBenchmark() {
+		System.out.println("[per-rule interpret vs RoleRuleIndex]");
+		for (int rules : new int[] { 10_000, 100_000, 1_000_000 }) {
+			benchmarkRuleIndex(rules, 20_000, 16);
+		}
+	}
+
+	private static void benchmarkRuleIndex(int ruleCount, int roleCount, int userRoles) {
+		String[] names = new String[roleCount];
+		for (int i = 0; i < roleCount; i++) {
+			names[i] = roleName(i);
+		}
+		// (rA AND rB) OR rC
+		List<ExpressionR> rules = new ArrayList<>(ruleCount);
+		RoleDictionary dictionary = new RoleDictionary();
+		RoleRuleIndex index = new RoleRuleIndex(dictionary);
+		Random random = new Random(ruleCount);
+		for (int i = 0; i < ruleCount; i++) {
+			ExpressionR rule = new OrExpression(
+					new AndExpression(new RoleExpression(names[random.nextInt(roleCount)]),
+							new RoleExpression(names[random.nextInt(roleCount)])),
+					new RoleExpression(names[random.nextInt(roleCount)]));
+			rules.add(rule);
+			index.addRule(rule);
+		}
+		Set<String> roles = new HashSet<>();
+		while (roles.size() < userRoles) {
+			roles.add(names[random.nextInt(roleCount)]);
+		}
+		RoleContext context = new RoleContext(roles);
+		BitsetRoleContext user = dictionary.context(roles);
+
+		List<Integer> expected = new ArrayList<>();
+		for (int i = 0; i < ruleCount; i++) {
+			if (rules.get(i).interpret(context)) {
+				expected.add(i);
+			}
+		}
+		int[] actual = index.match(user);
+		Arrays.sort(actual);
+		if (!expected.equals(Arrays.stream(actual).boxed().toList())) {
+			throw new IllegalStateException("규칙 인덱스 결과 불일치 : " + expected.size() + " != " + actual.length);
+		}
+
+		String name = "rules(" + ruleCount + ")";
+		double scan = measure(name + " interpret each", () -> {
+			int matched = 0;
+			for (ExpressionR rule : rules) {
+				if (rule.interpret(context)) {
+					matched++;
+				}
+			}
+			return matched;
+		});
+		double indexed = measure(name + " index", () -> index.match(user).length);
+		System.out.printf("  -> matched %d, terms %d, %.2fx%n", actual.length, index.termCount(), scan / indexed);
+	}
+
+	// 고정 순서 vs 통계 기반 순서 변경
+	static void adaptiveBenchmark() {
+		System.out.println("[AndExpression vs AdaptiveRuleOptimizer]");
+		// left : 비싸고 대부분 true(마지막 권한에서야 true), right : 싸고 대부분 false
+		ExpressionR rule = new AndExpression(anyRule(32), new RoleExpression("Rare"));
+		List<RoleContext> users = new ArrayList<>();
+		for (int i = 0; i < 64; i++) {
+			Set<String> roles = new HashSet<>(Set.of(roleName(31 * 4)));
+			if (i == 0) {
+				roles.add("Rare");
+			}
+			users.add(new RoleContext(roles));
+		}
+		ExpressionR adaptive = AdaptiveRuleOptimizer.wrap(rule, 1_024);
+		for (RoleContext user : users) {
+			if (rule.interpret(user) != adaptive.interpret(user)) {
+				throw new IllegalStateException("adaptive 결과 불일치");
+			}
+		}
+
+		int[] next = {0};
+		double fixed = measure("fixed order", () -> rule.interpret(users.get(next[0]++ & 63)) ? 1 : 0);
+		double adapted = measure("adaptive order", () -> adaptive.interpret(users.get(next[0]++ & 63)) ? 1 : 0);
+		System.out.printf("  -> %.2fx%n", fixed / adapted);
+		System.out.print(AdaptiveRuleOptimizer.report(adaptive).lines().findFirst().orElse("") + "\n");
+	}
+
+	// 트리 순회 vs RoleProgram vs ROBDD
+	static void bddBenchmark() {
+		System.out.println("[ExpressionR vs RoleProgram vs RoleBdd]");
+		// 같은 검사가 겹쳐 들어있는 규칙 : 규칙 OR (규칙 AND r0) 은 규칙과 같음
+		ExpressionR mixed = mixedRule(64, 32);
+		ExpressionR redundant = new OrExpression(mixed, new AndExpression(new RoleExpression(roleName(0)), mixedRule(64, 32)));
+		benchmarkBdd("mixed rule(64)", mixed, roleSet(8, 32));
+		benchmarkBdd("redundant mixed rule(129)", redundant, roleSet(8, 32));
+		benchmarkBdd("(r0 OR r1) AND ... x 8", cnfRule(8), roleSet(12, 16));
+
+		// 같은 사전으로 따로 컴파일해도 같은 의미의 규칙은 같은 루트
+		RoleDictionary dictionary = new RoleDictionary();
+		List<ExpressionR> rules = List.of(mixed, redundant, mixedRule(64, 32), swapOperands(mixed), cnfRule(8), swapOperands(cnfRule(8)));
+		Set<RoleBdd> distinct = new HashSet<>();
+		for (ExpressionR rule : rules) {
+			distinct.add(RoleBdd.compile(rule, dictionary));
+		}
+		System.out.printf("  -> %d rules, %d distinct BDD roots, table nodes %d%n", rules.size(), distinct.size(),
+				dictionary.bddTable().nodeCount());
+		if (distinct.size() != 2) {
+			throw new IllegalStateException("같은 의미의 규칙이 같은 루트로 합쳐지지 않음 : " + distinct);
+		}
+	}
+
+	private static void benchmarkBdd(String name, ExpressionR rule, Set<String> roles) {
+		RoleDictionary dictionary = new RoleDictionary();
+		RoleProgram program = RoleProgram.compile(rule, dictionary);
+		RoleBdd bdd = RoleBdd.compile(rule, dictionary);
+		Random random = new Random(7);
+		for (int i = 0; i < 1_000; i++) {
+			Set<String> sample = roleSet(random.nextInt(33), 64);
+			boolean expected = rule.interpret(new RoleContext(sample));
+			if (expected != bdd.evaluate(dictionary.context(sample)) || expected != bdd.interpret(new RoleContext(sample))) {
+				throw new IllegalStateException(name + " 결과 불일치 : " + sample);
+			}
+		}
+
+		RoleContext context = new RoleContext(roles);
+		BitsetRoleContext bitset = dictionary.context(roles);
+		double tree = measure(name + " interpret", () -> rule.interpret(context) ? 1 : 0);
+		double compiled = measure(name + " bitset program", () -> program.evaluate(bitset) ? 1 : 0);
+		double diagram = measure(name + " bdd", () -> bdd.evaluate(bitset) ? 1 : 0);
+		System.out.printf("  -> bdd nodes %d, %.2fx vs interpret, %.2fx vs program%n", bdd.size(), tree / diagram, compiled / diagram);
+	}
+
+	private static ExpressionR swapOperands(ExpressionR rule) {
+		if (rule instanceof AndExpression and) {
+			return new AndExpression(swapOperands(and.getRight()), swapOperands(and.getLeft()));
+		}
+		if (rule instanceof OrExpression or) {
+			return new OrExpression(swapOperands(or.getRight()), swapOperands(or.getLeft()));
+		}
+		return rule;
+	}
+
+	// 재귀 interpret vs 명시적 스택 vs ForkJoin, 코어 수별 확장성
+	static void parallelBenchmark() {
+		int cores = Runtime.getRuntime().availableProcessors();
+		System.out.println("[interpret vs ParallelEvaluator] available processors " + cores);
+		checkParallelFailures();
+		checkCombTrees();
+
+		Expression wide = wideTree(1 << 19, 64);
+		Context context = newContext(64);
+		int expected = wide.interpret(context);
+		ParallelEvaluator flat = new ParallelEvaluator(wide);
+		check("wide sequential", expected, flat.evaluateSequential(context));
+		double tree = measure("wide(1M nodes) interpret", () -> wide.interpret(context));
+		double sequential = measure("wide(1M nodes) explicit stack", () -> flat.evaluateSequential(context));
+		System.out.printf("  -> %.2fx%n", tree / sequential);
+
+		List<Integer> parallelism = new ArrayList<>();
+		for (int p = 1; p < cores; p *= 2) {
+			parallelism.add(p);
+		}
+		parallelism.add(cores);
+		for (int p : parallelism) {
+			ForkJoinPool pool = new ForkJoinPool(p);
+			try {
+				ParallelEvaluator evaluator = new ParallelEvaluator(wide, pool, ParallelEvaluator.DEFAULT_THRESHOLD);
+				check("wide parallel " + p, expected, evaluator.evaluate(context));
+				double parallel = measure("wide(1M nodes) fork-join x" + p, () -> evaluator.evaluate(context));
+				System.out.printf("  -> fork points %d, %.2fx vs interpret%n", evaluator.getForkPointCount(), tree / parallel);
+			} finally {
+				pool.shutdown();
+			}
+		}
+
+		// 한쪽으로만 깊은 트리 - 재귀 interpret 는 스택 오버플로
+		Expression deep = deepTree(500_000, 64);
+		String recursive;
+		try {
+			recursive = String.valueOf(deep.interpret(context));
+		} catch (StackOverflowError e) {
+			recursive = "StackOverflowError";
+		}
+		ParallelEvaluator deepEvaluator = new ParallelEvaluator(deep);
+		System.out.println("deep(1M nodes) interpret -> " + recursive + ", ParallelEvaluator -> " + deepEvaluator.evaluate(context));
+		measure("deep(1M nodes) explicit stack", () -> deepEvaluator.evaluateSequential(context));
+	}
+
+	// 분할 지점에서도 트리 순회와 같은 예외가 나는지 확인
+	private static void checkParallelFailures() {
+		Context context = newContext(8);
+		Expression big = wideTree(4_096, 8);
+		Expression missing = new PlusExpression(big, new VariableExpression("missing"));
+		Expression zero = new MinusExpression(big, wideTree(4_096, 8));
+		Expression divideByZero = new DivideExpression(wideTree(4_096, 8), zero);
+		ForkJoinPool pool = new ForkJoinPool(2);
+		try {
+			for (Expression tree : List.of(
+					new PlusExpression(missing, divideByZero),
+					new MultiplyExpression(divideByZero, missing),
+					new DivideExpression(missing, zero),
+					new DivideExpression(missing, new PlusExpression(big, missing)))) {
+				ParallelEvaluator evaluator = new ParallelEvaluator(tree, pool, 1_024);
+				checkFailure("parallel", () -> tree.interpret(context), () -> evaluator.evaluate(context));
+				checkFailure("explicit stack", () -> tree.interpret(context), () -> evaluator.evaluateSequential(context));
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * 빗 모양 트리 - 척추의 모든 노드가 분할 지점(threshold 4, 이빨 10 만 개)
+	 *  - 분할 지점마다 재귀하면 스택 깊이가 이빨 수에 비례해서 StackOverflowError
+	 *  - 척추가 오른쪽 / 왼쪽인 경우 모두, 이빨 하나에서 난 예외도 순차 평가와 같아야 함
+	 */
+	private static void checkCombTrees() {
+		Context context = newContext(8);
+		ForkJoinPool pool = new ForkJoinPool(2);
+		try {
+			for (boolean spineRight : new boolean[] { true, false }) {
+				Expression comb = combTree(100_000, spineRight, null);
+				ParallelEvaluator evaluator = new ParallelEvaluator(comb, pool, 4);
+				check("comb " + (spineRight ? "right" : "left"), evaluator.evaluateSequential(context), evaluator.evaluate(context));
+				for (Expression broken : List.of(new VariableExpression("missing"),
+						new DivideExpression(new NumberExpression(1), new NumberExpression(0)))) {
+					Expression failing = combTree(100_000, spineRight, broken);
+					ParallelEvaluator failingEvaluator = new ParallelEvaluator(failing, pool, 4);
+					checkFailure("comb", () -> failingEvaluator.evaluateSequential(context), () -> failingEvaluator.evaluate(context));
+				}
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * 회귀 확인용 전체 비교 - 차원마다 크기를 바꿔가며 모든 평가기를 측정
+	 *  - 깊이 : deep 체인
+	 *  - 폭 : wide 균형 트리
+	 *  - 변수 수 : 같은 폭에서 서로 다른 변수 개수(Context 해시 맵 크기)
+	 *  - 권한 수 : 사용자가 가진 권한 개수
+	 */
+	static void suiteBenchmark() {
+		System.out.println("[suite] tree depth");
+		for (int depth : new int[] { 16, 256, 1_024 }) {
+			suiteExpression("depth=" + depth, deepTree(depth, 8), 8);
+		}
+		System.out.println("[suite] tree width");
+		for (int width : new int[] { 64, 1_024, 16_384 }) {
+			suiteExpression("width=" + width, wideTree(width, 8), 8);
+		}
+		System.out.println("[suite] variable count");
+		for (int variables : new int[] { 4, 64, 1_024 }) {
+			suiteExpression("vars=" + variables, wideTree(2_048, variables), variables);
+		}
+		System.out.println("[suite] role-set size");
+		for (int roles : new int[] { 1, 16, 256, 4_096 }) {
+			suiteRole("roles=" + roles, mixedRule(64, 32), roleSet(roles, 8_192));
+		}
+	}
+
+	private static void suiteExpression(String name, Expression tree, int variables) {
+		Context context = newContext(variables);
+		SlotLayout layout = new SlotLayout();
+		CompiledExpression slotCompiled = ExpressionCompiler.compile(layout.bind(tree));
+		SlotContext slotContext = layout.newContext();
+		for (int i = 0; i < variables; i++) {
+			slotContext.setVariable(variableName(i), i + 2);
+		}
+		CompiledExpression compiled = ExpressionCompiler.compile(tree);
+		CompiledExpression optimized = ExpressionCompiler.compile(ExpressionOptimizer.optimize(tree));
+		ExpressionDag dag = ExpressionDag.build(tree);
+		int[] values = new int[dag.size()];
+		ParallelEvaluator flat = new ParallelEvaluator(tree);
+
+		int expected = tree.interpret(context);
+		check(name + " compiled", expected, compiled.interpret(context));
+		check(name + " optimized", expected, optimized.interpret(context));
+		check(name + " slot", expected, slotCompiled.interpret(slotContext));
+		check(name + " dag", expected, dag.evaluate(context, values));
+		check(name + " flat", expected, flat.evaluateSequential(context));
+
+		measure(name + " interpret", () -> tree.interpret(context));
+		measure(name + " compiled", () -> compiled.interpret(context));
+		measure(name + " optimized+compiled", () -> optimized.interpret(context));
+		measure(name + " slot compiled", () -> slotCompiled.interpret(slotContext));
+		measure(name + " dag", () -> dag.evaluate(context, values));
+		measure(name + " flat stack", () -> flat.evaluateSequential(context));
+	}
+
+	private static void suiteRole(String name, ExpressionR rule, Set<String> roles) {
+		RoleDictionary dictionary = new RoleDictionary();
+		RoleProgram program = RoleProgram.compile(rule, dictionary);
+		RoleBdd bdd = RoleBdd.compile(rule, dictionary);
+		ExpressionR adaptive = AdaptiveRuleOptimizer.wrap(rule);
+		RoleContext context = new RoleContext(roles);
+		BitsetRoleContext bitset = dictionary.context(roles);
+
+		boolean expected = rule.interpret(context);
+		if (program.evaluate(bitset) != expected || bdd.evaluate(bitset) != expected || adaptive.interpret(context) != expected) {
+			throw new IllegalStateException(name + " 결과 불일치");
+		}
+		measure(name + " interpret", () -> rule.interpret(context) ? 1 : 0);
+		measure(name + " bitset program", () -> program.evaluate(bitset) ? 1 : 0);
+		measure(name + " bdd", () -> bdd.evaluate(bitset) ? 1 : 0);
+		measure(name + " adaptive", () -> adaptive.interpret(context) ? 1 : 0);
+	}
+
+	// ---------------------------------------------------------------- 측정 도구
+
+	/**
+	 * 1 회 호출 당 평균 시간(ns) 측정, 할당량을 잴 수 있으면 B/op 도 출력
+	 */
+	static double measure(String label, IntSupplier body) {
+		for (int i = 0; i < WARMUP_ROUNDS; i++) {
+			runRound(body);
+		}
+		double total = 0;
+		long calls = 0;
+		long allocated = allocatedBytes();
+		for (int i = 0; i < MEASURE_ROUNDS; i++) {
+			double[] round = runRound(body);
+			total += round[0];
+			calls += (long) round[1];
+		}
+		double nanosPerOp = total / MEASURE_ROUNDS;
+		if (THREADS == null) {
+			System.out.printf("%-40s %12.1f ns/op%n", label, nanosPerOp);
+			results.add(csvField(label) + "," + nanosPerOp + ",");
+		} else {
+			double bytesPerOp = (double) (allocatedBytes() - allocated) / calls;
+			System.out.printf("%-40s %12.1f ns/op %10.1f B/op%n", label, nanosPerOp, bytesPerOp);
+			results.add(csvField(label) + "," + nanosPerOp + "," + bytesPerOp);
+		}
+		return nanosPerOp;
+	}
+
+	// { ns/op, 호출 수 }
+	private static double[] runRound(IntSupplier body) {
+		long calls = 0;
+		long acc = 0;
+		long start = System.nanoTime();
+		long elapsed;
+		// 호출 한 번이 긴 경우(배치 평가 등)를 위해 시간 확인 간격을 1 부터 늘려감
+		int batch = 1;
+		do {
+			for (int i = 0; i < batch; i++) {
+				acc += body.getAsInt();
+			}
+			calls += batch;
+			batch = Math.min(batch * 2, MAX_BATCH);
+			elapsed = System.nanoTime() - start;
+		} while (elapsed < ROUND_NANOS);
+		sink += acc;
+		return new double[] { (double) elapsed / calls, calls };
+	}
+
+	private static ThreadMXBean allocationCounter() {
+		java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if (threads instanceof ThreadMXBean counter && counter.isThreadAllocatedMemorySupported()) {
+			counter.setThreadAllocatedMemoryEnabled(true);
+			return counter;
+		}
+		return null;
+	}
+
+	private static long allocatedBytes() {
+		return THREADS == null ? 0 : THREADS.getCurrentThreadAllocatedBytes();
+	}
+
+	private static String csvField(String value) {
+		return value.contains(",") || value.contains("\"") ? "\"" + value.replace("\"", "\"\"") + "\"" : value;
+	}
+
+	static void check(String name, int expected, int actual) {
+		if (expected != actual) {
+			throw new IllegalStateException(name + " 결과 불일치 : " + expected + " != " + actual);
+		}
+	}
+
+	/**
+	 * 두 평가 경로가 같은 예외 타입, 같은 메시지로 실패하는지 확인
+	 */
+	static void checkFailure(String name, IntSupplier expected, IntSupplier actual) {
+		RuntimeException expectedError = failureOf(expected);
+		RuntimeException actualError = failureOf(actual);
+		if (expectedError == null || actualError == null
+				|| expectedError.getClass() != actualError.getClass()
+				|| !expectedError.getMessage().equals(actualError.getMessage())) {
+			throw new IllegalStateException(name + " 예외 불일치 : " + expectedError + " != " + actualError);
+		}
+	}
+
+	private static RuntimeException failureOf(IntSupplier body) {
+		try {
+			body.getAsInt();
+			return null;
+		} catch (RuntimeException e) {
+			return e;
+		}
+	}
+
+	// ---------------------------------------------------------------- 트리 생성
+
+	static Context newContext(int variables) {
+		Context context = new Context();
+		for (int i = 0; i < variables; i++) {
+			context.setVariable(variableName(i), i + 2);
+		}
+		return context;
+	}
+
+	static List<String> variableNames(int variables) {
+		List<String> names = new ArrayList<>();
+		for (int i = 0; i < variables; i++) {
+			names.add(variableName(i));
+		}
+		return names;
+	}
+
+	static String variableName(int index) {
+		return "x" + index;
+	}
+
+	/**
+	 * 왼쪽으로만 깊어지는 체인
+	 *  - +, *, -, / 를 번갈아 사용하고, 나눗셈은 0 이 아닌 상수로만 나눔
+	 */
+	static Expression deepTree(int depth, int variables) {
+		Expression tree = new VariableExpression(variableName(0));
+		for (int i = 1; i <= depth; i++) {
+			Expression operand = (i % 2 == 0)
+					? new NumberExpression(i % 5 + 1)
+					: new VariableExpression(variableName(i % variables));
+			switch (i % 4) {
+			case 0: tree = new PlusExpression(tree, operand); break;
+			case 1: tree = new MultiplyExpression(tree, operand); break;
+			case 2: tree = new MinusExpression(tree, operand); break;
+			default: tree = new DivideExpression(tree, new NumberExpression(i % 7 + 1)); break;
+			}
+		}
+		return tree;
+	}
+
+	/**
+	 * 리프 개수가 leaves 인 균형 트리
+	 *  - 리프는 변수와 상수를 번갈아 사용
+	 */
+	/**
+	 * 빗 모양 트리 - 척추 노드마다 리프 4 개짜리 이빨 하나, broken 이 있으면 가운데 이빨 하나를 그것으로 바꿈
+	 */
+	static Expression combTree(int teeth, boolean spineRight, Expression broken) {
+		Expression tree = wideTree(4, 8);
+		for (int i = 1; i < teeth; i++) {
+			Expression tooth = broken != null && i == teeth / 2 ? broken : wideTree(i % 8, 4, 8, 0);
+			Expression left = spineRight ? tooth : tree;
+			Expression right = spineRight ? tree : tooth;
+			switch (i % 3) {
+			case 0: tree = new PlusExpression(left, right); break;
+			case 1: tree = new MinusExpression(left, right); break;
+			default: tree = new MultiplyExpression(left, right); break;
+			}
+		}
+		return tree;
+	}
+
+	static Expression wideTree(int leaves, int variables) {
+		return wideTree(0, leaves, variables, 0);
+	}
+
+	private static Expression wideTree(int from, int count, int variables, int level) {
+		if (count == 1) {
+			return (from % 2 == 0)
+					? new VariableExpression(variableName(from / 2 % variables))
+					: new NumberExpression(from % 9 + 1);
+		}
+		int half = count / 2;
+		Expression left = wideTree(from, half, variables, level + 1);
+		Expression right = wideTree(from + half, count - half, variables, level + 1);
+		switch (level % 3) {
+		case 0: return new PlusExpression(left, right);
+		case 1: return new MinusExpression(left, right);
+		default: return new MultiplyExpression(left, right);
+		}
+	}
+}
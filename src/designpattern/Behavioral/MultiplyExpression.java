@@ -0,0 +1,26 @@
+package designpattern.Behavioral;
+
+// 곱셈 표현
+class MultiplyExpression implements Expression {
+	private Expression left;
+	private Expression right;
+	
+	public MultiplyExpression(Expression left, Expression right) {
+		this.left = left;
+		this.right = right;
+	}
+	
+	public Expression getLeft() {
+		return left;
+	}
+	
+	public Expression getRight() {
+		return right;
+	}
+	
+	@Override
+	public int interpret(Context context) {
+		
+		return left.interpret(context) * right.interpret(context);
+	}
+}
@@ -0,0 +1,20 @@
+package designpattern.Behavioral;
+
+// TerminalExpression
+// 숫자 표현
+class NumberExpression implements Expression {
+	private int number;
+	
+	public NumberExpression(int number) {
+		this.number = number;
+	}
+	
+	public int getNumber() {
+		return number;
+	}
+	
+	@Override
+	public int interpret(Context context) {
+		return number;
+	}
+}
@@ -1,7 +1,6 @@
 package designpattern.Behavioral;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 객체의 상태 변화 발생
@@ -43,6 +42,27 @@ public class Observer {
 
         // 영상 업로드
         youTuber.upload("두 번째 영상!");
+
+        System.out.println("--------------------------------------");
+
+        // 비동기 전달 - 느린 이메일 구독자가 있어도 upload 는 바로 돌아옴
+        try (ObserverDispatcher dispatcher = new ObserverDispatcher()) {
+            Youtuber asyncYouTuber = new Youtuber(dispatcher);
+            ObserverInterface slowEmailSub = new EmailSubscriber("Bob", 200);
+            asyncYouTuber.registerObserver(slowEmailSub);
+            asyncYouTuber.registerObserver(pushSub);
+
+            long start = System.nanoTime();
+            asyncYouTuber.upload("세 번째 영상!");
+            asyncYouTuber.upload("네 번째 영상!");
+            System.out.printf("upload 두 번 : %.1f ms, 대기 중인 알림 %d 개%n", (System.nanoTime() - start) / 1e6,
+                    dispatcher.getQueueDepth());
+            dispatcher.awaitIdle(5, TimeUnit.SECONDS);
+            System.out.println(slowEmailSub + " -> " + dispatcher.getStats(slowEmailSub));
+            System.out.println(pushSub + " -> " + dispatcher.getStats(pushSub));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
 	}
 }
 
@@ -64,86 +84,33 @@ class NewsPublisher {
 
 // 적용
 /**
- * Subject(주체 인터페이스)
- *  - 상태 변화 관리
- *  - 옵저버를 등록/제거/통지하는 메소드 정의
- *  - 발행자(Publish) 역할
- * 
- * ConcreteSubject(구체 주체 클래스)
- *  - 상태 변화 발생 -> 등록된 옵저버들에게 알림
- *  - 실제 데이터를 가지며 변화가 생기면 통지
- * 
- * Observer(옵저버 인터페이스)
- *  - 상태 변화를 수신하는 메소드 정의
- *  - 구독자(Subscribe) 역할
- * 
  * ConcreteObserver(구체 옵저버 클래스)
  *  - 알림을 받으면 동작 수행
  *  - 주체와 연결되어 있으며 상태 변화에 반응
  */
-// Subject
-interface Subject {
-	void registerObserver(ObserverInterface observerI);
-	void removeObserver(ObserverInterface observerI);
-	void notifyObserver(String message);
-}
-
-// ConcreteSubject
-class Youtuber implements Subject {
-	// 구독자 목록
-	private List<ObserverInterface> observerList = new ArrayList<>();
-	
-	@Override
-	public void registerObserver(ObserverInterface observer) {
-	    if (observer == null) {
-	        System.out.println("구독자 정보가 올바르지 않습니다.");
-	        return;
-	    }
-	    if (observerList.contains(observer)) {
-	    	removeObserver(observer);
-	        return;
-	    }
-		observerList.add(observer);
-		System.out.println(observer + " 구독");
-	}
-
-	@Override
-	public void removeObserver(ObserverInterface observer) {
-	    if (observer == null) {
-	        System.out.println("구독자 정보가 올바르지 않습니다.");
-	        return;
-	    }
-		observerList.remove(observer);
-		System.out.println(observer + " 구독 취소");
-	}
-
-	@Override
-	public void notifyObserver(String message) {
-		for (ObserverInterface observer : observerList) {
-			observer.update(message);
-		}
-	}
-	
-	public void upload(String title) {
-		notifyObserver(title);
-	}
-}
-
-// Observer
-interface ObserverInterface {
-    void update(String message);
-}
-
-// ConcreteObserver
 class EmailSubscriber implements ObserverInterface {
 	private String name;
+	// 메일 서버 응답을 기다리는 시간 흉내(ms)
+	private final long sendMillis;
 	
 	public EmailSubscriber(String name) {
+		this(name, 0);
+	}
+	
+	public EmailSubscriber(String name, long sendMillis) {
 		this.name = name;
+		this.sendMillis = sendMillis;
 	}
 
 	@Override
 	public void update(String message) {
+		if (sendMillis > 0) {
+			try {
+				Thread.sleep(sendMillis);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
 		System.out.println(name + "에게 이메일 알림: " + message);
 	}
 	
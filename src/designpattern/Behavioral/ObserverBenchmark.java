@@ -0,0 +1,155 @@
+package designpattern.Behavioral;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Youtuber.upload 성능 측정 - 차례로 update vs ObserverDispatcher
+ *
+ *  - 구독자 SUBSCRIBERS 명 중 하나는 update 한 번에 SLOW_MILLIS ms 걸리는 느린 구독자(메일 전송 흉내)
+ *  - upload 한 번의 시간(백분위) 과 구독자별 전달 지연을 출력
+ *  - 구독자마다 받은 순서가 보낸 순서와 같은지 확인
+ */
+public class ObserverBenchmark {
+	private static final int SUBSCRIBERS = 16;
+	private static final int UPLOADS = 2_000;
+	private static final long SLOW_MILLIS = 1;
+
+	public static void main(String[] args) throws InterruptedException {
+		System.out.println("[Youtuber] 구독자 " + SUBSCRIBERS + " 명(느린 구독자 1 명, " + SLOW_MILLIS + " ms), upload " + UPLOADS + " 번");
+		run("동기", null);
+		try (ObserverDispatcher dispatcher = new ObserverDispatcher()) {
+			run(dispatcher.usesVirtualThreads() ? "비동기(가상 스레드)" : "비동기(스레드 풀 " + ObserverDispatcher.DEFAULT_THREADS + ")",
+					dispatcher);
+		}
+		try (ObserverDispatcher dispatcher = new ObserverDispatcher(2, ObserverDispatcher.DEFAULT_CAPACITY)) {
+			run("비동기(스레드 풀 2)", dispatcher);
+		}
+		checkCloseRace();
+	}
+
+	/**
+	 * 자리를 기다리던 dispatch 와 close 가 겹쳐도 - dispatch 는 전달되거나 IllegalStateException, close 뒤 대기열은 0
+	 *  - 대기열 1 칸에 여러 스레드가 기다리게 해서 close 가 자리를 돌려준 직후 dispatch 가 그 자리를 얻게 함
+	 */
+	private static void checkCloseRace() throws InterruptedException {
+		ObserverInterface observer = message -> { };
+		for (int round = 0; round < 200; round++) {
+			ObserverDispatcher dispatcher = new ObserverDispatcher(2, 1);
+			List<Thread> senders = new ArrayList<>();
+			for (int t = 0; t < 4; t++) {
+				Thread sender = new Thread(() -> {
+					try {
+						for (int i = 0; i < 1_000; i++) {
+							dispatcher.dispatch(observer, "m");
+						}
+					} catch (IllegalStateException closed) {
+						// 닫힌 뒤의 dispatch
+					}
+				});
+				sender.start();
+				senders.add(sender);
+			}
+			dispatcher.close();
+			for (Thread sender : senders) {
+				sender.join(TimeUnit.SECONDS.toMillis(10));
+				if (sender.isAlive()) {
+					throw new IllegalStateException("close 뒤에 dispatch 가 끝나지 않습니다.");
+				}
+			}
+			if (dispatcher.getQueueDepth() != 0) {
+				throw new IllegalStateException("close 뒤에 대기열이 남았습니다 : " + dispatcher.getQueueDepth());
+			}
+		}
+		System.out.println("close race check : close 와 겹친 dispatch 는 자리를 돌려주고 거절");
+	}
+
+	private static void run(String label, ObserverDispatcher dispatcher) throws InterruptedException {
+		Youtuber youtuber = new Youtuber(dispatcher);
+		List<RecordingSubscriber> subscribers = new ArrayList<>();
+		for (int i = 0; i < SUBSCRIBERS; i++) {
+			RecordingSubscriber subscriber = new RecordingSubscriber("sub" + i, i == 0 ? SLOW_MILLIS : 0);
+			subscribers.add(subscriber);
+			quietly(() -> youtuber.registerObserver(subscriber));
+		}
+		long[] uploads = new long[UPLOADS];
+		long begin = System.nanoTime();
+		for (int i = 0; i < UPLOADS; i++) {
+			long start = System.nanoTime();
+			youtuber.upload(Integer.toString(i));
+			uploads[i] = System.nanoTime() - start;
+		}
+		long uploaded = System.nanoTime() - begin;
+		if (dispatcher != null && !dispatcher.awaitIdle(1, TimeUnit.MINUTES)) {
+			throw new IllegalStateException("알림이 전달되지 않았습니다.");
+		}
+		long delivered = System.nanoTime() - begin;
+		for (RecordingSubscriber subscriber : subscribers) {
+			subscriber.checkOrder();
+		}
+		Arrays.sort(uploads);
+		System.out.printf("%-24s upload p50 %,9d ns  p99 %,11d ns  업로드 %,7.1f ms  전달 완료 %,7.1f ms%n", label,
+				uploads[UPLOADS / 2], uploads[(int) (UPLOADS * 0.99)], uploaded / 1e6, delivered / 1e6);
+		if (dispatcher != null) {
+			System.out.println("    느린 구독자 : " + dispatcher.getStats(subscribers.get(0)));
+			System.out.println("    빠른 구독자 : " + dispatcher.getStats(subscribers.get(1)));
+		}
+	}
+
+	private static void quietly(Runnable body) {
+		PrintStream out = System.out;
+		System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+		try {
+			body.run();
+		} finally {
+			System.setOut(out);
+		}
+	}
+
+	/**
+	 * 받은 순서를 기억하는 구독자(출력 없음)
+	 */
+	private static final class RecordingSubscriber implements ObserverInterface {
+		private final String name;
+		private final long sendMillis;
+		private final int[] received = new int[UPLOADS];
+		private int count;
+
+		RecordingSubscriber(String name, long sendMillis) {
+			this.name = name;
+			this.sendMillis = sendMillis;
+		}
+
+		@Override
+		public void update(String message) {
+			if (sendMillis > 0) {
+				try {
+					Thread.sleep(sendMillis);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			received[count++] = Integer.parseInt(message);
+		}
+
+		void checkOrder() {
+			if (count != UPLOADS) {
+				throw new IllegalStateException(name + " : " + count + " 개만 받음");
+			}
+			for (int i = 0; i < count; i++) {
+				if (received[i] != i) {
+					throw new IllegalStateException(name + " : 순서가 다릅니다 " + i + " 번째에 " + received[i]);
+				}
+			}
+		}
+
+		@Override
+		public String toString() {
+			return name;
+		}
+	}
+}
@@ -0,0 +1,298 @@
+package designpattern.Behavioral;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Youtuber 의 알림을 다른 스레드에서 전달
+ *
+ * 왜 필요할까?
+ *  - notifyObserver 가 update 를 차례로 부르면 느린 구독자 하나(이메일 전송 등) 가 뒤의 구독자와 upload 까지 모두 붙잡음
+ *
+ * 동작
+ *  - 구독자마다 우편함(대기열) 하나, 알림은 우편함에 넣기만 하고 바로 돌아옴
+ *  - 우편함이 비어 있다가 알림이 들어오면 그 우편함을 비우는 작업을 executor 에 하나 넣음
+ *      한 우편함은 한 번에 한 작업만 비움 -> 구독자 하나에게는 보낸 순서대로, 동시에 두 번 부르지 않음
+ *      서로 다른 구독자는 동시에 받음, 작업 하나가 BATCH 개를 넘게 보내면 다시 줄을 서서 다른 구독자에게 양보
+ *  - executor : 가상 스레드(JDK 21 이상) 또는 크기를 고정한 스레드 풀
+ *  - 전달되지 않은 알림은 capacity 개까지 - 가득 차면 넣는 쪽이 자리가 날 때까지 기다림(메모리가 끝없이 늘지 않음)
+ *  - update 가 던진 예외(Error 포함) 는 세기만 하고 다음 알림을 계속 전달
+ *
+ * 측정 값
+ *  - 대기열 깊이 : 전체 / 구독자별 전달되지 않은 알림 수
+ *  - 전달 지연 : 알림을 넣은 때부터 그 구독자의 update 가 끝날 때까지, 구독자별 횟수 / 평균 / 최대
+ */
+class ObserverDispatcher implements AutoCloseable {
+	static final int DEFAULT_CAPACITY = 10_000;
+	// update 는 보통 메일 / 푸시 서버를 기다리는 작업이라 CPU 수보다 넉넉하게
+	static final int DEFAULT_THREADS = Math.max(8, Runtime.getRuntime().availableProcessors() * 4);
+	private static final int BATCH = 64;
+
+	private final ExecutorService executor;
+	private final boolean virtualThreads;
+	private final Semaphore room;
+	private final int capacity;
+	private final Map<ObserverInterface, Mailbox> mailboxes = new ConcurrentHashMap<>();
+	private volatile boolean closed;
+
+	/**
+	 * 가상 스레드를 쓸 수 있으면 가상 스레드, 아니면 DEFAULT_THREADS 개의 스레드 풀
+	 */
+	public ObserverDispatcher() {
+		this(newVirtualThreadExecutor(), DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * threads 개로 고정한 스레드 풀
+	 */
+	public ObserverDispatcher(int threads, int capacity) {
+		this(newPlatformExecutor(threads), capacity);
+	}
+
+	private ObserverDispatcher(ExecutorService virtual, int capacity) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("대기열 크기는 1 이상이어야 합니다.");
+		}
+		this.virtualThreads = virtual != null;
+		this.executor = virtual != null ? virtual : newPlatformExecutor(DEFAULT_THREADS);
+		this.capacity = capacity;
+		this.room = new Semaphore(capacity);
+	}
+
+	/**
+	 * observer 의 우편함에 넣고 바로 돌아옴(대기열이 가득 차면 기다림)
+	 */
+	public void dispatch(ObserverInterface observer, String message) {
+		if (closed) {
+			throw new IllegalStateException("닫힌 dispatcher 입니다.");
+		}
+		room.acquireUninterruptibly();
+		// 자리를 기다리는 동안 close 가 모두 전달된 것을 확인하고 executor 를 닫았을 수 있음
+		if (closed) {
+			room.release();
+			throw new IllegalStateException("닫힌 dispatcher 입니다.");
+		}
+		Delivery delivery = new Delivery(message, System.nanoTime());
+		Mailbox[] idle = new Mailbox[1];
+		// forget 과 같은 키 락 안에서 넣음 -> 알림이 남은 우편함이 지워져 한 구독자의 우편함이 둘이 되는 일이 없음
+		mailboxes.compute(observer, (key, mailbox) -> {
+			Mailbox target = mailbox == null ? new Mailbox(key) : mailbox;
+			target.queue.add(delivery);
+			if (target.pending.getAndIncrement() == 0) {
+				idle[0] = target;
+			}
+			return target;
+		});
+		if (idle[0] != null) {
+			schedule(idle[0]);
+		}
+	}
+
+	/**
+	 * 구독 취소 - 통계를 버림, 전달하지 못한 알림이 남아 있으면 전달되도록 우편함은 그대로 둠
+	 */
+	public void forget(ObserverInterface observer) {
+		mailboxes.computeIfPresent(observer, (key, mailbox) -> mailbox.pending.get() == 0 ? null : mailbox);
+	}
+
+	// 전달되지 않은 알림 수(전달 중인 것 포함)
+	public int getQueueDepth() {
+		return capacity - room.availablePermits();
+	}
+
+	public int getQueueDepth(ObserverInterface observer) {
+		Mailbox mailbox = mailboxes.get(observer);
+		return mailbox == null ? 0 : mailbox.pending.get();
+	}
+
+	/**
+	 * observer 의 전달 통계, 받은 적이 없으면 모두 0
+	 */
+	public DeliveryStats getStats(ObserverInterface observer) {
+		Mailbox mailbox = mailboxes.get(observer);
+		if (mailbox == null) {
+			return new DeliveryStats(0, 0, 0, 0, 0);
+		}
+		return new DeliveryStats(mailbox.delivered.sum(), mailbox.failed.sum(), mailbox.latencyNanos.sum(),
+				mailbox.maxLatencyNanos.get(), mailbox.pending.get());
+	}
+
+	public boolean usesVirtualThreads() {
+		return virtualThreads;
+	}
+
+	/**
+	 * 넣은 알림이 모두 전달될 때까지 기다림, 시간 안에 끝나면 true
+	 */
+	public boolean awaitIdle(long timeout, TimeUnit unit) throws InterruptedException {
+		if (!room.tryAcquire(capacity, timeout, unit)) {
+			return false;
+		}
+		room.release(capacity);
+		return true;
+	}
+
+	/**
+	 * 더 받지 않고, 남은 알림을 전달한 뒤 스레드를 정리
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		try {
+			awaitIdle(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		executor.shutdown();
+	}
+
+	private void schedule(Mailbox mailbox) {
+		try {
+			executor.execute(() -> drain(mailbox));
+		} catch (RejectedExecutionException e) {
+			// close 는 모두 전달된 뒤에만 executor 를 닫고 dispatch 는 자리를 얻은 뒤 closed 를 다시 보므로 오지 않아야 함
+			// 그래도 오면 남은 알림을 버려서 자리를 돌려줌(awaitIdle / close 가 영원히 기다리지 않게)
+			discard(mailbox);
+			throw new IllegalStateException("닫힌 dispatcher 입니다.", e);
+		}
+	}
+
+	// 비우는 작업을 넣지 못한 우편함 - 남은 알림을 실패로 세고 버림, 그 사이에 들어온 알림도 pending 이 0 이 될 때까지
+	private void discard(Mailbox mailbox) {
+		do {
+			mailbox.queue.poll();
+			mailbox.failed.increment();
+			room.release();
+		} while (mailbox.pending.decrementAndGet() != 0);
+	}
+
+	private void drain(Mailbox mailbox) {
+		for (int i = 0; i < BATCH; i++) {
+			Delivery delivery = mailbox.queue.poll();
+			boolean more;
+			try {
+				mailbox.observer.update(delivery.message);
+				mailbox.delivered.increment();
+			} catch (Throwable e) {
+				// Error 도 세기만 함 - 여기서 빠져나가면 우편함이 영원히 멈춤
+				mailbox.failed.increment();
+			} finally {
+				mailbox.record(System.nanoTime() - delivery.enqueuedAt);
+				more = mailbox.pending.decrementAndGet() != 0;
+				// 우편함 수를 먼저 줄임 -> awaitIdle 이 돌아왔을 때 구독자별 대기도 0
+				room.release();
+			}
+			if (!more) {
+				return;
+			}
+		}
+		// 남은 알림이 있음 - 다른 우편함 뒤로 다시 줄을 섬
+		schedule(mailbox);
+	}
+
+	static ExecutorService newVirtualThreadExecutor() {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+			return null;
+		}
+	}
+
+	private static ExecutorService newPlatformExecutor(int threads) {
+		if (threads <= 0) {
+			throw new IllegalArgumentException("스레드 수는 1 이상이어야 합니다.");
+		}
+		AtomicInteger sequence = new AtomicInteger();
+		return Executors.newFixedThreadPool(threads, task -> {
+			Thread thread = new Thread(task, "observer-dispatcher-" + sequence.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	private static final class Delivery {
+		final String message;
+		final long enqueuedAt;
+
+		Delivery(String message, long enqueuedAt) {
+			this.message = message;
+			this.enqueuedAt = enqueuedAt;
+		}
+	}
+
+	private static final class Mailbox {
+		final ObserverInterface observer;
+		final ConcurrentLinkedQueue<Delivery> queue = new ConcurrentLinkedQueue<>();
+		// 넣었지만 아직 전달이 끝나지 않은 수, 0 -> 1 로 올린 쪽이 비우는 작업을 넣음
+		final AtomicInteger pending = new AtomicInteger();
+		final LongAdder delivered = new LongAdder();
+		final LongAdder failed = new LongAdder();
+		final LongAdder latencyNanos = new LongAdder();
+		final AtomicLong maxLatencyNanos = new AtomicLong();
+
+		Mailbox(ObserverInterface observer) {
+			this.observer = observer;
+		}
+
+		void record(long latency) {
+			latencyNanos.add(latency);
+			maxLatencyNanos.accumulateAndGet(latency, Math::max);
+		}
+	}
+
+	/**
+	 * 구독자 하나의 전달 통계
+	 */
+	static final class DeliveryStats {
+		private final long delivered;
+		private final long failed;
+		private final long totalLatencyNanos;
+		private final long maxLatencyNanos;
+		private final int queueDepth;
+
+		DeliveryStats(long delivered, long failed, long totalLatencyNanos, long maxLatencyNanos, int queueDepth) {
+			this.delivered = delivered;
+			this.failed = failed;
+			this.totalLatencyNanos = totalLatencyNanos;
+			this.maxLatencyNanos = maxLatencyNanos;
+			this.queueDepth = queueDepth;
+		}
+
+		public long getDelivered() {
+			return delivered;
+		}
+
+		public long getFailed() {
+			return failed;
+		}
+
+		public double getMeanLatencyNanos() {
+			long count = delivered + failed;
+			return count == 0 ? 0 : (double) totalLatencyNanos / count;
+		}
+
+		public long getMaxLatencyNanos() {
+			return maxLatencyNanos;
+		}
+
+		public int getQueueDepth() {
+			return queueDepth;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("전달 %d, 실패 %d, 평균 %.1f us, 최대 %.1f us, 대기 %d", delivered, failed,
+					getMeanLatencyNanos() / 1_000, maxLatencyNanos / 1_000.0, queueDepth);
+		}
+	}
+}
@@ -0,0 +1,10 @@
+package designpattern.Behavioral;
+
+/**
+ * Observer(옵저버 인터페이스)
+ *  - 상태 변화를 수신하는 메소드 정의
+ *  - 구독자(Subscribe) 역할
+ */
+interface ObserverInterface {
+    void update(String message);
+}
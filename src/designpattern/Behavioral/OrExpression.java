@@ -0,0 +1,23 @@
+package designpattern.Behavioral;
+
+class OrExpression implements ExpressionR {
+	private ExpressionR left, right;
+	
+	public OrExpression(ExpressionR left, ExpressionR right) {
+		this.left = left;
+		this.right = right;
+	}
+	
+	public ExpressionR getLeft() {
+		return left;
+	}
+	
+	public ExpressionR getRight() {
+		return right;
+	}
+	
+	@Override
+	public boolean interpret(RoleContext context) {
+        return left.interpret(context) || right.interpret(context);
+	}
+}
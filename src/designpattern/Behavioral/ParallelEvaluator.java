@@ -0,0 +1,517 @@
+package designpattern.Behavioral;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * 매우 큰 Expression 트리를 ForkJoinPool 로 나눠서 평가
+ *
+ * 왜 필요할까?
+ *  - 기계가 생성한 트리는 노드가 수십만 개, interpret 는 한 코어에서 재귀로만 평가
+ *  - 한쪽으로 깊은 트리는 재귀 깊이가 노드 수만큼이라 StackOverflowError
+ *
+ * 동작
+ *  - 생성할 때 트리를 평가 순서대로 펼친 명령 배열로 바꿈(재귀 없이 명시적 스택으로 순회)
+ *      하위 트리 하나 = 명령 배열의 연속 구간
+ *      나눗셈은 오른쪽 -> 0 검사 -> 왼쪽 순서로 펼침(interpret 와 같은 순서)
+ *  - 평가는 구간을 앞에서부터 실행하며 값 스택에 쌓는 단순 루프 -> 깊이와 관계없이 스택 오버플로 없음
+ *  - "양쪽 자식이 모두 threshold 이상" 인 노드만 분할 지점
+ *      분할 지점에서는 작은 쪽 자식 구간을 fork 하고 큰 쪽은 같은 루프에서 이어서 계산(재귀 없음)
+ *      한쪽으로만 깊은 체인은 분할되지 않고 순차 실행
+ *      분할 지점이 줄지어 있는 빗 모양 트리도 스택 깊이는 log2(명령 수) 단계 이하
+ *
+ * 예외는 트리 순회와 같음
+ *  - +, -, * : 왼쪽이 실패하면 왼쪽 예외, 왼쪽이 성공했을 때만 오른쪽 예외
+ *  - / : 오른쪽 예외 -> 0 나눗셈 -> 왼쪽 예외 순서
+ *  - 다른 스레드에서 난 예외(Error 포함) 도 원래 객체 그대로 던짐(ForkJoinTask.join 은 예외를 새로 만들어 메시지가 바뀜)
+ *
+ * Context 는 평가 중에 바뀌지 않아야 함(여러 스레드가 동시에 읽음)
+ */
+public class ParallelEvaluator {
+	static final int DEFAULT_THRESHOLD = 8_192;
+
+	private static final int NUMBER = 0;
+	private static final int VARIABLE = 1;
+	private static final int LEAF = 2;
+	private static final int PLUS = 3;
+	private static final int MINUS = 4;
+	private static final int MULTIPLY = 5;
+	private static final int DIVIDE = 6;
+	// 나눗셈의 왼쪽을 계산하기 전에 오른쪽(스택 맨 위) 이 0 인지 검사
+	private static final int CHECK_DIVISOR = 7;
+
+	private final ForkJoinPool pool;
+	private final int[] ops;
+	// NUMBER : 상수, VARIABLE / LEAF : names / leaves 번호
+	private final int[] operands;
+	private final String[] names;
+	private final Expression[] leaves;
+	private final int maxDepth;
+
+	// 명령 위치 -> 그 위치에서 시작하는 가장 바깥 분할 지점, 없으면 -1
+	private final int[] forkAt;
+	// 분할 지점 정보 : 첫째 자식 구간 끝, 둘째 자식 구간 시작, 연산 명령 위치, 같은 위치에서 시작하는 안쪽 분할 지점
+	private final int[] forkFirstEnds;
+	private final int[] forkSecondStarts;
+	private final int[] forkOps;
+	private final int[] forkInners;
+
+	public ParallelEvaluator(Expression expression) {
+		this(expression, ForkJoinPool.commonPool(), DEFAULT_THRESHOLD);
+	}
+
+	public ParallelEvaluator(Expression expression, ForkJoinPool pool, int threshold) {
+		if (threshold <= 0) {
+			throw new IllegalArgumentException("threshold 는 1 이상이어야 합니다.");
+		}
+		this.pool = pool;
+		Builder builder = new Builder(threshold);
+		builder.emit(expression);
+		this.ops = Arrays.copyOf(builder.ops, builder.size);
+		this.operands = Arrays.copyOf(builder.operands, builder.size);
+		this.names = builder.names.toArray(new String[0]);
+		this.leaves = builder.leaves.toArray(new Expression[0]);
+		this.maxDepth = builder.maxDepth;
+		this.forkAt = Arrays.copyOf(builder.forkAt, builder.size);
+		this.forkFirstEnds = Arrays.copyOf(builder.forkFirstEnds, builder.forks);
+		this.forkSecondStarts = Arrays.copyOf(builder.forkSecondStarts, builder.forks);
+		this.forkOps = Arrays.copyOf(builder.forkOps, builder.forks);
+		this.forkInners = Arrays.copyOf(builder.forkInners, builder.forks);
+	}
+
+	public int evaluate(Context context) {
+		if (forkOps.length == 0) {
+			// 나눌 곳이 없으면 풀에 넘기지 않고 현재 스레드에서
+			return run(0, ops.length, context, false);
+		}
+		RangeTask task = new RangeTask(0, ops.length, context);
+		pool.invoke(task);
+		return task.result();
+	}
+
+	/**
+	 * 분할하지 않고 현재 스레드에서만 평가 - 재귀가 없으므로 깊은 트리도 스택 오버플로 없음
+	 */
+	public int evaluateSequential(Context context) {
+		return run(0, ops.length, context, false);
+	}
+
+	// 분할 지점 수
+	public int getForkPointCount() {
+		return forkOps.length;
+	}
+
+	// 펼친 명령 수(0 검사 명령 포함)
+	public int size() {
+		return ops.length;
+	}
+
+	public ForkJoinPool getPool() {
+		return pool;
+	}
+
+	/**
+	 * 하위 트리 하나에 해당하는 구간 [from, to) 실행 - 결과는 값 스택에 남은 하나
+	 *  - 분할 지점에서는 작은 쪽 자식 구간을 fork 하고 큰 쪽은 재귀 없이 이 루프에서 계속 실행
+	 *      fork 한 작업은 넘긴 쪽에 넣어두고, 계속 실행한 구간이 끝나는 위치(resumeAt) 에서 join 해서 합침
+	 *  - fork 한 작업은 항상 구간의 절반 이하 -> 작업 안의 작업이 join 에서 그 자리에서 실행되어도
+	 *    중첩은 log2(명령 수) 단계 이하, 한쪽으로 긴 빗 모양 트리도 스택이 깊어지지 않음
+	 */
+	private int run(int from, int to, Context context, boolean parallel) {
+		int[] stack = new int[maxDepth];
+		int top = 0;
+		// 넘긴 작업 : 분할 지점, 작업, 첫째 구간을 이 스레드에서 계산하는지, 합칠 위치
+		int pending = 0;
+		int[] pendingForks = null;
+		RangeTask[] pendingTasks = null;
+		boolean[] pendingWalkFirst = null;
+		int[] resumeAt = null;
+		int i = from;
+		try {
+			while (i < to) {
+				if (pending > 0 && i == resumeAt[pending - 1]) {
+					pending--;
+					int fork = pendingForks[pending];
+					stack[top - 1] = join(fork, pendingTasks[pending], pendingWalkFirst[pending], stack[top - 1]);
+					i = forkOps[fork] + 1;
+					continue;
+				}
+				if (parallel && forkAt[i] >= 0) {
+					int fork = outermostFork(i, pending > 0 ? resumeAt[pending - 1] : to);
+					if (fork >= 0) {
+						if (pendingForks == null) {
+							pendingForks = new int[16];
+							pendingTasks = new RangeTask[16];
+							pendingWalkFirst = new boolean[16];
+							resumeAt = new int[16];
+						} else if (pending == pendingForks.length) {
+							pendingForks = Arrays.copyOf(pendingForks, pending * 2);
+							pendingTasks = Arrays.copyOf(pendingTasks, pending * 2);
+							pendingWalkFirst = Arrays.copyOf(pendingWalkFirst, pending * 2);
+							resumeAt = Arrays.copyOf(resumeAt, pending * 2);
+						}
+						int opIndex = forkOps[fork];
+						int firstEnd = forkFirstEnds[fork];
+						int secondStart = forkSecondStarts[fork];
+						boolean walkFirst = firstEnd - i >= opIndex - secondStart;
+						RangeTask task = walkFirst
+								? new RangeTask(secondStart, opIndex, context)
+								: new RangeTask(i, firstEnd, context);
+						task.fork();
+						pendingForks[pending] = fork;
+						pendingTasks[pending] = task;
+						pendingWalkFirst[pending] = walkFirst;
+						// 첫째 구간을 계산하면 그 끝(/ 는 0 검사 위치) 에서, 둘째 구간이면 연산 위치에서 합침
+						resumeAt[pending] = walkFirst ? firstEnd : opIndex;
+						pending++;
+						if (!walkFirst) {
+							i = secondStart;
+						}
+						continue;
+					}
+				}
+				switch (ops[i]) {
+				case NUMBER:
+					stack[top++] = operands[i];
+					break;
+				case VARIABLE:
+					stack[top++] = context.getVariable(names[operands[i]]);
+					break;
+				case LEAF:
+					stack[top++] = leaves[operands[i]].interpret(context);
+					break;
+				case PLUS:
+					top--;
+					stack[top - 1] = stack[top - 1] + stack[top];
+					break;
+				case MINUS:
+					top--;
+					stack[top - 1] = stack[top - 1] - stack[top];
+					break;
+				case MULTIPLY:
+					top--;
+					stack[top - 1] = stack[top - 1] * stack[top];
+					break;
+				case CHECK_DIVISOR:
+					if (stack[top - 1] == 0) {
+						throw new ArithmeticException(DivideExpression.ZERO_DIVISION_MESSAGE);
+					}
+					break;
+				default:
+					// 스택 : ..., 오른쪽, 왼쪽
+					top--;
+					stack[top - 1] = stack[top] / stack[top - 1];
+					break;
+				}
+				i++;
+			}
+		} catch (RuntimeException | Error e) {
+			// 안쪽 분할 지점부터 트리 순회와 같은 순서의 예외를 고름
+			Throwable failure = e;
+			for (int p = pending - 1; p >= 0; p--) {
+				failure = unwind(pendingForks[p], pendingTasks[p], pendingWalkFirst[p], failure);
+			}
+			throw unchecked(failure);
+		}
+		return stack[0];
+	}
+
+	// i 에서 시작해서 구간 안에 들어가는 가장 바깥 분할 지점
+	private int outermostFork(int i, int to) {
+		int fork = forkAt[i];
+		while (fork >= 0 && forkOps[fork] >= to) {
+			fork = forkInners[fork];
+		}
+		return fork;
+	}
+
+	/**
+	 * 이 스레드에서 계산한 값(walked) 과 넘긴 작업의 값을 합침
+	 *  - 첫째 구간 : +, -, * 는 왼쪽, / 는 오른쪽(나누는 수)
+	 *  - 예외 순서 : 첫째 구간 -> (/ 만) 0 나눗셈 -> 둘째 구간
+	 */
+	private int join(int fork, RangeTask task, boolean walkFirst, int walked) {
+		int opIndex = forkOps[fork];
+		boolean divide = ops[opIndex] == DIVIDE;
+		if (divide && walkFirst && walked == 0) {
+			task.discard();
+			throw new ArithmeticException(DivideExpression.ZERO_DIVISION_MESSAGE);
+		}
+		task.join();
+		int other = task.result();
+		if (divide && !walkFirst && other == 0) {
+			throw new ArithmeticException(DivideExpression.ZERO_DIVISION_MESSAGE);
+		}
+		int first = walkFirst ? walked : other;
+		int second = walkFirst ? other : walked;
+		switch (ops[opIndex]) {
+		case PLUS:
+			return first + second;
+		case MINUS:
+			return first - second;
+		case MULTIPLY:
+			return first * second;
+		default:
+			return second / first;
+		}
+	}
+
+	/**
+	 * 이 스레드에서 계산하던 구간이 failure 로 실패 - 넘긴 작업을 정리하고 먼저 던져야 할 예외를 고름
+	 *  - 첫째 구간을 계산하다 실패 : 첫째 구간 예외가 우선, 넘긴 작업은 버림
+	 *  - 둘째 구간을 계산하다 실패 : 넘긴 첫째 구간의 예외 -> (/ 만) 0 나눗셈 -> failure 순서
+	 */
+	private Throwable unwind(int fork, RangeTask task, boolean walkFirst, Throwable failure) {
+		if (walkFirst) {
+			task.discard();
+			return failure;
+		}
+		task.join();
+		if (task.failure != null) {
+			return task.failure;
+		}
+		if (ops[forkOps[fork]] == DIVIDE && task.value == 0) {
+			return new ArithmeticException(DivideExpression.ZERO_DIVISION_MESSAGE);
+		}
+		return failure;
+	}
+
+	// 평가 중에 나는 예외는 모두 unchecked(RuntimeException / Error)
+	private static RuntimeException unchecked(Throwable failure) {
+		if (failure instanceof RuntimeException e) {
+			throw e;
+		}
+		if (failure instanceof Error e) {
+			throw e;
+		}
+		return new IllegalStateException(failure);
+	}
+
+	private final class RangeTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final int from;
+		private final int to;
+		private final transient Context context;
+		private int value;
+		// Error 도 담아서 join 한 쪽에서 던짐 - 여기서 빠져나가면 ForkJoinTask 가 감싸서 원래 예외가 바뀜
+		private Throwable failure;
+
+		RangeTask(int from, int to, Context context) {
+			this.from = from;
+			this.to = to;
+			this.context = context;
+		}
+
+		@Override
+		protected void compute() {
+			try {
+				value = run(from, to, context, true);
+			} catch (Throwable e) {
+				failure = e;
+			}
+		}
+
+		// join 이 끝난 뒤에 호출
+		int result() {
+			if (failure != null) {
+				throw unchecked(failure);
+			}
+			return value;
+		}
+
+		// 아직 다른 스레드가 가져가지 않았으면 취소하고, 가져갔으면 끝날 때까지 기다림
+		void discard() {
+			if (!tryUnfork()) {
+				join();
+			}
+		}
+	}
+
+	/**
+	 * 트리를 평가 순서대로 펼침 - 재귀 대신 (노드, 단계) 프레임 스택
+	 */
+	private static final class Builder {
+		private final int threshold;
+		private int[] ops = new int[64];
+		private int[] operands = new int[64];
+		private int[] forkAt = new int[64];
+		private int size;
+		private final List<String> names = new ArrayList<>();
+		private final Map<String, Integer> nameIds = new HashMap<>();
+		private final List<Expression> leaves = new ArrayList<>();
+		private int depth;
+		private int maxDepth = 1;
+
+		private int[] forkFirstEnds = new int[16];
+		private int[] forkSecondStarts = new int[16];
+		private int[] forkOps = new int[16];
+		private int[] forkInners = new int[16];
+		private int forks;
+
+		Builder(int threshold) {
+			this.threshold = threshold;
+		}
+
+		void emit(Expression root) {
+			// 프레임 : 노드, 단계, 시작 위치, 첫째 자식 구간 끝, 둘째 자식 구간 시작
+			Expression[] nodes = new Expression[64];
+			int[] stages = new int[64];
+			int[] starts = new int[64];
+			int[] firstEnds = new int[64];
+			int[] secondStarts = new int[64];
+			int frames = 0;
+			nodes[frames] = root;
+			stages[frames++] = 0;
+
+			while (frames > 0) {
+				int f = frames - 1;
+				Expression node = nodes[f];
+				int op = opOf(node);
+				if (op < PLUS) {
+					emitLeaf(op, node);
+					frames--;
+					continue;
+				}
+				Expression first = op == DIVIDE ? rightOf(node) : leftOf(node);
+				Expression second = op == DIVIDE ? leftOf(node) : rightOf(node);
+				Expression next;
+				switch (stages[f]++) {
+				case 0:
+					starts[f] = size;
+					next = first;
+					break;
+				case 1:
+					firstEnds[f] = size;
+					if (op == DIVIDE) {
+						add(CHECK_DIVISOR, 0);
+					}
+					secondStarts[f] = size;
+					next = second;
+					break;
+				default:
+					add(op, 0);
+					depth--;
+					if (firstEnds[f] - starts[f] >= threshold && size - 1 - secondStarts[f] >= threshold) {
+						addFork(starts[f], firstEnds[f], secondStarts[f], size - 1);
+					}
+					frames--;
+					continue;
+				}
+				if (frames == nodes.length) {
+					int length = frames * 2;
+					nodes = Arrays.copyOf(nodes, length);
+					stages = Arrays.copyOf(stages, length);
+					starts = Arrays.copyOf(starts, length);
+					firstEnds = Arrays.copyOf(firstEnds, length);
+					secondStarts = Arrays.copyOf(secondStarts, length);
+				}
+				nodes[frames] = next;
+				stages[frames++] = 0;
+			}
+		}
+
+		private void emitLeaf(int op, Expression node) {
+			if (op == NUMBER) {
+				add(NUMBER, ((NumberExpression) node).getNumber());
+			} else if (op == VARIABLE) {
+				String name = ((VariableExpression) node).getName();
+				Integer id = nameIds.get(name);
+				if (id == null) {
+					id = names.size();
+					names.add(name);
+					nameIds.put(name, id);
+				}
+				add(VARIABLE, id);
+			} else {
+				// 모르는 노드는 그 노드의 interpret 에 맡김
+				leaves.add(node);
+				add(LEAF, leaves.size() - 1);
+			}
+			depth++;
+			maxDepth = Math.max(maxDepth, depth);
+		}
+
+		private void add(int op, int operand) {
+			if (size == ops.length) {
+				int length = size * 2;
+				ops = Arrays.copyOf(ops, length);
+				operands = Arrays.copyOf(operands, length);
+				forkAt = Arrays.copyOf(forkAt, length);
+			}
+			ops[size] = op;
+			operands[size] = operand;
+			forkAt[size] = -1;
+			size++;
+		}
+
+		// 후위 순서로 등록되므로 같은 위치에서 시작하는 분할 지점은 나중 것이 더 바깥
+		private void addFork(int start, int firstEnd, int secondStart, int opIndex) {
+			if (forks == forkOps.length) {
+				int length = forks * 2;
+				forkFirstEnds = Arrays.copyOf(forkFirstEnds, length);
+				forkSecondStarts = Arrays.copyOf(forkSecondStarts, length);
+				forkOps = Arrays.copyOf(forkOps, length);
+				forkInners = Arrays.copyOf(forkInners, length);
+			}
+			forkFirstEnds[forks] = firstEnd;
+			forkSecondStarts[forks] = secondStart;
+			forkOps[forks] = opIndex;
+			forkInners[forks] = forkAt[start];
+			forkAt[start] = forks++;
+		}
+
+		private static int opOf(Expression node) {
+			if (node instanceof NumberExpression) {
+				return NUMBER;
+			}
+			if (node instanceof VariableExpression) {
+				return VARIABLE;
+			}
+			if (node instanceof PlusExpression) {
+				return PLUS;
+			}
+			if (node instanceof MinusExpression) {
+				return MINUS;
+			}
+			if (node instanceof MultiplyExpression) {
+				return MULTIPLY;
+			}
+			if (node instanceof DivideExpression) {
+				return DIVIDE;
+			}
+			return LEAF;
+		}
+
+		private static Expression leftOf(Expression node) {
+			if (node instanceof PlusExpression plus) {
+				return plus.getLeft();
+			}
+			if (node instanceof MinusExpression minus) {
+				return minus.getLeft();
+			}
+			if (node instanceof MultiplyExpression multiply) {
+				return multiply.getLeft();
+			}
+			return ((DivideExpression) node).getLeft();
+		}
+
+		private static Expression rightOf(Expression node) {
+			if (node instanceof PlusExpression plus) {
+				return plus.getRight();
+			}
+			if (node instanceof MinusExpression minus) {
+				return minus.getRight();
+			}
+			if (node instanceof MultiplyExpression multiply) {
+				return multiply.getRight();
+			}
+			return ((DivideExpression) node).getRight();
+		}
+	}
+}
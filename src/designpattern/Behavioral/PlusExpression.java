@@ -0,0 +1,27 @@
+package designpattern.Behavioral;
+
+// NonTerminalExpression
+// 덧셈 표현
+class PlusExpression implements Expression {
+	private Expression left;
+	private Expression right;
+	
+	public PlusExpression(Expression left, Expression right) {
+		this.left = left;
+		this.right = right;
+	}
+	
+	public Expression getLeft() {
+		return left;
+	}
+	
+	public Expression getRight() {
+		return right;
+	}
+	
+	@Override
+	public int interpret(Context context) {
+		
+		return left.interpret(context) + right.interpret(context);
+	}
+}
@@ -0,0 +1,128 @@
+package designpattern.Behavioral;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * ExpressionR 권한 규칙을 축약 순서 이진 결정 다이어그램(ROBDD)으로 컴파일한 결과
+ *
+ * 왜 필요할까?
+ *  - 손으로 쓴 큰 규칙에는 같은 권한 검사가 여러 번, 서로 겹쳐서 들어있음
+ *  - 트리 순회는 최악의 경우 리프마다 RoleExpression 검사 한 번
+ *
+ * 구성
+ *  - RoleBddTable : 같은 RoleDictionary 로 컴파일한 모든 규칙이 함께 쓰는 노드 테이블(unique table), 사전마다 하나
+ *      노드 = (권한 ID, 권한이 없을 때 갈 노드, 있을 때 갈 노드)
+ *      같은 세 값의 노드는 하나만 만들고, 두 갈래가 같은 노드는 만들지 않음(축약)
+ *  - 변수 순서는 RoleDictionary 의 권한 ID 순서 -> 경로 하나에서 같은 권한은 최대 한 번 검사
+ *  - 같은 사전으로 컴파일한 같은 의미의 규칙은 따로 컴파일해도 같은 루트 노드가 됨
+ *      -> equals / hashCode 로 규칙 중복 제거, 캐시 키로 사용 가능
+ *  - 노드는 지우지 않으므로 테이블은 그 사전으로 컴파일한 규칙 전체의 노드 수만큼 커짐
+ *
+ * 평가
+ *  - 루트에서 사용자가 가진 권한에 따라 한쪽으로 내려가다 TRUE / FALSE 단말에 도착
+ *  - 권한 ID 순서대로 내려가므로 서로 다른 권한 수 이상은 검사하지 않음
+ */
+public class RoleBdd implements ExpressionR {
+	private final RoleBddTable table;
+	private final int root;
+
+	RoleBdd(RoleBddTable table, int root) {
+		this.table = table;
+		this.root = root;
+	}
+
+	/**
+	 * dictionary 의 공유 테이블에서 컴파일
+	 */
+	public static RoleBdd compile(ExpressionR rule, RoleDictionary dictionary) {
+		return dictionary.bddTable().compile(rule);
+	}
+
+	public boolean evaluate(BitsetRoleContext context) {
+		if (context.getDictionary() != table.getDictionary()) {
+			return interpret((RoleContext) context);
+		}
+		int[] nodes = table.nodes();
+		int node = root;
+		while (node > RoleBddTable.TRUE) {
+			int base = node * RoleBddTable.STRIDE;
+			node = context.hasRole(nodes[base]) ? nodes[base + 2] : nodes[base + 1];
+		}
+		return node == RoleBddTable.TRUE;
+	}
+
+	/**
+	 * 일반 RoleContext 로 평가 - 기존 ExpressionR 자리에 그대로 넣을 수 있음
+	 */
+	@Override
+	public boolean interpret(RoleContext context) {
+		if (context instanceof BitsetRoleContext bitset && bitset.getDictionary() == table.getDictionary()) {
+			return evaluate(bitset);
+		}
+		RoleDictionary dictionary = table.getDictionary();
+		int[] nodes = table.nodes();
+		int node = root;
+		while (node > RoleBddTable.TRUE) {
+			int base = node * RoleBddTable.STRIDE;
+			node = context.hasRole(dictionary.nameOf(nodes[base])) ? nodes[base + 2] : nodes[base + 1];
+		}
+		return node == RoleBddTable.TRUE;
+	}
+
+	public boolean isAlwaysTrue() {
+		return root == RoleBddTable.TRUE;
+	}
+
+	public boolean isAlwaysFalse() {
+		return root == RoleBddTable.FALSE;
+	}
+
+	public int root() {
+		return root;
+	}
+
+	RoleBddTable getTable() {
+		return table;
+	}
+
+	// 이 규칙에서 도달 가능한 노드 수(단말 제외)
+	public int size() {
+		int[] nodes = table.nodes();
+		BitSet seen = new BitSet();
+		int[] stack = new int[16];
+		int top = 0;
+		stack[top++] = root;
+		int count = 0;
+		while (top > 0) {
+			int node = stack[--top];
+			if (node <= RoleBddTable.TRUE || seen.get(node)) {
+				continue;
+			}
+			seen.set(node);
+			count++;
+			if (top + 2 > stack.length) {
+				stack = Arrays.copyOf(stack, stack.length * 2);
+			}
+			stack[top++] = nodes[node * RoleBddTable.STRIDE + 1];
+			stack[top++] = nodes[node * RoleBddTable.STRIDE + 2];
+		}
+		return count;
+	}
+
+	// 같은 테이블에서 같은 루트면 같은 의미의 규칙
+	@Override
+	public boolean equals(Object other) {
+		return other instanceof RoleBdd bdd && bdd.table == table && bdd.root == root;
+	}
+
+	@Override
+	public int hashCode() {
+		return System.identityHashCode(table) * 31 + root;
+	}
+
+	@Override
+	public String toString() {
+		return "RoleBdd(root=" + root + ", nodes=" + size() + ")";
+	}
+}
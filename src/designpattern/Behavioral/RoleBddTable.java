@@ -0,0 +1,227 @@
+package designpattern.Behavioral;
+
+import java.util.Arrays;
+
+/**
+ * 여러 규칙이 함께 쓰는 BDD 노드 테이블 - RoleDictionary.bddTable 로 사전마다 하나
+ *  - 노드 0 = FALSE, 1 = TRUE, 나머지는 int[] 에 (권한 ID, low, high) 세 칸씩
+ *  - unique table : 개방 주소법 해시, (권한 ID, low, high) -> 노드
+ *  - 연산 캐시 : 직접 사상 캐시(덮어쓰면 다시 계산할 뿐)
+ *      첫 연산 때 만들고, 노드 수에 맞춰 MAX_CACHE 칸까지만 키움 -> 작은 규칙만 쓰면 메모리도 작음
+ *
+ * 컴파일은 테이블 단위로 동기화, 평가는 컴파일이 끝난 규칙에 대해 여러 스레드에서 동시에 가능
+ */
+class RoleBddTable {
+	static final int FALSE = 0;
+	static final int TRUE = 1;
+	static final int STRIDE = 3;
+	private static final int TERMINAL_VARIABLE = Integer.MAX_VALUE;
+	private static final int OP_AND = 0;
+	private static final int OP_OR = 1;
+	private static final int MIN_CACHE = 1 << 10;
+	private static final int MAX_CACHE = 1 << 16;
+
+	private final RoleDictionary dictionary;
+	// 평가 스레드는 컴파일이 끝날 때 기록한 배열을 읽음
+	private volatile int[] published;
+	private int[] nodes = new int[64 * STRIDE];
+	private int size;
+	// 노드 번호 + 1, 0 은 빈 칸
+	private int[] buckets = new int[64];
+	// 연산 캐시 : (연산, a, b) -> 결과, a 가 -1 이면 빈 칸, 첫 연산 전에는 null
+	private int[] cacheOps;
+	private int[] cacheLefts;
+	private int[] cacheRights;
+	private int[] cacheResults;
+
+	RoleBddTable(RoleDictionary dictionary) {
+		this.dictionary = dictionary;
+		addTerminal(FALSE);
+		addTerminal(TRUE);
+		published = nodes;
+	}
+
+	public synchronized RoleBdd compile(ExpressionR rule) {
+		ensureCache();
+		int root = build(rule);
+		published = nodes;
+		return new RoleBdd(this, root);
+	}
+
+	public synchronized RoleBdd and(RoleBdd left, RoleBdd right) {
+		ensureCache();
+		int root = apply(OP_AND, ownRoot(left), ownRoot(right));
+		published = nodes;
+		return new RoleBdd(this, root);
+	}
+
+	public synchronized RoleBdd or(RoleBdd left, RoleBdd right) {
+		ensureCache();
+		int root = apply(OP_OR, ownRoot(left), ownRoot(right));
+		published = nodes;
+		return new RoleBdd(this, root);
+	}
+
+	// 단말을 포함한 전체 노드 수
+	public synchronized int nodeCount() {
+		return size;
+	}
+
+	RoleDictionary getDictionary() {
+		return dictionary;
+	}
+
+	int[] nodes() {
+		return published;
+	}
+
+	// 연산 도중에는 칸 위치가 바뀌면 안 되므로 연산을 시작할 때만 만들거나 키움(키우면 비워짐)
+	private void ensureCache() {
+		int target = Math.min(MAX_CACHE, Math.max(MIN_CACHE, Integer.highestOneBit(size) * 2));
+		if (cacheLefts != null && cacheLefts.length >= target) {
+			return;
+		}
+		cacheOps = new int[target];
+		cacheLefts = new int[target];
+		cacheRights = new int[target];
+		cacheResults = new int[target];
+		Arrays.fill(cacheLefts, -1);
+	}
+
+	private int ownRoot(RoleBdd bdd) {
+		if (bdd.getTable() != this) {
+			throw new IllegalArgumentException("다른 테이블의 BDD 는 합칠 수 없습니다.");
+		}
+		return bdd.root();
+	}
+
+	private int build(ExpressionR rule) {
+		if (rule instanceof RoleBdd bdd && bdd.getTable() == this) {
+			return bdd.root();
+		}
+		if (rule instanceof RoleExpression role) {
+			return node(dictionary.intern(role.getRole()), FALSE, TRUE);
+		}
+		if (rule instanceof AndExpression and) {
+			int left = build(and.getLeft());
+			// 왼쪽이 이미 FALSE 면 오른쪽은 볼 필요 없음
+			return left == FALSE ? FALSE : apply(OP_AND, left, build(and.getRight()));
+		}
+		if (rule instanceof OrExpression or) {
+			int left = build(or.getLeft());
+			return left == TRUE ? TRUE : apply(OP_OR, left, build(or.getRight()));
+		}
+		throw new IllegalArgumentException("컴파일할 수 없는 권한 규칙 : " + rule);
+	}
+
+	private int apply(int op, int a, int b) {
+		// 단말 / 자명한 경우
+		if (op == OP_AND) {
+			if (a == FALSE || b == FALSE) {
+				return FALSE;
+			}
+			if (a == TRUE) {
+				return b;
+			}
+			if (b == TRUE || a == b) {
+				return a;
+			}
+		} else {
+			if (a == TRUE || b == TRUE) {
+				return TRUE;
+			}
+			if (a == FALSE) {
+				return b;
+			}
+			if (b == FALSE || a == b) {
+				return a;
+			}
+		}
+		// 교환 법칙 - 캐시 적중률을 높이려고 작은 번호를 왼쪽에
+		if (a > b) {
+			int swap = a;
+			a = b;
+			b = swap;
+		}
+		int slot = cacheSlot(op, a, b);
+		if (cacheLefts[slot] == a && cacheRights[slot] == b && cacheOps[slot] == op) {
+			return cacheResults[slot];
+		}
+
+		int variableA = nodes[a * STRIDE];
+		int variableB = nodes[b * STRIDE];
+		int variable = Math.min(variableA, variableB);
+		int low = apply(op, variableA == variable ? nodes[a * STRIDE + 1] : a, variableB == variable ? nodes[b * STRIDE + 1] : b);
+		int high = apply(op, variableA == variable ? nodes[a * STRIDE + 2] : a, variableB == variable ? nodes[b * STRIDE + 2] : b);
+		int result = node(variable, low, high);
+
+		// 재귀 중에 같은 칸이 덮어써졌을 수 있으므로 다시 계산한 위치에 기록
+		cacheOps[slot] = op;
+		cacheLefts[slot] = a;
+		cacheRights[slot] = b;
+		cacheResults[slot] = result;
+		return result;
+	}
+
+	private int node(int variable, int low, int high) {
+		if (low == high) {
+			return low;
+		}
+		int mask = buckets.length - 1;
+		int slot = hash(variable, low, high) & mask;
+		while (buckets[slot] != 0) {
+			int existing = buckets[slot] - 1;
+			int base = existing * STRIDE;
+			if (nodes[base] == variable && nodes[base + 1] == low && nodes[base + 2] == high) {
+				return existing;
+			}
+			slot = (slot + 1) & mask;
+		}
+		int id = append(variable, low, high);
+		buckets[slot] = id + 1;
+		// 채움률 50% 를 넘으면 두 배로
+		if (size * 2 > buckets.length) {
+			rehash();
+		}
+		return id;
+	}
+
+	private void addTerminal(int id) {
+		append(TERMINAL_VARIABLE, id, id);
+	}
+
+	private int append(int variable, int low, int high) {
+		if ((size + 1) * STRIDE > nodes.length) {
+			nodes = Arrays.copyOf(nodes, nodes.length * 2);
+		}
+		int base = size * STRIDE;
+		nodes[base] = variable;
+		nodes[base + 1] = low;
+		nodes[base + 2] = high;
+		return size++;
+	}
+
+	private void rehash() {
+		int[] grown = new int[buckets.length * 2];
+		int mask = grown.length - 1;
+		for (int id = TRUE + 1; id < size; id++) {
+			int base = id * STRIDE;
+			int slot = hash(nodes[base], nodes[base + 1], nodes[base + 2]) & mask;
+			while (grown[slot] != 0) {
+				slot = (slot + 1) & mask;
+			}
+			grown[slot] = id + 1;
+		}
+		buckets = grown;
+	}
+
+	private static int hash(int variable, int low, int high) {
+		int h = variable * 0x9E3779B1 + low * 0x85EBCA6B + high * 0xC2B2AE35;
+		return h ^ (h >>> 16);
+	}
+
+	private int cacheSlot(int op, int a, int b) {
+		int h = (a * 0x9E3779B1) ^ (b * 0x85EBCA6B) ^ op;
+		return (h ^ (h >>> 16)) & (cacheLefts.length - 1);
+	}
+}
@@ -0,0 +1,15 @@
+package designpattern.Behavioral;
+
+import java.util.Set;
+
+class RoleContext {
+	private Set<String> roles;
+	
+	public RoleContext(Set<String> roles) {
+		this.roles = roles;
+	}
+	
+	public boolean hasRole(String role) {
+		return roles.contains(role);
+	}
+}
@@ -0,0 +1,75 @@
+package designpattern.Behavioral;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 권한 이름 -> 정수 ID 사전
+ *  - 같은 사전으로 만든 규칙과 컨텍스트끼리만 비교 가능
+ *  - ID 는 0 부터 빈틈없이 배정되어 비트셋 인덱스로 바로 사용
+ */
+class RoleDictionary {
+	private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+	private volatile String[] names = new String[16];
+	// 이 사전으로 컴파일하는 모든 RoleBdd 가 함께 쓰는 노드 테이블, 처음 컴파일할 때 만듦
+	private volatile RoleBddTable bddTable;
+
+	public int intern(String role) {
+		Integer id = ids.get(role);
+		if (id != null) {
+			return id;
+		}
+		synchronized (this) {
+			id = ids.get(role);
+			if (id != null) {
+				return id;
+			}
+			int next = ids.size();
+			String[] current = names;
+			if (next == current.length) {
+				current = Arrays.copyOf(current, next * 2);
+			}
+			current[next] = role;
+			names = current;
+			ids.put(role, next);
+			return next;
+		}
+	}
+
+	RoleBddTable bddTable() {
+		RoleBddTable table = bddTable;
+		if (table == null) {
+			synchronized (this) {
+				table = bddTable;
+				if (table == null) {
+					table = new RoleBddTable(this);
+					bddTable = table;
+				}
+			}
+		}
+		return table;
+	}
+
+	// 없는 권한이면 -1
+	public int idOf(String role) {
+		Integer id = ids.get(role);
+		return id == null ? -1 : id;
+	}
+
+	public String nameOf(int id) {
+		return names[id];
+	}
+
+	public int size() {
+		return ids.size();
+	}
+
+	public BitsetRoleContext context(Set<String> roles) {
+		BitsetRoleContext context = new BitsetRoleContext(this);
+		for (String role : roles) {
+			context.addRole(role);
+		}
+		return context;
+	}
+}
@@ -0,0 +1,19 @@
+package designpattern.Behavioral;
+
+// 기본 권한 체크
+class RoleExpression implements ExpressionR {
+	private String role;
+	
+	public RoleExpression(String role) {
+		this.role = role;
+	}
+	
+	public String getRole() {
+		return role;
+	}
+	
+	@Override
+	public boolean interpret(RoleContext context) {
+		return context.hasRole(role);
+	}
+}
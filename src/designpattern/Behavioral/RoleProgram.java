@@ -0,0 +1,258 @@
+package designpattern.Behavioral;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * ExpressionR 권한 규칙을 비트 연산 명령 배열로 컴파일
+ *
+ * 왜 필요할까?
+ *  - RoleContext.hasRole 은 RoleExpression 리프마다 Set<String>.contains(문자열 해싱)
+ *  - Admin OR (Manager AND HR) 같은 규칙을 요청마다 평가
+ *
+ * 구성
+ *  - RoleDictionary : 권한 이름 -> 0 부터 시작하는 정수 ID
+ *  - BitsetRoleContext : 사용자의 권한을 long[] 비트셋으로 보관
+ *  - RoleProgram : 트리를 후위 표기 명령(TEST id, AND, OR) 배열로 펼친 것
+ *
+ * 평가 순서
+ *  - 리프만 있는 OR 묶음 : 마스크 하나와 겹치는지 확인
+ *  - 곱의 합(DNF)으로 펼쳐서 항이 적으면 : 항(AND 묶음) 마스크마다 포함 여부 확인
+ *  - 그 외 : 후위 표기 명령 실행, 평가 스택은 long 하나의 비트로 표현(깊이 64 까지)
+ *  - 어느 경우든 문자열 해싱 없이 워드 연산만 수행
+ */
+public class RoleProgram {
+	private static final int TEST = 0;
+	private static final int AND = 1;
+	private static final int OR = 2;
+	private static final int OP_BITS = 2;
+	private static final int MAX_LONG_STACK = 64;
+	private static final int MAX_TERMS = 32;
+
+	private final int[] code;
+	private final int maxDepth;
+	// 리프만 있는 OR 규칙의 마스크
+	private final long[] anyMask;
+	// 곱의 합 항 마스크, 항이 너무 많으면 null
+	private final long[][] terms;
+
+	private RoleProgram(int[] code, int maxDepth, long[] anyMask, long[][] terms) {
+		this.code = code;
+		this.maxDepth = maxDepth;
+		this.anyMask = anyMask;
+		this.terms = terms;
+	}
+
+	public static RoleProgram compile(ExpressionR rule, RoleDictionary dictionary) {
+		Emitter emitter = new Emitter(dictionary);
+		emitter.emit(rule);
+		int[] code = Arrays.copyOf(emitter.code, emitter.size);
+		long[] anyMask = onlyLeaves(rule) ? mask(rule, dictionary) : null;
+		List<long[]> dnf = anyMask == null ? disjunctiveTerms(rule, dictionary, MAX_TERMS) : null;
+		long[][] terms = dnf == null ? null : dnf.toArray(new long[0][]);
+		return new RoleProgram(code, emitter.maxDepth, anyMask, terms);
+	}
+
+	public boolean evaluate(BitsetRoleContext context) {
+		if (anyMask != null) {
+			return context.containsAny(anyMask);
+		}
+		if (terms != null) {
+			for (long[] term : terms) {
+				if (context.containsAll(term)) {
+					return true;
+				}
+			}
+			return false;
+		}
+		if (maxDepth <= MAX_LONG_STACK) {
+			return evaluateOnLong(context);
+		}
+		return evaluateOnArray(context);
+	}
+
+	// 스택 맨 위가 최하위 비트
+	private boolean evaluateOnLong(BitsetRoleContext context) {
+		long stack = 0;
+		for (int instruction : code) {
+			switch (instruction & ((1 << OP_BITS) - 1)) {
+			case TEST:
+				stack = (stack << 1) | (context.hasRole(instruction >>> OP_BITS) ? 1L : 0L);
+				break;
+			case AND:
+				stack = (stack >>> 1) & (stack | ~1L);
+				break;
+			default:
+				stack = (stack >>> 1) | (stack & 1L);
+				break;
+			}
+		}
+		return (stack & 1L) != 0;
+	}
+
+	private boolean evaluateOnArray(BitsetRoleContext context) {
+		boolean[] stack = new boolean[maxDepth];
+		int top = -1;
+		for (int instruction : code) {
+			switch (instruction & ((1 << OP_BITS) - 1)) {
+			case TEST:
+				stack[++top] = context.hasRole(instruction >>> OP_BITS);
+				break;
+			case AND:
+				top--;
+				stack[top] = stack[top] & stack[top + 1];
+				break;
+			default:
+				top--;
+				stack[top] = stack[top] | stack[top + 1];
+				break;
+			}
+		}
+		return stack[0];
+	}
+
+	public int length() {
+		return code.length;
+	}
+
+	/**
+	 * 규칙을 곱의 합(OR of ANDs)으로 펼침 - 항 하나는 "모두 있어야 하는 권한" 마스크
+	 *  - A AND (B OR C) -> {A, B}, {A, C}
+	 *  - 항이 limit 를 넘으면 null
+	 */
+	static List<long[]> disjunctiveTerms(ExpressionR rule, RoleDictionary dictionary, int limit) {
+		if (rule instanceof RoleExpression role) {
+			int id = dictionary.intern(role.getRole());
+			long[] term = new long[(id >>> 6) + 1];
+			term[id >>> 6] |= 1L << id;
+			List<long[]> terms = new ArrayList<>();
+			terms.add(term);
+			return terms;
+		}
+		if (rule instanceof OrExpression or) {
+			List<long[]> left = disjunctiveTerms(or.getLeft(), dictionary, limit);
+			List<long[]> right = left == null ? null : disjunctiveTerms(or.getRight(), dictionary, limit);
+			if (right == null) {
+				return null;
+			}
+			for (long[] term : right) {
+				if (!containsTerm(left, term)) {
+					left.add(term);
+				}
+			}
+			return left.size() > limit ? null : left;
+		}
+		if (rule instanceof AndExpression and) {
+			List<long[]> left = disjunctiveTerms(and.getLeft(), dictionary, limit);
+			List<long[]> right = left == null ? null : disjunctiveTerms(and.getRight(), dictionary, limit);
+			if (right == null || (long) left.size() * right.size() > limit) {
+				return null;
+			}
+			List<long[]> product = new ArrayList<>();
+			for (long[] a : left) {
+				for (long[] b : right) {
+					long[] term = union(a, b);
+					if (!containsTerm(product, term)) {
+						product.add(term);
+					}
+				}
+			}
+			return product;
+		}
+		throw new IllegalArgumentException("컴파일할 수 없는 권한 규칙 : " + rule);
+	}
+
+	private static long[] union(long[] a, long[] b) {
+		long[] result = Arrays.copyOf(a, Math.max(a.length, b.length));
+		for (int i = 0; i < b.length; i++) {
+			result[i] |= b[i];
+		}
+		return result;
+	}
+
+	private static boolean containsTerm(List<long[]> terms, long[] term) {
+		for (long[] existing : terms) {
+			if (sameBits(existing, term)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean sameBits(long[] a, long[] b) {
+		for (int i = 0; i < Math.max(a.length, b.length); i++) {
+			if ((i < a.length ? a[i] : 0L) != (i < b.length ? b[i] : 0L)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean onlyLeaves(ExpressionR rule) {
+		if (rule instanceof RoleExpression) {
+			return true;
+		}
+		if (rule instanceof OrExpression or) {
+			return onlyLeaves(or.getLeft()) && onlyLeaves(or.getRight());
+		}
+		return false;
+	}
+
+	private static long[] mask(ExpressionR rule, RoleDictionary dictionary) {
+		BitsetRoleContext mask = new BitsetRoleContext(dictionary);
+		collectRoles(rule, mask);
+		return mask.words();
+	}
+
+	private static void collectRoles(ExpressionR rule, BitsetRoleContext mask) {
+		if (rule instanceof RoleExpression role) {
+			mask.addRole(role.getRole());
+		} else if (rule instanceof AndExpression and) {
+			collectRoles(and.getLeft(), mask);
+			collectRoles(and.getRight(), mask);
+		} else if (rule instanceof OrExpression or) {
+			collectRoles(or.getLeft(), mask);
+			collectRoles(or.getRight(), mask);
+		}
+	}
+
+	private static final class Emitter {
+		private final RoleDictionary dictionary;
+		private int[] code = new int[16];
+		private int size;
+		private int depth;
+		private int maxDepth;
+
+		Emitter(RoleDictionary dictionary) {
+			this.dictionary = dictionary;
+		}
+
+		void emit(ExpressionR rule) {
+			if (rule instanceof RoleExpression role) {
+				add(dictionary.intern(role.getRole()) << OP_BITS | TEST);
+				depth++;
+				maxDepth = Math.max(maxDepth, depth);
+			} else if (rule instanceof AndExpression and) {
+				emit(and.getLeft());
+				emit(and.getRight());
+				add(AND);
+				depth--;
+			} else if (rule instanceof OrExpression or) {
+				emit(or.getLeft());
+				emit(or.getRight());
+				add(OR);
+				depth--;
+			} else {
+				throw new IllegalArgumentException("컴파일할 수 없는 권한 규칙 : " + rule);
+			}
+		}
+
+		private void add(int instruction) {
+			if (size == code.length) {
+				code = Arrays.copyOf(code, size * 2);
+			}
+			code[size++] = instruction;
+		}
+	}
+}
@@ -0,0 +1,185 @@
+package designpattern.Behavioral;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 수만 개의 권한 규칙을 한 사용자에 대해 한 번에 평가하는 카운팅 기반 규칙 인덱스
+ *
+ * 왜 필요할까?
+ *  - 규칙마다 AndExpression / OrExpression 트리를 따로 순회하면 규칙 수에 비례하는 시간
+ *  - 대부분의 규칙은 사용자가 가진 권한과 관계가 없음
+ *
+ * 동작
+ *  - 규칙을 곱의 합(OR of ANDs)으로 펼쳐 항(AND 묶음) 단위로 등록
+ *  - 권한 ID -> 그 권한이 들어있는 항 목록(posting list)
+ *  - 매칭 : 사용자의 권한마다 posting list 의 항 카운터를 올리고,
+ *           카운터가 항의 권한 개수와 같아지면 그 항의 규칙이 만족된 것
+ *  - 사용자의 권한과 그 posting list 길이에 비례하는 시간, 관계없는 규칙은 보지 않음
+ *
+ * 곱의 합으로 펼치면 항이 너무 많아지는 규칙은 RoleProgram 으로 컴파일해서 매번 따로 평가
+ * 규칙 추가는 단일 스레드, 매칭은 스레드마다 작업 배열을 따로 쓰므로 동시에 가능(추가가 끝난 뒤)
+ */
+public class RoleRuleIndex {
+	private static final int MAX_TERMS_PER_RULE = 64;
+
+	private final RoleDictionary dictionary;
+	// 항 번호 -> 권한 개수 / 규칙 ID
+	private int[] termSizes = new int[1024];
+	private int[] termRules = new int[1024];
+	private int termCount;
+	// 권한 ID -> 항 번호 목록
+	private int[][] postings = new int[64][];
+	private int[] postingSizes = new int[64];
+	// 항이 너무 많아 인덱스에 넣지 못한 규칙
+	private final List<Integer> fallbackRules = new ArrayList<>();
+	private final List<RoleProgram> fallbackPrograms = new ArrayList<>();
+	private int ruleCount;
+
+	private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+
+	public RoleRuleIndex(RoleDictionary dictionary) {
+		this.dictionary = dictionary;
+	}
+
+	/**
+	 * 규칙 등록 - 반환값이 규칙 ID(0 부터 순서대로)
+	 */
+	public int addRule(ExpressionR rule) {
+		int ruleId = ruleCount++;
+		List<long[]> terms = RoleProgram.disjunctiveTerms(rule, dictionary, MAX_TERMS_PER_RULE);
+		if (terms == null) {
+			fallbackRules.add(ruleId);
+			fallbackPrograms.add(RoleProgram.compile(rule, dictionary));
+			return ruleId;
+		}
+		for (long[] term : terms) {
+			addTerm(ruleId, term);
+		}
+		return ruleId;
+	}
+
+	/**
+	 * 사용자가 만족하는 모든 규칙 ID(중복 없음, 순서 보장 없음)
+	 */
+	public int[] match(BitsetRoleContext user) {
+		Scratch work = scratch.get();
+		work.prepare(termCount, ruleCount);
+		int epoch = work.epoch;
+		int[] counts = work.counts;
+		int[] stamps = work.stamps;
+		int[] matchedStamps = work.matchedStamps;
+		int[] result = work.result;
+		int found = 0;
+
+		long[] words = user.words();
+		for (int w = 0; w < words.length; w++) {
+			long bits = words[w];
+			while (bits != 0) {
+				int role = (w << 6) + Long.numberOfTrailingZeros(bits);
+				bits &= bits - 1;
+				if (role >= postings.length || postings[role] == null) {
+					continue;
+				}
+				int[] posting = postings[role];
+				for (int i = 0, n = postingSizes[role]; i < n; i++) {
+					int term = posting[i];
+					if (stamps[term] != epoch) {
+						stamps[term] = epoch;
+						counts[term] = 0;
+					}
+					if (++counts[term] == termSizes[term]) {
+						int rule = termRules[term];
+						if (matchedStamps[rule] != epoch) {
+							matchedStamps[rule] = epoch;
+							result[found++] = rule;
+						}
+					}
+				}
+			}
+		}
+		for (int i = 0; i < fallbackRules.size(); i++) {
+			if (fallbackPrograms.get(i).evaluate(user)) {
+				result[found++] = fallbackRules.get(i);
+			}
+		}
+		return Arrays.copyOf(result, found);
+	}
+
+	public int ruleCount() {
+		return ruleCount;
+	}
+
+	public int termCount() {
+		return termCount;
+	}
+
+	public int fallbackCount() {
+		return fallbackRules.size();
+	}
+
+	private void addTerm(int ruleId, long[] term) {
+		int termId = termCount++;
+		if (termId == termSizes.length) {
+			termSizes = Arrays.copyOf(termSizes, termId * 2);
+			termRules = Arrays.copyOf(termRules, termId * 2);
+		}
+		int size = 0;
+		for (int w = 0; w < term.length; w++) {
+			long bits = term[w];
+			size += Long.bitCount(bits);
+			while (bits != 0) {
+				addPosting((w << 6) + Long.numberOfTrailingZeros(bits), termId);
+				bits &= bits - 1;
+			}
+		}
+		termSizes[termId] = size;
+		termRules[termId] = ruleId;
+	}
+
+	private void addPosting(int role, int termId) {
+		if (role >= postings.length) {
+			int length = Math.max(role + 1, postings.length * 2);
+			postings = Arrays.copyOf(postings, length);
+			postingSizes = Arrays.copyOf(postingSizes, length);
+		}
+		int[] posting = postings[role];
+		if (posting == null) {
+			posting = new int[4];
+		} else if (postingSizes[role] == posting.length) {
+			posting = Arrays.copyOf(posting, posting.length * 2);
+		}
+		posting[postingSizes[role]++] = termId;
+		postings[role] = posting;
+	}
+
+	/**
+	 * 스레드별 작업 배열
+	 *  - 매칭마다 epoch 를 올려서 카운터를 0 으로 지우는 대신 stamp 비교로 초기화
+	 */
+	private static final class Scratch {
+		private int[] counts = new int[0];
+		private int[] stamps = new int[0];
+		private int[] matchedStamps = new int[0];
+		private int[] result = new int[0];
+		private int epoch;
+
+		void prepare(int terms, int rules) {
+			if (counts.length < terms) {
+				counts = Arrays.copyOf(counts, terms);
+				stamps = Arrays.copyOf(stamps, terms);
+			}
+			if (matchedStamps.length < rules) {
+				matchedStamps = Arrays.copyOf(matchedStamps, rules);
+				result = new int[rules];
+			}
+			if (++epoch == 0) {
+				// 한 바퀴 돌면 이전 stamp 와 겹치지 않도록 초기화
+				Arrays.fill(stamps, 0);
+				Arrays.fill(matchedStamps, 0);
+				epoch = 1;
+			}
+		}
+	}
+}
@@ -0,0 +1,69 @@
+package designpattern.Behavioral;
+
+import java.util.Arrays;
+
+/**
+ * 변수 이름 대신 정수 슬롯으로 값을 찾는 Context
+ *
+ * 왜 필요할까?
+ *  - Context.getVariable 은 호출마다 containsKey + get 으로 해시 조회 2번, Integer 언박싱 1번
+ *  - 변수 평가는 가장 자주 일어나는 경로
+ *
+ * 바인딩 단계
+ *  - SlotLayout.bind 가 트리의 변수 이름을 한 번만 슬롯 번호로 바꿔 둠
+ *  - 평가 중에는 int[] 인덱스 접근만 하므로 해싱, 박싱이 없음
+ *  - 이름 기반 setVariable / getVariable 은 그대로 사용 가능(이름 -> 슬롯 조회는 값을 넣을 때 한 번)
+ */
+public class SlotContext extends Context {
+	private final SlotLayout layout;
+	private int[] values;
+	private boolean[] defined;
+
+	SlotContext(SlotLayout layout) {
+		this.layout = layout;
+		this.values = new int[layout.size()];
+		this.defined = new boolean[layout.size()];
+	}
+
+	@Override
+	public void setVariable(String name, int value) {
+		int slot = layout.slotOf(name);
+		if (slot < 0) {
+			// 바인딩되지 않은 이름은 기존 Context 방식으로 보관
+			super.setVariable(name, value);
+			return;
+		}
+		setSlot(slot, value);
+	}
+
+	@Override
+	public int getVariable(String name) {
+		int slot = layout.slotOf(name);
+		if (slot < 0) {
+			return super.getVariable(name);
+		}
+		return getSlot(slot);
+	}
+
+	public void setSlot(int slot, int value) {
+		if (slot >= values.length) {
+			// 컨텍스트 생성 후 레이아웃에 변수가 추가된 경우
+			int length = Math.max(layout.size(), slot + 1);
+			values = Arrays.copyOf(values, length);
+			defined = Arrays.copyOf(defined, length);
+		}
+		values[slot] = value;
+		defined[slot] = true;
+	}
+
+	public int getSlot(int slot) {
+		if (slot >= values.length || !defined[slot]) {
+			throw new IllegalArgumentException("변수 " + layout.nameOf(slot) + "은(는) 정의되지 않았습니다.");
+		}
+		return values[slot];
+	}
+
+	SlotLayout getLayout() {
+		return layout;
+	}
+}
@@ -0,0 +1,69 @@
+package designpattern.Behavioral;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 변수 이름 -> 슬롯 번호 배정표
+ *  - 같은 레이아웃으로 바인딩한 트리들은 같은 SlotContext 를 공유할 수 있음
+ */
+class SlotLayout {
+	private final Map<String, Integer> slots = new HashMap<>();
+	private String[] names = new String[8];
+
+	public int slotOf(String name) {
+		Integer slot = slots.get(name);
+		return slot == null ? -1 : slot;
+	}
+
+	public String nameOf(int slot) {
+		return names[slot];
+	}
+
+	public int size() {
+		return slots.size();
+	}
+
+	public SlotContext newContext() {
+		return new SlotContext(this);
+	}
+
+	/**
+	 * 트리의 VariableExpression 을 SlotVariableExpression 으로 바꾼 새 트리 반환
+	 *  - 원본 트리는 그대로 둠
+	 */
+	public Expression bind(Expression expression) {
+		if (expression instanceof VariableExpression variable) {
+			return new SlotVariableExpression(this, variable.getName(), assign(variable.getName()));
+		}
+		if (expression instanceof PlusExpression plus) {
+			return new PlusExpression(bind(plus.getLeft()), bind(plus.getRight()));
+		}
+		if (expression instanceof MinusExpression minus) {
+			return new MinusExpression(bind(minus.getLeft()), bind(minus.getRight()));
+		}
+		if (expression instanceof MultiplyExpression multiply) {
+			return new MultiplyExpression(bind(multiply.getLeft()), bind(multiply.getRight()));
+		}
+		if (expression instanceof DivideExpression divide) {
+			return new DivideExpression(bind(divide.getLeft()), bind(divide.getRight()));
+		}
+		// 숫자, 이미 바인딩된 변수, 컴파일 결과는 그대로
+		return expression;
+	}
+
+	private int assign(String name) {
+		Integer slot = slots.get(name);
+		if (slot != null) {
+			return slot;
+		}
+		int next = slots.size();
+		if (next == names.length) {
+			names = Arrays.copyOf(names, next * 2);
+		}
+		names[next] = name;
+		slots.put(name, next);
+		return next;
+	}
+}
@@ -0,0 +1,31 @@
+package designpattern.Behavioral;
+
+// 바인딩된 변수 표현 - 같은 레이아웃의 SlotContext 면 슬롯을 바로 읽음
+final class SlotVariableExpression implements Expression {
+	private final SlotLayout layout;
+	private final String name;
+	private final int slot;
+
+	public SlotVariableExpression(SlotLayout layout, String name, int slot) {
+		this.layout = layout;
+		this.name = name;
+		this.slot = slot;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public int getSlot() {
+		return slot;
+	}
+
+	@Override
+	public int interpret(Context context) {
+		if (context instanceof SlotContext slotContext && slotContext.getLayout() == layout) {
+			return slotContext.getSlot(slot);
+		}
+		// 다른 Context 가 들어오면 이름으로 조회
+		return context.getVariable(name);
+	}
+}
@@ -0,0 +1,13 @@
+package designpattern.Behavioral;
+
+/**
+ * Subject(주체 인터페이스)
+ *  - 상태 변화 관리
+ *  - 옵저버를 등록/제거/통지하는 메소드 정의
+ *  - 발행자(Publish) 역할
+ */
+interface Subject {
+	void registerObserver(ObserverInterface observerI);
+	void removeObserver(ObserverInterface observerI);
+	void notifyObserver(String message);
+}
@@ -0,0 +1,19 @@
+package designpattern.Behavioral;
+
+// 추가 - 문자 표현
+class VariableExpression implements Expression {
+	private String name;
+	
+	public VariableExpression(String name) {
+		this.name = name;
+	}
+	
+	public String getName() {
+		return name;
+	}
+	
+	@Override
+	public int interpret(Context context) {
+		return context.getVariable(name);
+	}
+}
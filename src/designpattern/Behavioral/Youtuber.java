@@ -0,0 +1,68 @@
+package designpattern.Behavioral;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * ConcreteSubject(구체 주체 클래스)
+ *  - 상태 변화 발생 -> 등록된 옵저버들에게 알림
+ *  - 실제 데이터를 가지며 변화가 생기면 통지
+ *
+ * 기본은 upload 한 스레드에서 차례로 update
+ * ObserverDispatcher 를 넘기면 구독자마다 다른 스레드에서 전달, upload 는 알림을 넣기만 하고 돌아옴
+ */
+class Youtuber implements Subject {
+	// 구독자 목록 - 알림을 보내는 중에 등록/취소가 와도 되도록 복사본 순회
+	private final List<ObserverInterface> observerList = new CopyOnWriteArrayList<>();
+	private final ObserverDispatcher dispatcher;
+	
+	public Youtuber() {
+		this(null);
+	}
+	
+	public Youtuber(ObserverDispatcher dispatcher) {
+		this.dispatcher = dispatcher;
+	}
+	
+	@Override
+	public void registerObserver(ObserverInterface observer) {
+	    if (observer == null) {
+	        System.out.println("구독자 정보가 올바르지 않습니다.");
+	        return;
+	    }
+	    if (observerList.contains(observer)) {
+	    	removeObserver(observer);
+	        return;
+	    }
+		observerList.add(observer);
+		System.out.println(observer + " 구독");
+	}
+
+	@Override
+	public void removeObserver(ObserverInterface observer) {
+	    if (observer == null) {
+	        System.out.println("구독자 정보가 올바르지 않습니다.");
+	        return;
+	    }
+		observerList.remove(observer);
+		if (dispatcher != null) {
+			dispatcher.forget(observer);
+		}
+		System.out.println(observer + " 구독 취소");
+	}
+
+	@Override
+	public void notifyObserver(String message) {
+		for (ObserverInterface observer : observerList) {
+			if (dispatcher == null) {
+				observer.update(message);
+			} else {
+				dispatcher.dispatch(observer, message);
+			}
+		}
+	}
+	
+	public void upload(String title) {
+		notifyObserver(title);
+	}
+}